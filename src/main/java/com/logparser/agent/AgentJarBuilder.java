@@ -0,0 +1,85 @@
+package com.logparser.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Packages the agent classes of the running application into a small standalone jar
+ * that can be uploaded to a remote host and started with {@code java -jar}.
+ */
+public final class AgentJarBuilder {
+
+    private static final Class<?>[] AGENT_CLASSES = {
+            LogAgent.class,
+            LogAgent.FileIndex.class,
+            LogAgent.LineVisitor.class,
+            AgentProtocol.class
+    };
+
+    private static byte[] cachedJar;
+
+    private AgentJarBuilder() {}
+
+    /**
+     * Build (once) the agent jar. The output is deterministic, so its hash identifies the agent version.
+     * @return jar bytes
+     * @throws IOException if an agent class cannot be read
+     */
+    public static synchronized byte[] build() throws IOException {
+        if (cachedJar != null) {
+            return cachedJar;
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, LogAgent.class.getName());
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JarOutputStream jar = new JarOutputStream(buffer)) {
+            JarEntry manifestEntry = new JarEntry("META-INF/MANIFEST.MF");
+            manifestEntry.setTime(0);
+            jar.putNextEntry(manifestEntry);
+            manifest.write(jar);
+            jar.closeEntry();
+
+            for (Class<?> type : AGENT_CLASSES) {
+                String resource = type.getName().replace('.', '/') + ".class";
+                try (InputStream in = AgentJarBuilder.class.getClassLoader().getResourceAsStream(resource)) {
+                    if (in == null) {
+                        throw new IOException("Agent class not found: " + resource);
+                    }
+                    JarEntry entry = new JarEntry(resource);
+                    entry.setTime(0);
+                    jar.putNextEntry(entry);
+                    in.transferTo(jar);
+                    jar.closeEntry();
+                }
+            }
+        }
+
+        cachedJar = buffer.toByteArray();
+        return cachedJar;
+    }
+
+    /**
+     * Remote file name of the agent jar, unique per agent build
+     * @return jar file name
+     * @throws IOException if the jar cannot be built
+     */
+    public static String jarName() throws IOException {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(build());
+            return "logparser-agent-" + HexFormat.of().formatHex(digest, 0, 6) + ".jar";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.logparser.agent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed binary protocol spoken between the client and the remote {@link LogAgent}.
+ * <p>
+ * Every message is a frame: a 4-byte big-endian length followed by the payload.
+ * A request payload starts with an opcode byte, a response payload with a status byte;
+ * strings are encoded as a 4-byte length followed by UTF-8 bytes.
+ * <p>
+ * This class is shipped inside the agent jar and must only depend on {@code java.base}.
+ */
+public final class AgentProtocol {
+
+    private AgentProtocol() {}
+
+    public static final int VERSION = 1;
+
+    /** HELLO: () -> int version */
+    public static final byte OP_HELLO = 1;
+    /** PAGE: (file, long endOffset, int maxLines) -> long startOffset, int n, n x (long offset, string line) */
+    public static final byte OP_PAGE = 2;
+    /** GREP: (file, string term, int maxMatches) -> int n, n x (long offset, string line) */
+    public static final byte OP_GREP = 4;
+    /** LEVEL_COUNT: (file) -> int n, n x (string level, long count) */
+    public static final byte OP_LEVEL_COUNT = 5;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    public static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    public static void writeFrame(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
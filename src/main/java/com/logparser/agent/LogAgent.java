@@ -0,0 +1,276 @@
+package com.logparser.agent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Remote indexing agent.
+ * <p>
+ * Launched over an SSH exec channel with the log directory as its only argument, it
+ * answers {@link AgentProtocol} queries on stdin/stdout until stdin is closed. For each
+ * file it keeps level counters that are extended incrementally as the file grows and
+ * rebuilt when it shrinks.
+ * <p>
+ * The agent is packaged into its own jar by {@link AgentJarBuilder} and must only
+ * depend on {@code java.base}.
+ */
+public final class LogAgent {
+
+    private static final int READ_BLOCK_BYTES = 64 * 1024;
+
+    private final File root;
+    private final Map<String, FileIndex> indexes = new HashMap<>();
+
+    LogAgent(File root) {
+        this.root = root;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File root = new File(args.length > 0 ? args[0] : ".").getCanonicalFile();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        new LogAgent(root).serve(in, out);
+    }
+
+    void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            byte[] request;
+            try {
+                request = AgentProtocol.readFrame(in);
+            } catch (EOFException e) {
+                return;
+            }
+
+            byte[] response;
+            try {
+                response = handle(request);
+            } catch (Exception e) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                DataOutputStream error = new DataOutputStream(buffer);
+                error.writeByte(AgentProtocol.STATUS_ERROR);
+                AgentProtocol.writeString(error, String.valueOf(e.getMessage()));
+                response = buffer.toByteArray();
+            }
+            AgentProtocol.writeFrame(out, response);
+        }
+    }
+
+    private byte[] handle(byte[] request) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(AgentProtocol.STATUS_OK);
+
+        byte op = in.readByte();
+        switch (op) {
+            case AgentProtocol.OP_HELLO -> out.writeInt(AgentProtocol.VERSION);
+            case AgentProtocol.OP_PAGE -> {
+                File file = resolve(AgentProtocol.readString(in));
+                page(file, in.readLong(), in.readInt(), out);
+            }
+            case AgentProtocol.OP_GREP -> {
+                File file = resolve(AgentProtocol.readString(in));
+                grep(file, AgentProtocol.readString(in), in.readInt(), out);
+            }
+            case AgentProtocol.OP_LEVEL_COUNT -> {
+                Map<String, Long> counts = index(resolve(AgentProtocol.readString(in))).levelCounts;
+                out.writeInt(counts.size());
+                for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                    AgentProtocol.writeString(out, entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            default -> throw new IOException("Unknown opcode: " + op);
+        }
+        return buffer.toByteArray();
+    }
+
+    private File resolve(String fileName) throws IOException {
+        File file = new File(root, fileName).getCanonicalFile();
+        String prefix = root.getPath().endsWith(File.separator) ? root.getPath() : root.getPath() + File.separator;
+        if (!file.getPath().startsWith(prefix) || !file.isFile()) {
+            throw new IOException("Not a log file: " + fileName);
+        }
+        return file;
+    }
+
+    private FileIndex index(File file) throws IOException {
+        FileIndex index = indexes.computeIfAbsent(file.getPath(), k -> new FileIndex(file));
+        index.refresh();
+        return index;
+    }
+
+    /**
+     * Read up to maxLines lines backwards from endOffset (negative means end of file)
+     */
+    private void page(File file, long endOffset, int maxLines, DataOutputStream out) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        long startOffset = 0;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long end = endOffset < 0 ? raf.length() : Math.min(endOffset, raf.length());
+            byte[] carry = new byte[0];
+            long carryStart = end;
+
+            while (lines.size() < maxLines && carryStart > 0) {
+                long blockStart = Math.max(0, carryStart - READ_BLOCK_BYTES);
+                byte[] data = new byte[(int) (carryStart - blockStart) + carry.length];
+                raf.seek(blockStart);
+                raf.readFully(data, 0, (int) (carryStart - blockStart));
+                System.arraycopy(carry, 0, data, (int) (carryStart - blockStart), carry.length);
+
+                int lineEnd = data.length;
+                for (int i = data.length - 1; i >= 0 && lines.size() < maxLines; i--) {
+                    if (data[i] != '\n') continue;
+                    if (i + 1 < lineEnd) {
+                        offsets.add(blockStart + i + 1);
+                        lines.add(new String(data, i + 1, lineEnd - i - 1, StandardCharsets.UTF_8));
+                        startOffset = blockStart + i + 1;
+                    }
+                    lineEnd = i;
+                }
+
+                if (lines.size() < maxLines && blockStart == 0 && lineEnd > 0) {
+                    offsets.add(0L);
+                    lines.add(new String(data, 0, lineEnd, StandardCharsets.UTF_8));
+                    startOffset = 0;
+                    lineEnd = 0;
+                }
+                if (lines.size() >= maxLines) break;
+
+                carry = new byte[lineEnd];
+                System.arraycopy(data, 0, carry, 0, lineEnd);
+                carryStart = blockStart;
+                startOffset = blockStart;
+            }
+        }
+
+        out.writeLong(startOffset);
+        out.writeInt(lines.size());
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            out.writeLong(offsets.get(i));
+            AgentProtocol.writeString(out, lines.get(i));
+        }
+    }
+
+    private void grep(File file, String term, int maxMatches, DataOutputStream out) throws IOException {
+        String needle = term.toLowerCase();
+        List<Long> offsets = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+
+        forEachLine(file, 0, Long.MAX_VALUE, (offset, line) -> {
+            if (line.toLowerCase().contains(needle)) {
+                offsets.add(offset);
+                lines.add(line);
+            }
+            return lines.size() < maxMatches;
+        });
+
+        out.writeInt(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            out.writeLong(offsets.get(i));
+            AgentProtocol.writeString(out, lines.get(i));
+        }
+    }
+
+    interface LineVisitor {
+        boolean visit(long offset, String line) throws IOException;
+    }
+
+    /**
+     * Visit the complete lines starting in [from, to)
+     * @return offset right after the last complete line read
+     */
+    static long forEachLine(File file, long from, long to, LineVisitor visitor) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            in.skipNBytes(from);
+            byte[] block = new byte[READ_BLOCK_BYTES];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long lineStart = from;
+            long blockOffset = from;
+            int read;
+
+            while (lineStart < to && (read = in.read(block)) != -1) {
+                int start = 0;
+                for (int i = 0; i < read && lineStart < to; i++) {
+                    if (block[i] != '\n') continue;
+
+                    line.write(block, start, i - start);
+                    String text = line.toString(StandardCharsets.UTF_8);
+                    line.reset();
+                    long offset = lineStart;
+                    lineStart = blockOffset + i + 1;
+                    start = i + 1;
+                    if (!text.isBlank() && !visitor.visit(offset, text)) {
+                        return lineStart;
+                    }
+                }
+                line.write(block, start, read - start);
+                blockOffset += read;
+            }
+            return lineStart;
+        }
+    }
+
+    /**
+     * Level counters of one file
+     */
+    static final class FileIndex {
+        private final File file;
+        private long indexedLength;
+        private final Map<String, Long> levelCounts = new TreeMap<>();
+
+        FileIndex(File file) {
+            this.file = file;
+        }
+
+        void refresh() throws IOException {
+            long length = file.length();
+            if (length < indexedLength) {
+                indexedLength = 0;
+                levelCounts.clear();
+            }
+            if (length == indexedLength) return;
+
+            indexedLength = forEachLine(file, indexedLength, Long.MAX_VALUE, (offset, line) -> {
+                String level = level(line);
+                if (level != null) levelCounts.merge(level, 1L, Long::sum);
+                return true;
+            });
+        }
+
+        /**
+         * Level of an OX ("] channel.LEVEL: ") or Symfony ("] type.LEVEL: ") line
+         */
+        private static String level(String line) {
+            int bracket = line.indexOf("] ");
+            if (bracket < 0) return null;
+            int end = bracket + 2;
+            while (end < line.length() && !Character.isWhitespace(line.charAt(end))) end++;
+            if (end - 1 <= bracket + 2) return null;
+
+            String token = line.substring(bracket + 2, end - 1);
+            char terminator = line.charAt(end - 1);
+            if (terminator != ':' && terminator != '-') return null;
+            String level = token.substring(token.lastIndexOf('.') + 1);
+            return level.isEmpty() ? null : level.toUpperCase();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.logparser.cache;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.JsonTape;
+import com.logparser.model.LogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Memory-bounded LRU cache of parsed log entries.
+ * <p>
+ * Entries are cached per byte range of a file, e.g. the last page that was loaded and the
+ * increments read while the file grew. The size of every range is estimated when it is
+ * put; the least recently used ranges are evicted once the total exceeds the budget.
+ */
+public class EntryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EntryCache.class);
+
+    // Rough 64-bit JVM footprints: LogEntry with its highlighted property, a String with its array
+    private static final long ENTRY_OVERHEAD_BYTES = 120;
+    private static final long STRING_OVERHEAD_BYTES = 56;
+    private static final long RANGE_OVERHEAD_BYTES = 128;
+
+    /**
+     * Byte range [from, to) of a file
+     */
+    public static final class Key {
+        private final String source;
+        private final String path;
+        private final long from;
+        private final long to;
+
+        /**
+         * @param source profile id for remote files, {@link #LOCAL} for local ones
+         * @param path   full path of the file
+         * @param from   offset of the first byte of the range
+         * @param to     offset right after the last byte of the range
+         */
+        public Key(String source, String path, long from, long to) {
+            this.source = source;
+            this.path = path;
+            this.from = from;
+            this.to = to;
+        }
+
+        private boolean isSameFile(String source, String path) {
+            return this.source.equals(source) && this.path.equals(path);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return from == key.from && to == key.to && source.equals(key.source) && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, path, from, to);
+        }
+
+        @Override
+        public String toString() {
+            return source + ":" + path + "[" + from + ", " + to + ")";
+        }
+    }
+
+    /**
+     * Snapshot of the cache counters
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int ranges;
+        private final long bytes;
+        private final long capacityBytes;
+
+        Stats(long hits, long misses, long evictions, int ranges, long bytes, long capacityBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.ranges = ranges;
+            this.bytes = bytes;
+            this.capacityBytes = capacityBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getRanges() {
+            return ranges;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getCapacityBytes() {
+            return capacityBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ranges, %d/%d KB, %d hits, %d misses, %d evictions",
+                    ranges, bytes / 1024, capacityBytes / 1024, hits, misses, evictions);
+        }
+    }
+
+    private static final class Range {
+        private final List<LogEntry> entries;
+        private final long bytes;
+
+        Range(List<LogEntry> entries, long bytes) {
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+    }
+
+    /** Source of local files */
+    public static final String LOCAL = "local";
+
+    private final long capacityBytes;
+    private final LinkedHashMap<Key, Range> ranges = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacityBytes memory budget of the cached entries
+     */
+    public EntryCache(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * Cache the entries of a byte range, evicting the least recently used ranges as needed.
+     * A range larger than the whole budget is not cached.
+     *
+     * @param key     file and byte range
+     * @param entries parsed entries of the range, oldest first
+     */
+    public synchronized void put(Key key, List<LogEntry> entries) {
+        long size = estimateSize(entries);
+        if (size > capacityBytes) {
+            remove(key);
+            return;
+        }
+
+        Range previous = ranges.put(key, new Range(List.copyOf(entries), size));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += size;
+        evict();
+    }
+
+    /**
+     * @param key file and byte range
+     * @return cached entries of exactly this range, or null
+     */
+    public synchronized List<LogEntry> get(Key key) {
+        Range range = ranges.get(key);
+        if (range == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return range.entries;
+    }
+
+    /**
+     * Get the newest cached entries of a file: the range reaching furthest into the file,
+     * preceded by the ranges that end exactly where it starts.
+     *
+     * @param source profile id or {@link #LOCAL}
+     * @param path   full path of the file
+     * @return entries oldest first, or null if nothing of the file is cached
+     */
+    public synchronized List<LogEntry> getTail(String source, String path) {
+        List<Key> keys = new ArrayList<>();
+        Key newest = null;
+        for (Key key : ranges.keySet()) {
+            if (!key.isSameFile(source, path)) continue;
+            keys.add(key);
+            if (newest == null || key.to > newest.to) newest = key;
+        }
+        if (newest == null) {
+            misses++;
+            return null;
+        }
+
+        List<Key> chain = new ArrayList<>();
+        for (Key current = newest; current != null; ) {
+            chain.add(current);
+            Key link = current;
+            current = keys.stream().filter(k -> k.to == link.from && k.from < link.from).findFirst().orElse(null);
+        }
+
+        List<LogEntry> entries = new ArrayList<>();
+        Collections.reverse(chain);
+        for (Key key : chain) {
+            entries.addAll(ranges.get(key).entries);
+        }
+        hits++;
+        return entries;
+    }
+
+    /**
+     * Drop every cached range of a file, e.g. after it was rotated or removed
+     * @param source profile id or {@link #LOCAL}
+     * @param path   full path of the file
+     */
+    public synchronized void invalidate(String source, String path) {
+        removeIf(key -> key.isSameFile(source, path));
+    }
+
+    /**
+     * Drop every cached range of a source
+     * @param source profile id or {@link #LOCAL}
+     */
+    public synchronized void invalidate(String source) {
+        removeIf(key -> key.source.equals(source));
+    }
+
+    /**
+     * Drop every cached range of the files right inside a directory, e.g. of one of the
+     * profiles sharing a host
+     * @param source    profile id or {@link #LOCAL}
+     * @param directory full path of the directory
+     */
+    public synchronized void invalidateDirectory(String source, String directory) {
+        String prefix = directory.endsWith("/") ? directory : directory + "/";
+        removeIf(key -> key.source.equals(source) && key.path.startsWith(prefix)
+                && key.path.indexOf('/', prefix.length()) < 0);
+    }
+
+    public synchronized void clear() {
+        ranges.clear();
+        bytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, ranges.size(), bytes, capacityBytes);
+    }
+
+    private void remove(Key key) {
+        Range range = ranges.remove(key);
+        if (range != null) {
+            bytes -= range.bytes;
+        }
+    }
+
+    private void removeIf(Predicate<Key> filter) {
+        Iterator<Map.Entry<Key, Range>> it = ranges.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Range> entry = it.next();
+            if (filter.test(entry.getKey())) {
+                bytes -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    private void evict() {
+        int evicted = 0;
+        Iterator<Map.Entry<Key, Range>> it = ranges.entrySet().iterator();
+        while (bytes > capacityBytes && it.hasNext()) {
+            bytes -= it.next().getValue().bytes;
+            it.remove();
+            evicted++;
+        }
+        if (evicted > 0) {
+            evictions += evicted;
+            log.debug("Evicted {} cached ranges: {}", evicted, getStats());
+        }
+    }
+
+    /**
+     * Estimate the heap taken by a list of entries. Compact strings take one byte per
+     * Latin-1 character; two are counted to stay on the safe side. What an entry computes on
+     * first use, its message preview and parsed payloads, is counted as if already computed.
+     *
+     * @param entries parsed entries
+     * @return estimated size in bytes
+     */
+    public static long estimateSize(List<LogEntry> entries) {
+        long size = RANGE_OVERHEAD_BYTES + 8L * entries.size();
+        for (LogEntry entry : entries) {
+            size += ENTRY_OVERHEAD_BYTES
+                    + sizeOf(entry.getDate()) + sizeOf(entry.getFile()) + sizeOf(entry.getLevel())
+                    + sizeOf(entry.getMessage()) + sizeOf(entry.getContext()) + sizeOf(entry.getExtra())
+                    + sizeOf(entry.getRawLine()) + sizeOf(entry.getGroupKey())
+                    + previewSize(entry.getMessage())
+                    + JsonTape.estimateSize(entry.getContext()) + JsonTape.estimateSize(entry.getExtra());
+        }
+        return size;
+    }
+
+    private static long previewSize(String message) {
+        // A short message is its own preview
+        if (message == null || message.length() <= AppConfig.MESSAGE_PREVIEW_LENGTH) return 0;
+        return STRING_OVERHEAD_BYTES + 2L * (AppConfig.MESSAGE_PREVIEW_LENGTH + 3);
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + 2L * value.length();
+    }
+}
@@ -0,0 +1,43 @@
+package com.logparser.cache;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.Profile;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * File that entries are parsed from, named like the keys of the {@link EntryCache}, with the
+ * correlation fields its profile indexes, see {@link FieldIndex}.
+ *
+ * @param source     profile id for remote files, {@link EntryCache#LOCAL} for local ones
+ * @param path       full path of the file
+ * @param baseOffset offset in the file of the first byte read, e.g. of the local mirror of a remote file
+ * @param fields     JSON keys of context and extra to index
+ */
+public record EntrySource(String source, String path, long baseOffset, List<String> fields) {
+
+    public EntrySource {
+        fields = List.copyOf(fields);
+    }
+
+    /**
+     * @param profile profile owning the file, or null for a local file outside any profile
+     * @param path    full remote path, or the path of a local file
+     */
+    public static EntrySource of(Profile profile, String path) {
+        if (profile != null && profile.isRemote()) {
+            return new EntrySource(profile.getId(), path, 0, profile.getExtractedFields());
+        }
+        List<String> fields = profile != null ? profile.getExtractedFields() : AppConfig.DEFAULT_EXTRACTED_FIELDS;
+        return new EntrySource(EntryCache.LOCAL, new File(path).getAbsolutePath(), 0, fields);
+    }
+
+    /**
+     * @param baseOffset offset in this file of the first byte of the file actually read
+     * @return the same source read from a copy of its part starting at the given offset
+     */
+    public EntrySource withBaseOffset(long baseOffset) {
+        return new EntrySource(source, path, baseOffset, fields);
+    }
+}
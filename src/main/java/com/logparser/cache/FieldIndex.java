@@ -0,0 +1,184 @@
+package com.logparser.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hash index of correlation fields, e.g. request_id and trace_id, over every parsed entry.
+ * <p>
+ * The fields configured for the profile of a file are pulled out of context and extra with
+ * a streaming parser as its entries are parsed, so following a request is a lookup instead
+ * of a scan of every loaded file. A value points at the line it was found in by its file and
+ * offset; parsing the line again replaces the entry instead of adding one. Entries are held
+ * weakly, so the index does not keep any in memory: a lookup returns those still shown or
+ * cached and counts the lines whose entries were dropped since. The
+ * index keeps the last {@link AppConfig#FIELD_INDEX_MAX_ENTRIES} indexed values and drops the
+ * oldest ones beyond that.
+ * <p>
+ * Entries may be parsed on virtual threads, so the index is guarded by a lock rather than a
+ * monitor.
+ */
+public final class FieldIndex {
+
+    private static final FieldIndex instance = new FieldIndex(AppConfig.FIELD_INDEX_MAX_ENTRIES);
+    private static final JsonFactory factory = new JsonFactory();
+
+    private record Line(String source, String path, long offset) {
+    }
+
+    private record Indexed(String key, Line line) {
+    }
+
+    /**
+     * Result of a lookup
+     * @param entries     entries still in memory, oldest indexed first
+     * @param unavailable number of indexed lines whose entries were dropped from memory
+     */
+    public record Found(List<LogEntry> entries, int unavailable) {
+    }
+
+    private final int maxEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    // "field=value" -> lines having it, oldest first, with the entry last parsed from each
+    private final Map<String, LinkedHashMap<Line, WeakReference<LogEntry>>> entries = new HashMap<>();
+    // Values in the order they were indexed, to drop the oldest
+    private final ArrayDeque<Indexed> order = new ArrayDeque<>();
+
+    FieldIndex(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public static FieldIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Index a parsed entry by the correlation fields of its source
+     * @param entry  parsed entry, its offset set
+     * @param source file the entry was parsed from
+     */
+    public void add(LogEntry entry, EntrySource source) {
+        Map<String, String> values = extract(entry, source.fields());
+        if (values.isEmpty()) return;
+
+        Line line = new Line(source.source(), source.path(), entry.getOffset());
+        lock.lock();
+        try {
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                String key = value.getKey() + "=" + value.getValue();
+                WeakReference<LogEntry> previous = entries.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                        .put(line, new WeakReference<>(entry));
+                if (previous == null) order.addLast(new Indexed(key, line));
+            }
+            while (order.size() > maxEntries) {
+                Indexed oldest = order.pollFirst();
+                Map<Line, WeakReference<LogEntry>> indexed = entries.get(oldest.key);
+                indexed.remove(oldest.line);
+                if (indexed.isEmpty()) entries.remove(oldest.key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find the entries having a field value
+     * @param field correlation field
+     * @param value value of the field
+     * @return the entries still in memory and the number of those that are not
+     */
+    public Found find(String field, String value) {
+        List<LogEntry> found = new ArrayList<>();
+        int unavailable = 0;
+        lock.lock();
+        try {
+            Map<Line, WeakReference<LogEntry>> indexed = entries.get(field + "=" + value);
+            if (indexed == null) return new Found(found, 0);
+            for (WeakReference<LogEntry> reference : indexed.values()) {
+                LogEntry entry = reference.get();
+                if (entry != null) {
+                    found.add(entry);
+                } else {
+                    unavailable++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Found(found, unavailable);
+    }
+
+    /**
+     * Values of the correlation fields of an entry
+     * @param wanted fields to extract, e.g. of the profile of the entry
+     * @return field to value, in the order of the wanted fields; empty if none is set
+     */
+    public Map<String, String> extract(LogEntry entry, List<String> wanted) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (wanted.isEmpty() || !entry.isValid()) return values;
+        extract(entry.getContext(), wanted, values);
+        if (values.size() < wanted.size()) {
+            extract(entry.getExtra(), wanted, values);
+        }
+        Map<String, String> ordered = new LinkedHashMap<>();
+        for (String field : wanted) {
+            if (values.containsKey(field)) ordered.put(field, values.get(field));
+        }
+        return ordered;
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            order.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stream through a payload and keep the first scalar value of each wanted key
+     */
+    private static void extract(String json, List<String> wanted, Map<String, String> values) {
+        if (json == null || json.isEmpty() || !mayContain(json, wanted)) return;
+        try (JsonParser parser = factory.createParser(json)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.FIELD_NAME) continue;
+                String name = parser.currentName();
+                token = parser.nextToken();
+                if (token != null && token.isScalarValue() && token != JsonToken.VALUE_NULL
+                        && wanted.contains(name) && !values.containsKey(name)) {
+                    values.put(name, parser.getText());
+                    if (values.size() == wanted.size()) return;
+                }
+            }
+        } catch (IOException e) {
+            // Not JSON, or JSON followed by text: keep what was found
+        }
+    }
+
+    /**
+     * Cheap check before parsing: most payloads have none of the keys
+     */
+    private static boolean mayContain(String json, List<String> wanted) {
+        for (String field : wanted) {
+            if (json.contains(field)) return true;
+        }
+        return false;
+    }
+}
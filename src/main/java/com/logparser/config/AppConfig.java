@@ -1,5 +1,7 @@
 package com.logparser.config;
 
+import java.util.List;
+
 /**
  * Application-wide configuration constants
  */
@@ -8,6 +10,7 @@ public final class AppConfig {
     private AppConfig() {}
 
     public static final int DEFAULT_PAGE_SIZE = 500;
+    public static final int PAGE_BATCH_SIZE = 50;
     public static final int MAX_CACHE_SIZE_MB = 100;
     public static final int DEFAULT_BUFFER_SIZE = 8192;
     public static final int MAX_INCREMENTAL_READ_MB = 10;
@@ -17,12 +20,67 @@ public final class AppConfig {
     public static final int SFTP_SERVER_ALIVE_INTERVAL = 15000;
     public static final int SFTP_SERVER_ALIVE_COUNT_MAX = 3;
     public static final int REMOTE_READ_MAX_BYTES = 1024 * 1024;
+    public static final int REMOTE_PAGE_FIRST_READ_BYTES = 64 * 1024;
+
+    public static final String MIRROR_DIR_NAME = "mirror";
+    public static final int MIRROR_TAIL_CHECK_BYTES = 4096;
+
+    public static final int FOLLOW_BATCH_SIZE = 200;
+    public static final long FOLLOW_RECONNECT_MIN_MS = 1000;
+    public static final long FOLLOW_RECONNECT_MAX_MS = 30000;
+    public static final int FOLLOW_MAX_ENTRIES = 50000;
+    public static final int FOLLOW_MAX_AGE_MINUTES = 60;
+
+    public static final int REMOTE_GREP_MAX_MATCHES = 5000;
+    public static final int REMOTE_GREP_BATCH_SIZE = 100;
+    public static final int REMOTE_GREP_CONTEXT_BYTES = 4096;
+
+    public static final long AGENT_START_TIMEOUT_MS = 15000;
+    public static final int AGENT_MAX_HEAP_MB = 64;
+    public static final long AGENT_RETRY_MIN_MS = 30000;
+    public static final long AGENT_RETRY_MAX_MS = 600000;
+
+    public static final int FINGERPRINT_BLOCK_BYTES = 4096;
+
+    public static final long LOCAL_FILE_SCAN_MIN_MS = 500;
+    public static final long LOCAL_FILE_SCAN_MAX_MS = 30000;
+    public static final long REMOTE_FILE_SCAN_MIN_MS = 2000;
+    public static final long REMOTE_LISTING_MAX_MS = 60000;
+    public static final int REMOTE_STAT_MAX_FILES = 20;
+    public static final int BACKGROUND_SCAN_FACTOR = 6;
+    public static final int REMOTE_IO_THREADS_PER_HOST = 2;
+
+    public static final int TAIL_READ_CHUNK_BYTES = 64 * 1024;
+    public static final int TAIL_BATCH_LINES = 500;
+    public static final int TAIL_QUEUE_CAPACITY = 4;
+    public static final int TAIL_MAX_PENDING_FX_BATCHES = 2;
 
     public static final int TABLE_SAMPLE_SIZE = 20;
+    public static final int TABLE_RESIDENT_PAGES = 20;
+    public static final int TABLE_EVICTED_PAGES = 200;
+    public static final int SCROLL_LOAD_AHEAD_ROWS = 100;
     public static final int MESSAGE_PREVIEW_LENGTH = 100;
     public static final int HIGHLIGHT_DURATION_SECONDS = 15;
+    public static final int HIGHLIGHT_TICK_MS = 250;
+    public static final int DETAIL_CACHE_SIZE = 16;
+    public static final int DETAIL_EAGER_HIGHLIGHT_CHARS = 256 * 1024;
+    public static final int DETAIL_TREE_AUTO_CHARS = 1024 * 1024;
+    public static final int TREE_STRING_PREVIEW_CHARS = 200;
+    public static final int TREE_CHILDREN_CHUNK = 1000;
+
+    public static final List<String> DEFAULT_EXTRACTED_FIELDS = List.of("request_id", "trace_id");
+    public static final int FIELD_INDEX_MAX_ENTRIES = 100000;
+
+    public static final int TEMPLATE_MAX_TOKENS = 64;
+    public static final int TEMPLATE_TREE_DEPTH = 2;
+    public static final int TEMPLATE_MAX_CHILDREN = 100;
+    public static final double TEMPLATE_SIMILARITY = 0.4;
+    public static final int TEMPLATE_MAX_PER_LEAF = 50;
+    public static final int TEMPLATE_MAX_TEMPLATES = 10000;
 
-    public static final int EXECUTOR_THREAD_POOL_SIZE = 4;
+    public static final int LOAD_SLOTS = 4;
+    public static final int CPU_POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+    public static final int REMOTE_POOL_SIZE = 16;
 
     public static final String PROFILE_FILE_NAME = "profiles.json.enc";
     public static final String CRYPTO_KEY_FILE_NAME = ".logparser.key";
@@ -0,0 +1,63 @@
+package com.logparser.loader;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects the entries of a page read backwards, newest first, and hands them over
+ * in batches of {@link AppConfig#PAGE_BATCH_SIZE} while the rest is still being read
+ */
+public final class PageBatcher {
+
+    private final Consumer<List<LogEntry>> onBatch;
+    private final List<LogEntry> page = new ArrayList<>();
+    private int flushed;
+
+    /**
+     * @param onBatch receives every batch in file order, the newest batch first
+     */
+    public PageBatcher(Consumer<List<LogEntry>> onBatch) {
+        this.onBatch = onBatch;
+    }
+
+    /**
+     * @param entry next entry, older than the ones added before
+     */
+    public void add(LogEntry entry) {
+        page.add(entry);
+        if (page.size() - flushed >= AppConfig.PAGE_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Hand over the entries collected since the last batch, e.g. before a slow read
+     */
+    public void flush() {
+        if (flushed == page.size()) return;
+        List<LogEntry> batch = new ArrayList<>(page.subList(flushed, page.size()));
+        Collections.reverse(batch);
+        flushed = page.size();
+        onBatch.accept(batch);
+    }
+
+    public int size() {
+        return page.size();
+    }
+
+    /**
+     * Hand over the last batch
+     * @return all entries of the page in file order
+     */
+    public List<LogEntry> finish() {
+        flush();
+        List<LogEntry> entries = new ArrayList<>(page);
+        Collections.reverse(entries);
+        return entries;
+    }
+}
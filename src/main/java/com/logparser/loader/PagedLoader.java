@@ -4,7 +4,6 @@ import com.logparser.model.LogEntry;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -17,7 +16,19 @@ public interface PagedLoader extends AutoCloseable {
      * @return List of log entries
      * @throws IOException if loading fails
      */
-    List<LogEntry> loadNextPage() throws IOException;
+    default List<LogEntry> loadNextPage() throws IOException {
+        return loadNextPage(batch -> {});
+    }
+
+    /**
+     * Load the next page, handing its entries over in batches as soon as they are parsed.
+     * The page is read from its end, so the newest batch comes first; the entries inside
+     * a batch are in file order. The callback runs on the loading thread.
+     * @param onBatch receives batches of about {@link com.logparser.config.AppConfig#PAGE_BATCH_SIZE} entries
+     * @return all entries of the page in file order
+     * @throws IOException if loading fails
+     */
+    List<LogEntry> loadNextPage(Consumer<List<LogEntry>> onBatch) throws IOException;
 
     /**
      * Check if there are more pages to load
@@ -26,29 +37,24 @@ public interface PagedLoader extends AutoCloseable {
     boolean hasMore();
 
     /**
-     * Reset the loader to initial state
-     * @throws IOException if reset fails
+     * Offset where the pages loaded so far start; the next page ends there
+     * @return byte offset in the source file
      */
-    void reset() throws IOException;
+    long getPosition();
 
     /**
-     * Load next page asynchronously
-     * @param onSuccess callback for successful load
-     * @param onError callback for errors
+     * Move the loader so that the next page ends at the given offset, e.g. to read again a
+     * page that was dropped from memory
+     * @param position offset returned by {@link #getPosition()} before or after an earlier page
+     * @throws IOException if the part of the source holding the position cannot be opened
      */
-    default void loadNextPageAsync(Consumer<List<LogEntry>> onSuccess, Consumer<Throwable> onError) {
-        CompletableFuture.supplyAsync(() -> {
-            try {
-                return loadNextPage();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }).thenAccept(onSuccess)
-          .exceptionally(throwable -> {
-              onError.accept(throwable);
-              return null;
-          });
-    }
+    void setPosition(long position) throws IOException;
+
+    /**
+     * Reset the loader to initial state
+     * @throws IOException if reset fails
+     */
+    void reset() throws IOException;
 
     /**
      * Close the loader and release resources
@@ -1,23 +1,73 @@
 package com.logparser.manager;
 
+import com.logparser.config.AppConfig;
+import com.logparser.model.JsonTape;
 import com.logparser.model.LogEntry;
+import com.logparser.service.ExecutorServiceManager;
 import com.logparser.utils.JsonHighlighter;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.geometry.Insets;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.LineNumberFactory;
+import org.fxmisc.richtext.model.StyleSpans;
 
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Manages the detail panel: displays selected log entry details with JSON and search highlighting.
+ * <p>
+ * JSON formatting and highlighting run on the CPU pool; the last few results are kept, so
+ * moving back and forth through large entries does not format them again. The tree view
+ * shows context and extra as {@link JsonTreeItem}s instead, read only as far as expanded.
  */
-public class DetailManager {
+public final class DetailManager {
+
+    /**
+     * Formatted text of an entry with its JSON highlighting; without highlighting if the
+     * text is too large, it is then highlighted as it scrolls into view
+     */
+    private record Details(String text, StyleSpans<Collection<String>> highlighting) {
+    }
 
     private final MainLayoutManager layoutManager;
     private final VBox detailPane;
     private final CodeArea codeArea;
+    private final TreeView<String> treeView;
+    private final ToggleButton treeToggle;
+    // Keyed by entry identity, accessed on the FX thread only
+    private final Map<LogEntry, Details> detailsCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LogEntry, Details> eldest) {
+            return size() > AppConfig.DETAIL_CACHE_SIZE;
+        }
+    };
+    private Future<?> pendingDetails;
+    private LogEntry shownEntry;
+    private String shownSearch;
+    // The tree was switched on for a large entry rather than by the user
+    private boolean treeAutoSelected;
+    // Text of a huge payload highlighted paragraph by paragraph as it scrolls into view
+    private String lazyText;
+    private final BitSet highlightedParagraphs = new BitSet();
+    private boolean highlightQueued;
 
     public DetailManager(MainLayoutManager layoutManager) {
         this.layoutManager = layoutManager;
@@ -26,54 +76,268 @@ public class DetailManager {
         codeArea.setEditable(false);
         codeArea.setWrapText(true);
         codeArea.setParagraphGraphicFactory(LineNumberFactory.get(codeArea));
+        codeArea.getVisibleParagraphs().addListener((InvalidationListener) obs -> queueVisibleHighlighting());
+
+        treeView = new TreeView<>();
+        treeView.setShowRoot(false);
+        treeView.setVisible(false);
+        MenuItem copyValueItem = new MenuItem("Copy value");
+        copyValueItem.setOnAction(e -> copySelectedValue());
+        treeView.setContextMenu(new ContextMenu(copyValueItem));
 
-        detailPane = new VBox(codeArea);
+        treeToggle = new ToggleButton("Tree");
+        treeToggle.selectedProperty().addListener((obs, oldValue, selected) -> {
+            treeAutoSelected = false;
+            showLogDetails(shownEntry, shownSearch);
+        });
+
+        StackPane content = new StackPane(codeArea, treeView);
+        detailPane = new VBox(5, new HBox(treeToggle), content);
         detailPane.setPadding(new Insets(10));
-        VBox.setVgrow(codeArea, Priority.ALWAYS);
+        VBox.setVgrow(content, Priority.ALWAYS);
     }
 
     public VBox getDetailPane() {
         return detailPane;
     }
 
-    public void showLogDetails(LogEntry log, String search) {
-        if (log == null) {
+    public void showLogDetails(LogEntry entry, String search) {
+        cancelPendingDetails();
+        boolean newEntry = entry != shownEntry;
+        shownEntry = entry;
+        shownSearch = search;
+        showTree(false);
+
+        if (entry == null) {
             codeArea.clear();
             codeArea.replaceText("Select a log entry to view details.");
             return;
         }
 
-        if (!log.isValid()) {
+        if (!entry.isValid()) {
             codeArea.clear();
-            codeArea.replaceText("Unparsed log entry:\n\n" + log.getRawLine());
+            codeArea.replaceText("Unparsed log entry:\n\n" + entry.getRawLine());
             return;
         }
 
-        StringBuilder content = new StringBuilder();
-        content.append("Date: ").append(log.getDate()).append("\n");
-        content.append("File: ").append(log.getFile()).append("\n");
-        content.append("Level: ").append(log.getLevel()).append("\n");
-        content.append("Message: ").append(log.getMessage()).append("\n\n");
-
-        if (log.getContext() != null && !log.getContext().isBlank()) {
-            content.append("Context:\n").append(formatJson(log.getContext())).append("\n\n");
+        // Large payloads open as a tree, which reads only what is expanded; the next small
+        // entry goes back to text unless the user chose the tree. The toggle listener shows the entry
+        if (newEntry) {
+            boolean large = payloadLength(entry) > AppConfig.DETAIL_TREE_AUTO_CHARS;
+            if (large && !treeToggle.isSelected()) {
+                treeToggle.setSelected(true);
+                treeAutoSelected = true;
+                return;
+            }
+            if (!large && treeAutoSelected) {
+                treeToggle.setSelected(false);
+                return;
+            }
         }
-        if (log.getExtra() != null && !log.getExtra().isBlank()) {
-            content.append("Extra:\n").append(formatJson(log.getExtra()));
+        if (treeToggle.isSelected()) {
+            showTree(true);
+            // Parsing a large payload takes a moment, the tree itself is built as it is expanded
+            pendingDetails = ExecutorServiceManager.getInstance().submitCpu("parse-details", () -> {
+                entry.getContextJson();
+                entry.getExtraJson();
+                Platform.runLater(() -> {
+                    if (shownEntry != entry || !treeView.isVisible()) return;
+                    pendingDetails = null;
+                    treeView.setRoot(detailsTree(entry));
+                });
+                return null;
+            });
+            return;
         }
 
+        Details cached = detailsCache.get(entry);
+        if (cached != null) {
+            showDetails(cached, search);
+            return;
+        }
+
+        // The header is cheap: show it right away, the formatted JSON follows
         codeArea.clear();
-        codeArea.replaceText(content.toString());
+        codeArea.replaceText(header(entry).toString());
+
+        pendingDetails = ExecutorServiceManager.getInstance().submitCpu("format-details", () -> {
+            Details details = formatDetails(entry);
+            if (details == null) return null;
+            Platform.runLater(() -> {
+                detailsCache.put(entry, details);
+                if (shownEntry != entry) return;
+                pendingDetails = null;
+                showDetails(details, search);
+            });
+            return null;
+        });
+    }
 
-        applyJsonHighlighting();
+    /**
+     * Show raw text (e.g. lines surrounding a remote search match) with the search term highlighted
+     * @param title heading shown above the text
+     * @param text raw text to display
+     * @param search search term to highlight, may be null
+     */
+    public void showRawText(String title, String text, String search) {
+        cancelPendingDetails();
+        shownEntry = null;
+        showTree(false);
+        codeArea.clear();
+        codeArea.replaceText(title + "\n\n" + text);
         if (search != null && !search.isBlank()) {
             highlightSearchTerm(search);
         }
     }
 
-    private void applyJsonHighlighting() {
-        String text = codeArea.getText();
-        codeArea.setStyleSpans(0, JsonHighlighter.computeHighlighting(text));
+    private void showTree(boolean show) {
+        treeView.setVisible(show);
+        codeArea.setVisible(!show);
+        if (!show) treeView.setRoot(null);
+    }
+
+    private static TreeItem<String> detailsTree(LogEntry entry) {
+        TreeItem<String> root = new TreeItem<>();
+        root.getChildren().addAll(List.of(
+                new TreeItem<>("Date: " + entry.getDate()),
+                new TreeItem<>("File: " + entry.getFile()),
+                new TreeItem<>("Level: " + entry.getLevel()),
+                new TreeItem<>("Message: " + entry.getMessagePreview())));
+        addPayload(root, "Context", entry.getContext(), entry.getContextJson());
+        addPayload(root, "Extra", entry.getExtra(), entry.getExtraJson());
+        root.setExpanded(true);
+        return root;
+    }
+
+    private static void addPayload(TreeItem<String> root, String label, String payload, JsonTape json) {
+        if (payload == null || payload.isBlank()) return;
+        TreeItem<String> item = JsonTreeItem.of(label, json);
+        if (item == null) {
+            // Not JSON: show the start of the text like a long string value
+            item = new TreeItem<>(label + ": " + (payload.length() > AppConfig.TREE_STRING_PREVIEW_CHARS
+                    ? payload.substring(0, AppConfig.TREE_STRING_PREVIEW_CHARS) + "…" : payload));
+        }
+        item.setExpanded(true);
+        root.getChildren().add(item);
+    }
+
+    private static int payloadLength(LogEntry entry) {
+        return (entry.getContext() != null ? entry.getContext().length() : 0)
+                + (entry.getExtra() != null ? entry.getExtra().length() : 0);
+    }
+
+    /**
+     * Copy the full value of the selected tree node, also of strings the tree shows cut short
+     */
+    private void copySelectedValue() {
+        TreeItem<String> item = treeView.getSelectionModel().getSelectedItem();
+        if (item == null) return;
+        String value = item.getValue();
+        if (item instanceof JsonTreeItem jsonItem) {
+            value = jsonItem.readValue();
+        }
+        ClipboardContent clipboard = new ClipboardContent();
+        clipboard.putString(value);
+        Clipboard.getSystemClipboard().setContent(clipboard);
+    }
+
+    private void cancelPendingDetails() {
+        if (pendingDetails != null) {
+            pendingDetails.cancel(true);
+            pendingDetails = null;
+        }
+        lazyText = null;
+    }
+
+    private void showDetails(Details details, String search) {
+        codeArea.clear();
+        codeArea.replaceText(details.text());
+        if (details.highlighting() != null) {
+            codeArea.setStyleSpans(0, details.highlighting());
+        } else {
+            lazyText = details.text();
+            highlightedParagraphs.clear();
+            queueVisibleHighlighting();
+        }
+        if (search != null && !search.isBlank()) {
+            highlightSearchTerm(search);
+        }
+    }
+
+    /**
+     * Highlight the visible paragraphs of a huge payload after the current pulse, so that
+     * styling them does not change the paragraphs while they are being laid out
+     */
+    private void queueVisibleHighlighting() {
+        if (lazyText == null || highlightQueued) return;
+        highlightQueued = true;
+        Platform.runLater(() -> {
+            highlightQueued = false;
+            if (lazyText == null || codeArea.getVisibleParagraphs().isEmpty()) return;
+
+            // One screen above and below, so that short scrolls show highlighted text
+            int first = codeArea.firstVisibleParToAllParIndex();
+            int last = codeArea.lastVisibleParToAllParIndex();
+            int margin = last - first + 1;
+            int from = Math.max(0, first - margin);
+            int to = Math.min(codeArea.getParagraphs().size() - 1, last + margin);
+
+            int par = highlightedParagraphs.nextClearBit(from);
+            while (par <= to) {
+                int nextHighlighted = highlightedParagraphs.nextSetBit(par);
+                int runEnd = nextHighlighted < 0 ? to + 1 : Math.min(nextHighlighted, to + 1);
+                int start = codeArea.getAbsolutePosition(par, 0);
+                int end = codeArea.getAbsolutePosition(runEnd - 1, codeArea.getParagraph(runEnd - 1).length());
+                codeArea.setStyleSpans(start, JsonHighlighter.computeHighlighting(lazyText, start, end));
+                highlightedParagraphs.set(par, runEnd);
+                par = highlightedParagraphs.nextClearBit(runEnd);
+            }
+        });
+    }
+
+    /**
+     * Format an entry off the FX thread
+     * @return the details, or null if the request was cancelled meanwhile
+     */
+    private static Details formatDetails(LogEntry entry) {
+        StringBuilder content = header(entry);
+        if (entry.getContext() != null && !entry.getContext().isBlank()) {
+            content.append("Context:\n");
+            appendPayload(content, entry.getContext(), entry.getContextJson());
+            content.append("\n\n");
+        }
+        if (Thread.currentThread().isInterrupted()) return null;
+        if (entry.getExtra() != null && !entry.getExtra().isBlank()) {
+            content.append("Extra:\n");
+            appendPayload(content, entry.getExtra(), entry.getExtraJson());
+        }
+        if (Thread.currentThread().isInterrupted()) return null;
+
+        String text = content.toString();
+        if (text.length() > AppConfig.DETAIL_EAGER_HIGHLIGHT_CHARS) {
+            return new Details(text, null);
+        }
+        return new Details(text, JsonHighlighter.computeHighlighting(text));
+    }
+
+    /**
+     * Pretty-print a payload from its parsed form, or append it as it is if it is not JSON
+     */
+    private static void appendPayload(StringBuilder content, String payload, JsonTape json) {
+        if (json != null) {
+            json.prettyPrint(content);
+        } else {
+            content.append(payload);
+        }
+    }
+
+    private static StringBuilder header(LogEntry entry) {
+        StringBuilder content = new StringBuilder();
+        content.append("Date: ").append(entry.getDate()).append("\n");
+        content.append("File: ").append(entry.getFile()).append("\n");
+        content.append("Level: ").append(entry.getLevel()).append("\n");
+        content.append("Message: ").append(entry.getMessage()).append("\n\n");
+        return content;
     }
 
     private void highlightSearchTerm(String searchTerm) {
@@ -85,6 +349,7 @@ public class DetailManager {
             return;
         }
 
+        lazyText = null;
         codeArea.setStyle(0, text.length(), Collections.emptyList());
 
         int index = 0;
@@ -97,17 +362,4 @@ public class DetailManager {
         codeArea.moveTo(firstIndex);
         codeArea.requestFollowCaret();
     }
-
-    private String formatJson(String rawJson) {
-        if (rawJson == null || rawJson.isBlank()) {
-            return "";
-        }
-        try {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            Object json = mapper.readValue(rawJson, Object.class);
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(json);
-        } catch (Exception e) {
-            return rawJson;
-        }
-    }
 }
\ No newline at end of file
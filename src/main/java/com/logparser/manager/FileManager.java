@@ -66,12 +66,16 @@ public class FileManager {
                 Profile profile = profileManager.getSelectedProfile();
                 if (profile != null) {
                     String fileName = newFile.replaceAll(" \\(.+?\\)$", "");
+                    layoutManager.getWatcherService().getTailPipeline().cancel();
                     updatedFiles.put(fileName, false);
+                    layoutManager.getWatcherService().markRead(profile, fileName);
                     refreshFileListView();
 
                     if (profile.isRemote()) {
                         String remoteFilePath = profile.getPath() + "/" + fileName;
                         layoutManager.getLogManager().loadLogsFromFile(remoteFilePath, true);
+                        RemoteLogWatcher watcher = layoutManager.getRemoteLogWatcher();
+                        if (watcher != null) watcher.followSelectedFile();
                     } else {
                         layoutManager.getLogManager().loadLogsFromFile(new File(profile.getPath(), fileName).getPath(), false);
                     }
@@ -87,9 +91,11 @@ public class FileManager {
             layoutManager.getDetailManager().showLogDetails(null, null);
             fileListView.getSelectionModel().clearSelection();
 
-            if (profile != null && profile.isRemote()) {
-                layoutManager.getRemoteLogWatcher().clearCacheForProfile(profile.getId());
-                layoutManager.getRemoteLogWatcher().forceRefresh();
+            RemoteLogWatcher watcher = layoutManager.getRemoteLogWatcher();
+            if (profile != null && profile.isRemote() && watcher != null) {
+                watcher.clearCache();
+                layoutManager.setFirstScanProfile(true);
+                watcher.forceRefresh();
                 loadFileList(profile, true); // Force reload without cache
             } else {
                 loadFileList(profile);
@@ -99,11 +105,16 @@ public class FileManager {
         Button clearLogsButton = new Button("🗑 Clear Logs");
         clearLogsButton.setOnAction(e -> clearLogs(profileManager.getSelectedProfile()));
 
+        CheckBox followCheck = new CheckBox("Follow");
+        followCheck.setTooltip(new Tooltip("Stream new lines of the selected remote file as they are written"));
+        followCheck.selectedProperty().addListener((obs, oldVal, follow) ->
+                layoutManager.getWatcherService().setFollowMode(follow));
+
         fileListPane.getChildren().addAll(
                 new Label("Format:"), formatSelector,
                 fileFilterField,
                 fileStatsLabel, fileListView,
-                new HBox(10, reloadButton, clearLogsButton)
+                new HBox(10, reloadButton, clearLogsButton, followCheck)
         );
 
         layoutManager.getLogManager().registerParser("OX", new OxLogParser());
@@ -170,7 +181,7 @@ public class FileManager {
         } else {
             RemoteLogWatcher watcher = layoutManager.getRemoteLogWatcher();
             if (watcher != null && !forceReload) {
-                List<String> cachedFiles = watcher.getFileListFromCache(profile);
+                List<String> cachedFiles = watcher.getFileListFromCache();
                 if (!cachedFiles.isEmpty()) {
                     for (String cachedFile : cachedFiles) {
                         String fileName = cachedFile.replaceAll(" \\(.+?\\)$", "");
@@ -210,6 +221,16 @@ public class FileManager {
         refreshFileListView();
     }
 
+    /**
+     * Replace the unread marks, e.g. with the ones collected while a profile was in the background
+     * @param fileNames names of the files with unseen changes
+     */
+    public void setUpdatedFiles(Collection<String> fileNames) {
+        updatedFiles.clear();
+        fileNames.forEach(name -> updatedFiles.put(name, true));
+        refreshFileListView();
+    }
+
     private void refreshFileListView() {
         fileListView.setCellFactory(lv -> new ListCell<>() {
             @Override
@@ -235,7 +256,7 @@ public class FileManager {
 
     public void addNewFile(String fileName, long sizeBytes, boolean markAsUpdated) {
         String displayName = fileName + " (" + humanReadableByteCountBin(sizeBytes) + ")";
-        if (fileNames.stream().noneMatch(name -> name.startsWith(fileName))) {
+        if (fileNames.stream().noneMatch(name -> baseName(name).equals(fileName))) {
             fileNames.add(displayName);
             fileSizes.put(fileName, sizeBytes);
             FXCollections.sort(fileNames, String.CASE_INSENSITIVE_ORDER);
@@ -277,12 +298,19 @@ public class FileManager {
     }
 
     public void removeFile(String fileName) {
-        fileNames.removeIf(name -> name.startsWith(fileName));
+        fileNames.removeIf(name -> baseName(name).equals(fileName));
         updatedFiles.remove(fileName);
         fileSizes.remove(fileName);
         refreshFileListView();
     }
 
+    /**
+     * Strip the size suffix from a file list entry, e.g. "app.log (1.2 MB)" -> "app.log"
+     */
+    private static String baseName(String displayName) {
+        return displayName.replaceAll(" \\(.+?\\)$", "");
+    }
+
     public void showCachedFileList(List<String> cachedFiles) {
         fileNames.setAll(cachedFiles);
     }
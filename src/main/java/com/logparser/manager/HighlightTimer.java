@@ -0,0 +1,81 @@
+package com.logparser.manager;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.util.Duration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Clears the highlight of new entries after {@link AppConfig#HIGHLIGHT_DURATION_SECONDS}.
+ * <p>
+ * Entries expire in the order they were highlighted, so a single timer ticking every
+ * {@link AppConfig#HIGHLIGHT_TICK_MS} walks a queue of time slots instead of running an
+ * animation per entry. Entries highlighted within the same tick share a slot.
+ */
+class HighlightTimer {
+
+    private static final class Slot {
+        private final long expiresAt;
+        private final List<LogEntry> entries = new ArrayList<>();
+
+        Slot(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Deque<Slot> slots = new ArrayDeque<>();
+    private final Timeline timeline;
+
+    HighlightTimer() {
+        timeline = new Timeline(new KeyFrame(Duration.millis(AppConfig.HIGHLIGHT_TICK_MS), e -> expire()));
+        timeline.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /**
+     * Highlight entries until their slot expires. Must run on the FX thread.
+     * @param entries new entries
+     */
+    void highlight(List<LogEntry> entries) {
+        if (entries.isEmpty()) return;
+
+        long expiresAt = System.currentTimeMillis() + AppConfig.HIGHLIGHT_DURATION_SECONDS * 1000L;
+        Slot slot = slots.peekLast();
+        if (slot == null || expiresAt - slot.expiresAt >= AppConfig.HIGHLIGHT_TICK_MS) {
+            slot = new Slot(expiresAt);
+            slots.addLast(slot);
+        }
+        for (LogEntry entry : entries) {
+            entry.setHighlighted(true);
+            slot.entries.add(entry);
+        }
+
+        if (timeline.getStatus() != Animation.Status.RUNNING) {
+            timeline.play();
+        }
+    }
+
+    /**
+     * Forget the pending entries, e.g. when the table is cleared
+     */
+    void clear() {
+        slots.clear();
+        timeline.stop();
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        while (!slots.isEmpty() && slots.peekFirst().expiresAt <= now) {
+            slots.removeFirst().entries.forEach(entry -> entry.setHighlighted(false));
+        }
+        if (slots.isEmpty()) {
+            timeline.stop();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.logparser.manager;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import javafx.application.Platform;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+
+/**
+ * Watches the viewport of the log table and asks for more rows once it gets within
+ * {@link AppConfig#SCROLL_LOAD_AHEAD_ROWS} of the first or the last row.
+ * <p>
+ * The check runs after every layout of the table, so rows that were filtered away or
+ * a page that turned out too short to fill the viewport trigger the next load as well.
+ */
+class InfiniteScroll {
+
+    private final TableView<LogEntry> table;
+    private final Runnable onNearTop;
+    private final Runnable onNearBottom;
+    private VirtualFlow<?> flow;
+    private boolean checkQueued;
+
+    /**
+     * @param table        table to watch
+     * @param onNearTop    called on the FX thread when the first rows come into view
+     * @param onNearBottom called on the FX thread when the last rows come into view
+     */
+    InfiniteScroll(TableView<LogEntry> table, Runnable onNearTop, Runnable onNearBottom) {
+        this.table = table;
+        this.onNearTop = onNearTop;
+        this.onNearBottom = onNearBottom;
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> attach());
+    }
+
+    private void attach() {
+        if (!(table.lookup(".virtual-flow") instanceof VirtualFlow<?> virtualFlow)) return;
+        flow = virtualFlow;
+        flow.positionProperty().addListener((obs, oldValue, newValue) -> check());
+        flow.needsLayoutProperty().addListener((obs, oldValue, needsLayout) -> {
+            if (!needsLayout) check();
+        });
+    }
+
+    /**
+     * Check the viewport; the callbacks run after the current pulse so that they may change the rows
+     */
+    void check() {
+        if (flow == null || checkQueued) return;
+        checkQueued = true;
+        Platform.runLater(() -> {
+            checkQueued = false;
+            int count = table.getItems().size();
+            IndexedCell<?> first = flow.getFirstVisibleCell();
+            IndexedCell<?> last = flow.getLastVisibleCell();
+            if (last == null || last.getIndex() >= count - AppConfig.SCROLL_LOAD_AHEAD_ROWS) {
+                onNearBottom.run();
+            }
+            if (first != null && first.getIndex() < AppConfig.SCROLL_LOAD_AHEAD_ROWS) {
+                onNearTop.run();
+            }
+        });
+    }
+
+    /**
+     * Change the rows without moving what the user looks at: the row at the top of the
+     * viewport stays there even if rows are inserted or removed above it
+     * @param change change of the table items
+     */
+    void keepViewport(Runnable change) {
+        IndexedCell<?> first = flow != null ? flow.getFirstVisibleCell() : null;
+        int firstIndex = first != null ? first.getIndex() : -1;
+        LogEntry anchor = firstIndex >= 0 && firstIndex < table.getItems().size() ? table.getItems().get(firstIndex) : null;
+
+        change.run();
+
+        if (anchor != null) {
+            int index = table.getItems().indexOf(anchor);
+            if (index >= 0 && index != firstIndex) {
+                table.scrollTo(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.logparser.manager;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.JsonTape;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Node of a JSON payload in the detail tree, read lazily from the entry's {@link JsonTape}.
+ * <p>
+ * A node keeps only its position on the tape: the children of an object or array are
+ * created when the node is first expanded, and long strings are cut to a preview. Large
+ * containers are split into chunks of {@link AppConfig#TREE_CHILDREN_CHUNK} children.
+ */
+class JsonTreeItem extends TreeItem<String> {
+
+    private final JsonTape json;
+    private final int node;
+    // Children skipped by a chunk node, -1 for the node of the container itself
+    private final int skip;
+    private boolean loaded;
+
+    private JsonTreeItem(String label, JsonTape json, int node, int skip) {
+        super(label);
+        this.json = json;
+        this.node = node;
+        this.skip = skip;
+    }
+
+    /**
+     * Root node of a payload
+     * @param label name of the payload, e.g. "Context"
+     * @param json  parsed payload, may be null
+     * @return the node, or null if the payload is not JSON
+     */
+    static JsonTreeItem of(String label, JsonTape json) {
+        return json != null ? new JsonTreeItem(label, json, json.root(), -1) : null;
+    }
+
+    /**
+     * Read the whole value of the node: the full text of a string, the raw JSON of a container
+     */
+    String readValue() {
+        return json.text(node);
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return !json.isContainer(node);
+    }
+
+    @Override
+    public ObservableList<TreeItem<String>> getChildren() {
+        if (!loaded) {
+            loaded = true;
+            super.getChildren().setAll(readChildren());
+        }
+        return super.getChildren();
+    }
+
+    private List<TreeItem<String>> readChildren() {
+        List<TreeItem<String>> children = new ArrayList<>();
+        if (!json.isContainer(node)) return children;
+
+        boolean object = json.type(node) == JsonTape.Type.OBJECT;
+        int from = Math.max(0, skip);
+        int index = 0;
+        for (int child = json.firstChild(node); child >= 0; child = json.nextSibling(node, child), index++) {
+            if (index < from) continue;
+            if (index - from == AppConfig.TREE_CHILDREN_CHUNK) {
+                children.add(new JsonTreeItem("[" + index + "…]", json, node, index));
+                break;
+            }
+            String name = object ? json.fieldName(child) : "[" + index + "]";
+            children.add(new JsonTreeItem(name + ": " + valueLabel(child), json, child, -1));
+        }
+        return children;
+    }
+
+    private String valueLabel(int child) {
+        return switch (json.type(child)) {
+            case OBJECT -> "{…}";
+            case ARRAY -> "[…]";
+            case STRING -> {
+                int length = json.rawLength(child) - 2;
+                if (length > AppConfig.TREE_STRING_PREVIEW_CHARS) {
+                    yield "\"" + json.textPreview(child, AppConfig.TREE_STRING_PREVIEW_CHARS) + "…\" (" + length + " chars)";
+                }
+                yield "\"" + json.text(child) + "\"";
+            }
+            default -> json.text(child);
+        };
+    }
+}
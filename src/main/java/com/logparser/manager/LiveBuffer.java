@@ -0,0 +1,101 @@
+package com.logparser.manager;
+
+import com.logparser.model.LogEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer of the entries that arrived while watching or following the displayed file.
+ * <p>
+ * Keeps at most a fixed number of entries, and none older than a maximum age; entries
+ * and their arrival times live in two parallel arrays so that a multi-day session costs
+ * the same memory as a short one. Evicted entries are handed back to the caller, which
+ * can keep them reachable through their offsets in the file.
+ */
+class LiveBuffer {
+
+    private final LogEntry[] entries;
+    private final long[] arrivedAt;
+    private final long maxAgeMillis;
+    private final int evictionChunk;
+    private int head;
+    private int size;
+
+    /**
+     * @param capacity      maximum number of entries
+     * @param maxAgeMillis  maximum age of an entry, or 0 for no limit
+     * @param evictionChunk number of entries evicted at once when the buffer is full, so
+     *                      that evicted entries come out in page-sized runs
+     */
+    LiveBuffer(int capacity, long maxAgeMillis, int evictionChunk) {
+        this.entries = new LogEntry[capacity];
+        this.arrivedAt = new long[capacity];
+        this.maxAgeMillis = maxAgeMillis;
+        this.evictionChunk = Math.max(1, Math.min(evictionChunk, capacity));
+    }
+
+    /**
+     * Append a batch, evicting expired entries and making room as needed
+     * @param batch new entries in file order
+     * @param now   current time in milliseconds
+     * @return evicted entries, oldest first
+     */
+    List<LogEntry> add(List<LogEntry> batch, long now) {
+        List<LogEntry> evicted = new ArrayList<>();
+        // The newest entry is kept: its offset is where the evicted entries end
+        while (maxAgeMillis > 0 && size > 1 && now - arrivedAt[head] > maxAgeMillis) {
+            evicted.add(removeOldest());
+        }
+        for (LogEntry entry : batch) {
+            if (size == entries.length) {
+                for (int i = 0; i < evictionChunk; i++) {
+                    evicted.add(removeOldest());
+                }
+            }
+            int tail = (head + size) % entries.length;
+            entries[tail] = entry;
+            arrivedAt[tail] = now;
+            size++;
+        }
+        return evicted;
+    }
+
+    /**
+     * @return offset in the file of the oldest entry, or -1 if empty or unknown
+     */
+    long getOldestOffset() {
+        return size == 0 ? -1 : entries[head].getOffset();
+    }
+
+    /**
+     * @return the entries, newest first
+     */
+    List<LogEntry> newestFirst() {
+        List<LogEntry> list = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            list.add(entries[(head + i) % entries.length]);
+        }
+        return list;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            entries[(head + i) % entries.length] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    private LogEntry removeOldest() {
+        LogEntry entry = entries[head];
+        entries[head] = null;
+        head = (head + 1) % entries.length;
+        size--;
+        return entry;
+    }
+}
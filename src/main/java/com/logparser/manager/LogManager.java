@@ -1,34 +1,38 @@
 package com.logparser.manager;
 
+import com.logparser.cache.EntryCache;
+import com.logparser.cache.EntrySource;
+import com.logparser.cache.FieldIndex;
 import com.logparser.config.AppConfig;
 import com.logparser.loader.PagedLoader;
 import com.logparser.model.LogEntry;
 import com.logparser.model.Profile;
 import com.logparser.parser.LogParser;
-import com.logparser.remote.RemoteFileAccessor;
-import com.logparser.remote.RemotePagedLogLoader;
+import com.logparser.remote.AgentPagedLogLoader;
+import com.logparser.remote.MirroredPagedLogLoader;
+import com.logparser.remote.RemoteAgentClient;
+import com.logparser.remote.RemoteGrepSearch;
+import com.logparser.remote.RemoteLogMirror;
 import com.logparser.remote.SftpRemoteFileAccessor;
 import com.logparser.service.ExecutorServiceManager;
+import com.logparser.service.LoadScheduler;
 import com.logparser.utils.DateParser;
+import com.logparser.utils.FieldQuery;
 import com.logparser.utils.LogEntryFactory;
 import com.logparser.utils.PagedLogLoader;
+import com.logparser.utils.TextMeasurer;
 import com.logparser.watcher.RemoteLogWatcher;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.beans.binding.Bindings;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
-import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
-import javafx.scene.text.Text;
-import javafx.util.Duration;
+import javafx.scene.text.Font;
 import javafx.application.Platform;
 
 import org.slf4j.Logger;
@@ -38,13 +42,17 @@ import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class LogManager {
 
     private static final Logger log = LoggerFactory.getLogger(LogManager.class);
+    // A lock per loader rather than its monitor: a page read may run on a virtual thread and must not pin its carrier
+    private static final Map<PagedLoader, ReentrantLock> loaderLocks = Collections.synchronizedMap(new WeakHashMap<>());
     private final MainLayoutManager layoutManager;
     private final VBox logPane;
     private final TableView<LogEntry> tableView;
@@ -53,14 +61,38 @@ public class LogManager {
     private final DatePicker dateFromPicker;
     private final DatePicker dateToPicker;
     private final Button clearFiltersButton;
+    private final Button serverSearchButton;
+    private final Label serverSearchStatus = new Label();
+    private final ToggleButton groupToggle;
+    private final TemplateGroupView groupView;
+    private boolean groupRefreshQueued;
     private final ObservableList<LogEntry> masterData = FXCollections.observableArrayList();
     private final Map<String, LogParser> parsers = new HashMap<>();
     private LogParser activeParser;
     private FilteredList<LogEntry> filteredData;
-    private final Button loadMoreButton = new Button("Load more");
+    private TableColumn<LogEntry, LogEntry> dateColumn;
+    private TableColumn<LogEntry, LogEntry> messageColumn;
+    private final Map<TableColumn<LogEntry, ?>, Function<LogEntry, String>> columnText = new HashMap<>();
+    private InfiniteScroll infiniteScroll;
     private PagedLoader pagedLoader;
-    private final Map<String, Boolean> groupColorMap = new HashMap<>();
+    private CompletableFuture<?> activeLoad;
+    private CompletableFuture<?> levelCountsLoad;
+    private CompletableFuture<PageWindow> prefetchedPage;
+    private boolean pageLoadFailed;
+    // Pages of the file in the table, newest first, and the newer pages dropped from it, nearest first
+    private final Deque<PageWindow> residentWindows = new ArrayDeque<>();
+    private final Deque<PageWindow> evictedWindows = new ArrayDeque<>();
+    // End of the newer pages dropped beyond AppConfig.TABLE_EVICTED_PAGES, or -1
+    private long newerDroppedTo = -1;
+    // Entries that arrived since the file was loaded; shown above the pages unless newer pages are evicted
+    private final LiveBuffer liveEntries = new LiveBuffer(AppConfig.FOLLOW_MAX_ENTRIES,
+            AppConfig.FOLLOW_MAX_AGE_MINUTES * 60_000L, AppConfig.DEFAULT_PAGE_SIZE);
+    private String windowSource;
+    private String windowPath;
+    private final HighlightTimer highlightTimer = new HighlightTimer();
     private final AtomicInteger loadToken = new AtomicInteger(0);
+    private volatile String currentRemotePath;
+    private RemoteGrepSearch activeSearch;
 
     public LogManager(MainLayoutManager layoutManager) {
         this.layoutManager = layoutManager;
@@ -76,6 +108,7 @@ public class LogManager {
 
         searchField = new TextField();
         searchField.setPromptText("Search...");
+        searchField.setTooltip(new Tooltip("Text to find, or a field: ctx.user_id=42, extra.request.method=POST"));
         searchField.setPrefWidth(200);
 
         dateFromPicker = new DatePicker();
@@ -87,16 +120,37 @@ public class LogManager {
         clearFiltersButton = new Button("Clear");
         clearFiltersButton.setOnAction(e -> clearFilters());
 
+        serverSearchButton = new Button("Search on server");
+        serverSearchButton.setTooltip(new Tooltip("Run the search with grep on the remote host"));
+        serverSearchButton.setDisable(true);
+        serverSearchButton.setOnAction(e -> searchOnServer());
+
+        groupToggle = new ToggleButton("Group");
+        groupToggle.setTooltip(new Tooltip("One row per message template, expand a row for its entries"));
+
         filters.getChildren().addAll(
                 new Label("Level:"), levelFilter,
-                new Label("Search:"), searchField,
+                new Label("Search:"), searchField, serverSearchButton, serverSearchStatus,
                 new Label("Date:"), dateFromPicker,
                 new Label("to"), dateToPicker,
-                clearFiltersButton
+                clearFiltersButton, groupToggle
         );
 
         tableView = createTableView();
 
+        groupView = new TemplateGroupView(entry -> layoutManager.getDetailManager()
+                .showLogDetails(entry, searchField.getText().trim()));
+        groupToggle.selectedProperty().addListener((obs, oldVal, grouped) -> {
+            logPane.getChildren().set(1, grouped ? groupView.getNode() : tableView);
+            if (grouped) groupView.setEntries(filteredData);
+        });
+        // Rows come and go with pages and filters; the groups follow once per pulse
+        filteredData.addListener((ListChangeListener<LogEntry>) change -> {
+            if (!groupToggle.isSelected()) return;
+            groupView.entriesChanged(change);
+            queueGroupRefresh();
+        });
+
         logPane.getChildren().addAll(filters, tableView);
     }
 
@@ -125,101 +179,29 @@ public class LogManager {
         table.setPlaceholder(new Label("No logs to display."));
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_ALL_COLUMNS);
 
-        TableColumn<LogEntry, String> dateColumn = new TableColumn<>("Date/Time");
-        dateColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getDate()));
+        dateColumn = LogTableCells.column("Date/Time", LogEntry::getDate, LogEntry::getDate);
         dateColumn.setPrefWidth(200);
-        dateColumn.setCellFactory(column -> new TableCell<>() {
-            private final Button loadMoreRowButton = new Button("Load more");
-
-            {
-                loadMoreRowButton.setOnAction(e -> loadNextPage());
-                loadMoreRowButton.setMaxWidth(Double.MAX_VALUE);
-                loadMoreRowButton.setStyle("-fx-background-color: #e0e0e0; -fx-border-radius: 6px; -fx-background-radius: 6px;");
-            }
 
-            @Override
-            protected void updateItem(String date, boolean empty) {
-                super.updateItem(date, empty);
-                if (empty) {
-                    setText(null);
-                    setGraphic(null);
-                    return;
-                }
-
-                LogEntry entry = getTableView().getItems().get(getIndex());
-                if ("LM".equals(entry.getLevel())) {
-                    setText(null);
-                    setGraphic(loadMoreRowButton);
-                    setStyle("-fx-alignment: CENTER;");
-                } else {
-                    setGraphic(null);
-                    setText(date);
-                    setStyle("-fx-alignment: CENTER-LEFT;");
-                }
-            }
-        });
-
-        TableColumn<LogEntry, String> fileColumn = new TableColumn<>("File");
-        fileColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getFile()));
+        TableColumn<LogEntry, LogEntry> fileColumn = LogTableCells.column("File", LogEntry::getFile, LogEntry::getFile);
         fileColumn.setPrefWidth(Region.USE_COMPUTED_SIZE);
 
-        TableColumn<LogEntry, String> levelColumn = new TableColumn<>("Level");
-        levelColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getLevel()));
+        TableColumn<LogEntry, LogEntry> levelColumn = LogTableCells.levelColumn("Level");
         levelColumn.setPrefWidth(100);
-        levelColumn.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(String level, boolean empty) {
-                super.updateItem(level, empty);
-                if (empty || level == null) {
-                    setText(null);
-                    setStyle("");
-                    return;
-                }
-
-                LogEntry logEntry = getTableView().getItems().get(getIndex());
-                setText(level);
-                setGraphic(null);
-
-                if (logEntry == null || !logEntry.isValid()) {
-                    setStyle("-fx-text-fill: gray; -fx-font-style: italic;");
-                } else if ("CRITICAL".equalsIgnoreCase(level)) {
-                    setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                } else if ("ERROR".equalsIgnoreCase(level) || "ALERT".equalsIgnoreCase(level)) {
-                    setStyle("-fx-text-fill: red;");
-                } else if ("WARNING".equalsIgnoreCase(level)) {
-                    setStyle("-fx-text-fill: orange;");
-                } else if ("INFO".equalsIgnoreCase(level)) {
-                    setStyle("-fx-text-fill: #1e88e5;");
-                } else if ("NOTICE".equalsIgnoreCase(level)) {
-                    setStyle("-fx-text-fill: #dd00ff;");
-                } else {
-                    setStyle("-fx-text-fill: black;");
-                }
-            }
-        });
 
-        TableColumn<LogEntry, String> messageColumn = new TableColumn<>("Message");
-        messageColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getMessage()));
+        messageColumn = LogTableCells.column("Message", LogEntry::getMessagePreview, LogEntry::getMessage);
         messageColumn.setPrefWidth(Region.USE_COMPUTED_SIZE);
-        messageColumn.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(String message, boolean empty) {
-                super.updateItem(message, empty);
-                if (empty || message == null) {
-                    setText(null);
-                } else {
-                    setText(message.length() > AppConfig.MESSAGE_PREVIEW_LENGTH ?
-                           message.substring(0, AppConfig.MESSAGE_PREVIEW_LENGTH) + "..." : message);
-                }
-            }
-        });
+
+        columnText.put(dateColumn, LogEntry::getDate);
+        columnText.put(fileColumn, LogEntry::getFile);
+        columnText.put(levelColumn, LogEntry::getLevel);
+        columnText.put(messageColumn, LogEntry::getMessagePreview);
 
         table.getColumns().addAll(dateColumn, fileColumn, levelColumn, messageColumn);
 
         filteredData = new FilteredList<>(masterData, p -> true);
         SortedList<LogEntry> sortedData = new SortedList<>(filteredData);
-        sortedData.comparatorProperty().bind(table.comparatorProperty());
         table.setItems(sortedData);
+        table.setSortPolicy(LogTableCells::sortByColumns);
 
         searchField.textProperty().addListener((obs, oldVal, newVal) -> updateFilters());
         levelFilter.valueProperty().addListener((obs, oldVal, newVal) -> updateFilters());
@@ -232,26 +214,33 @@ public class LogManager {
             }
         });
 
+        MenuItem showContextItem = new MenuItem("Show surrounding lines");
+        showContextItem.setOnAction(e -> showRemoteContext(table.getSelectionModel().getSelectedItem()));
+        ContextMenu contextMenu = new ContextMenu(showContextItem);
+        contextMenu.setOnShowing(e -> {
+            LogEntry selected = table.getSelectionModel().getSelectedItem();
+            showContextItem.setDisable(currentRemotePath == null || selected == null || selected.getOffset() < 0);
+
+            // One item per correlation field of the selected entry
+            contextMenu.getItems().retainAll(showContextItem);
+            if (selected == null) return;
+            Profile profile = layoutManager.getProfileManager().getSelectedProfile();
+            List<String> fields = profile != null ? profile.getExtractedFields() : AppConfig.DEFAULT_EXTRACTED_FIELDS;
+            FieldIndex.getInstance().extract(selected, fields).forEach((field, value) -> {
+                MenuItem relatedItem = new MenuItem("Show all entries with " + field + " = " + value);
+                relatedItem.setOnAction(event -> RelatedEntriesWindow.show(field + " = " + value,
+                        FieldIndex.getInstance().find(field, value), layoutManager.getDetailManager()));
+                contextMenu.getItems().add(relatedItem);
+            });
+        });
+        table.setContextMenu(contextMenu);
+
         dateColumn.setSortType(TableColumn.SortType.DESCENDING);
         table.getSortOrder().add(dateColumn);
 
-        table.setRowFactory(tv -> new TableRow<>() {
-            @Override
-            protected void updateItem(LogEntry item, boolean empty) {
-                super.updateItem(item, empty);
-
-                styleProperty().unbind();
+        infiniteScroll = new InfiniteScroll(table, this::scrolledToTop, this::scrolledToBottom);
 
-                if (empty || item == null) {
-                    setStyle("");
-                } else {
-                    styleProperty().bind(Bindings
-                            .when(item.highlightedProperty())
-                            .then("-fx-background-color: rgba(255,255,0,0.4);")
-                            .otherwise(""));
-                }
-            }
-        });
+        table.setRowFactory(tv -> LogTableCells.highlightRow());
 
         return table;
     }
@@ -259,92 +248,259 @@ public class LogManager {
     public void loadLogsFromFile(String path, boolean isRemote) {
         if (path == null) return;
 
+        layoutManager.clearLogDisplay();
         int token = loadToken.incrementAndGet();
+        cancelServerSearch();
+        cancelLoads();
+        currentRemotePath = isRemote ? path : null;
+        serverSearchButton.setDisable(!isRemote);
 
         layoutManager.showLoading(true);
-        layoutManager.clearLogDisplay();
 
         String fileName = new File(path).getName();
         Profile profile = layoutManager.getProfileManager().getSelectedProfile();
 
-        if (isRemote && profile != null) {
-            RemoteLogWatcher watcher = layoutManager.getRemoteLogWatcher();
-            Map<String, List<LogEntry>> fileMap = watcher.getProfileFileCache().get(profile.getId());
-
-            if (fileMap != null && fileMap.containsKey(fileName)) {
-                List<LogEntry> cached = fileMap.get(fileName);
-                Platform.runLater(() -> {
-                    masterData.setAll(cached);
-                    autoResizeColumns();
-                    layoutManager.showLoading(false);
-                });
-            }
+        // Show what is cached of the file right away, the fresh first page replaces it
+        EntryCache cache = layoutManager.getWatcherService().getEntryCache();
+        String cacheSource = !isRemote ? EntryCache.LOCAL : profile != null ? profile.getId() : null;
+        String cachePath = isRemote ? path : new File(path).getAbsolutePath();
+        List<LogEntry> cached = cacheSource != null ? cache.getTail(cacheSource, cachePath) : null;
+        windowSource = cacheSource;
+        windowPath = cachePath;
+        if (cached != null) {
+            Platform.runLater(() -> {
+                if (token != loadToken.get()) return;
+                masterData.setAll(cached);
+                autoResizeColumns();
+                layoutManager.showLoading(false);
+            });
         }
+        PageStream stream = new PageStream(token, true);
         class LoadResult {
             final PagedLoader loader;
-            final List<LogEntry> entries;
-            LoadResult(PagedLoader loader, List<LogEntry> entries) {
+            final PageWindow window;
+            final RemoteAgentClient agent;
+            LoadResult(PagedLoader loader, PageWindow window, RemoteAgentClient agent) {
                 this.loader = loader;
-                this.entries = entries;
+                this.window = window;
+                this.agent = agent;
             }
         }
 
-        Task<LoadResult> task = new Task<>() {
-            @Override
-            protected LoadResult call() throws Exception {
+        CompletableFuture<LoadResult> load = ExecutorServiceManager.getInstance().getLoadScheduler()
+                .submit(LoadScheduler.Lane.INTERACTIVE, "load-file", () -> {
                 PagedLoader loader;
-                List<LogEntry> entries;
+                PageWindow window;
+                RemoteAgentClient agent = null;
+                long length = -1;
 
                 if (isRemote) {
-                    SftpRemoteFileAccessor accessor = layoutManager.getRemoteLogWatcher().getSftpAccessor();
-                    accessor.setRemotePath(path);
-                    loader = new RemotePagedLogLoader(accessor, activeParser);
-                    entries = loader.loadNextPage();
                     RemoteLogWatcher watcher = layoutManager.getRemoteLogWatcher();
-                    watcher.getProfileFileCache()
-                            .computeIfAbsent(profile.getId(), k -> new ConcurrentHashMap<>())
-                            .put(fileName, entries);
+                    SftpRemoteFileAccessor accessor = watcher.getSftpAccessor();
+                    accessor.connect();
+                    agent = profile.isUseAgent() ? accessor.getOrStartAgent(profile.getPath()) : null;
+                    if (agent != null) {
+                        loader = new AgentPagedLogLoader(agent, fileName, activeParser, EntrySource.of(profile, path));
+                    } else {
+                        RemoteLogMirror.SyncResult mirror = watcher.getMirror().sync(profile.getId(), accessor, path);
+                        loader = new MirroredPagedLogLoader(mirror, accessor, EntrySource.of(profile, path), activeParser);
+                        length = mirror.getBaseOffset() + mirror.getLength();
+                        watcher.markLoaded(fileName, length);
+                    }
+                    window = readNextWindow(loader, stream);
                 } else {
-                    loader = new PagedLogLoader(new File(path), activeParser);
-                    entries = loader.loadNextPage();
+                    File file = new File(path);
+                    length = file.length();
+                    loader = new PagedLogLoader(file, activeParser, EntrySource.of(profile, path));
+                    window = readNextWindow(loader, stream);
                 }
 
-                return new LoadResult(loader, entries);
-            }
-        };
+                if (cacheSource != null && length >= 0 && window.from >= 0) {
+                    cache.invalidate(cacheSource, cachePath);
+                    cache.put(new EntryCache.Key(cacheSource, cachePath, window.from, length), window.entries);
+                }
 
-        task.setOnSucceeded(e -> {
+                return new LoadResult(loader, window, agent);
+        });
+        activeLoad = load;
+
+        load.whenComplete((result, error) -> Platform.runLater(() -> {
             if (token != loadToken.get()) return;
 
-            LoadResult result = task.getValue();
-            if (result == null) {
+            if (error != null) {
+                log.error("Failed to load logs from: {}", path, error);
+                layoutManager.showError("Log Load Failed", "Could not load logs from file:\n" + path);
                 layoutManager.showLoading(false);
                 return;
             }
 
             pagedLoader = result.loader;
-            List<LogEntry> loadedEntries = result.entries;
+            levelFilter.setTooltip(null);
+            if (result.agent != null) {
+                loadLevelCounts(token, result.agent, fileName);
+            }
+
+            stream.finish(result.window.entries);
+            residentWindows.add(result.window);
+            layoutManager.showLoading(false);
+            prefetchNextPage();
+            infiniteScroll.check();
+        }));
+    }
 
-            if (loadedEntries == null) {
-                loadedEntries = new ArrayList<>();
+    /**
+     * Byte range [from, to) of the file shown in the table as one page. Its entries are
+     * dropped when the window is evicted and come back from the entry cache or the file.
+     */
+    private static final class PageWindow {
+        private final long from;
+        private final long to;
+        private List<LogEntry> entries;
+
+        PageWindow(long from, long to, List<LogEntry> entries) {
+            this.from = from;
+            this.to = to;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Read the page that follows the ones read so far. The loader is locked because a
+     * cancelled read may still be running on it.
+     */
+    private static PageWindow readNextWindow(PagedLoader loader, Consumer<List<LogEntry>> onBatch) throws IOException {
+        ReentrantLock lock = lockOf(loader);
+        lock.lock();
+        try {
+            long to = loader.getPosition();
+            List<LogEntry> entries = loader.loadNextPage(onBatch);
+            return new PageWindow(loader.getPosition(), to, entries);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read an evicted window again unless its entries were cached, then move the loader
+     * to where paging continues
+     * @param resumeAt position of the next page, or null to keep the current one
+     */
+    private static List<LogEntry> readWindowAgain(PagedLoader loader, PageWindow window, List<LogEntry> cached,
+                                                  Long resumeAt) throws IOException {
+        ReentrantLock lock = lockOf(loader);
+        lock.lock();
+        try {
+            long position = resumeAt != null ? resumeAt : loader.getPosition();
+            try {
+                if (cached != null) return cached;
+                loader.setPosition(window.to);
+                return loader.loadNextPage();
+            } finally {
+                loader.setPosition(position);
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ReentrantLock lockOf(PagedLoader loader) {
+        return loaderLocks.computeIfAbsent(loader, l -> new ReentrantLock());
+    }
 
-            loadedEntries.forEach(entry -> entry.setHighlighted(false));
-            masterData.setAll(loadedEntries);
+    /**
+     * Shows the batches of a page while it is being loaded. The first batch of a file
+     * replaces what was displayed before, e.g. the cached tail or the previous file.
+     */
+    private final class PageStream implements Consumer<List<LogEntry>> {
+        private final int token;
+        private boolean replace;
+        private boolean streamed;
+
+        PageStream(int token, boolean replace) {
+            this.token = token;
+            this.replace = replace;
+        }
 
-            appendLoadMoreMarker();
+        @Override
+        public void accept(List<LogEntry> batch) {
+            Platform.runLater(() -> {
+                if (token != loadToken.get()) return;
+                show(batch);
+                streamed = true;
+            });
+        }
 
-            autoResizeColumns();
-            layoutManager.showLoading(false);
-        });
+        /**
+         * Show the whole page if none of it was streamed, e.g. a prefetched or empty page.
+         * Must run on the FX thread after the load completed.
+         */
+        void finish(List<LogEntry> entries) {
+            if (entries == null) return;
+            if (!streamed) {
+                show(entries);
+            }
+            fitColumns(entries);
+        }
+
+        private void show(List<LogEntry> batch) {
+            batch.forEach(entry -> entry.setHighlighted(false));
+            if (replace) {
+                masterData.setAll(batch);
+                replace = false;
+                autoResizeColumns();
+                layoutManager.showLoading(false);
+            } else {
+                infiniteScroll.keepViewport(() -> masterData.addAll(batch));
+            }
+        }
+    }
 
-        task.setOnFailed(e -> {
+    /**
+     * Cancel the loads of the previous file; running reads are interrupted
+     */
+    private void cancelLoads() {
+        if (activeLoad != null) {
+            activeLoad.cancel(true);
+            activeLoad = null;
+        }
+        if (levelCountsLoad != null) {
+            levelCountsLoad.cancel(true);
+            levelCountsLoad = null;
+        }
+        if (prefetchedPage != null) {
+            prefetchedPage.cancel(true);
+            prefetchedPage = null;
+        }
+        pagedLoader = null;
+        pageLoadFailed = false;
+        residentWindows.clear();
+        evictedWindows.clear();
+        newerDroppedTo = -1;
+        liveEntries.clear();
+    }
+
+    private void loadLevelCounts(int token, RemoteAgentClient agent, String fileName) {
+        CompletableFuture<Map<String, Long>> counts = ExecutorServiceManager.getInstance().getLoadScheduler()
+                .submit(LoadScheduler.Lane.BACKGROUND, "level-counts", () -> agent.levelCounts(fileName));
+        levelCountsLoad = counts;
+        counts.whenComplete((levelCounts, error) -> Platform.runLater(() -> {
             if (token != loadToken.get()) return;
-            layoutManager.showError("Log Load Failed", "Could not load logs from file:\n" + path);
-            layoutManager.showLoading(false);
-        });
+            if (error != null) {
+                log.debug("Level counts unavailable for {}: {}", fileName, error.getMessage());
+                return;
+            }
+            levelFilter.setTooltip(new Tooltip(formatLevelCounts(levelCounts)));
+        }));
+    }
 
-        ExecutorServiceManager.getInstance().execute(task);
+    /**
+     * Read the next page ahead of time, so that scrolling down shows it immediately
+     */
+    private void prefetchNextPage() {
+        if (!hasMore() || prefetchedPage != null) return;
+        PagedLoader loader = pagedLoader;
+        prefetchedPage = ExecutorServiceManager.getInstance().getLoadScheduler()
+                .submit(LoadScheduler.Lane.PREFETCH, "prefetch-page", () -> readNextWindow(loader, batch -> {}));
     }
 
     private boolean hasMore() {
@@ -353,38 +509,276 @@ public class LogManager {
 
     private boolean isLoading = false;
 
-    private void loadNextPage() {
-        loadPageAsync();
+    private boolean isPaging() {
+        return pagedLoader == null || pageLoadFailed || (activeLoad != null && !activeLoad.isDone());
+    }
+
+    /**
+     * The table pages through the file in the direction it is sorted by date; with any
+     * other sort order the rows already loaded stay as they are
+     */
+    private boolean isSortedByDate(TableColumn.SortType sortType) {
+        List<TableColumn<LogEntry, ?>> sortOrder = tableView.getSortOrder();
+        if (sortOrder.isEmpty()) return sortType == TableColumn.SortType.DESCENDING;
+        return sortOrder.get(0) == dateColumn && dateColumn.getSortType() == sortType;
     }
 
+    private void scrolledToTop() {
+        if (isSortedByDate(TableColumn.SortType.DESCENDING)) {
+            restoreNewerWindow();
+        } else if (isSortedByDate(TableColumn.SortType.ASCENDING)) {
+            loadPageAsync();
+        }
+    }
+
+    private void scrolledToBottom() {
+        if (isSortedByDate(TableColumn.SortType.DESCENDING)) {
+            loadPageAsync();
+        } else if (isSortedByDate(TableColumn.SortType.ASCENDING)) {
+            restoreNewerWindow();
+        }
+    }
+
+    /**
+     * Load the page older than the ones in the table, dropping the newest page once
+     * more than {@link AppConfig#TABLE_RESIDENT_PAGES} are resident
+     */
     private void loadPageAsync() {
-        if (pagedLoader == null) {
+        if (isPaging() || !hasMore()) {
             return;
         }
 
         layoutManager.showLoading(true);
-        loadMoreButton.setVisible(false);
 
-        Consumer<List<LogEntry>> onSuccess = entries -> {
-            if (entries != null && !entries.isEmpty()) {
-                masterData.addAll(entries);
-                appendLoadMoreMarker();
-                autoResizeColumns();
-            }
+        // A prefetched page the user now waits for jumps the queue if it has not started yet
+        LoadScheduler scheduler = ExecutorServiceManager.getInstance().getLoadScheduler();
+        PagedLoader loader = pagedLoader;
+        int token = loadToken.get();
+        PageStream stream = new PageStream(token, false);
+        CompletableFuture<PageWindow> page = prefetchedPage != null
+                ? prefetchedPage
+                : scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "load-page", () -> readNextWindow(loader, stream));
+        prefetchedPage = null;
+        scheduler.promote(page, LoadScheduler.Lane.INTERACTIVE);
+        activeLoad = page;
+
+        page.whenComplete((window, error) -> Platform.runLater(() -> {
+            if (token != loadToken.get() || loader != pagedLoader) return;
+
             layoutManager.showLoading(false);
-            loadMoreButton.setVisible(hasMore());
-        };
+            if (error != null) {
+                log.error("Failed to load next page", error);
+                pageLoadFailed = true;
+                return;
+            }
+
+            stream.finish(window.entries);
+            residentWindows.addLast(window);
+            if (residentWindows.size() > AppConfig.TABLE_RESIDENT_PAGES) {
+                infiniteScroll.keepViewport(this::evictNewestWindow);
+            }
+            prefetchNextPage();
+        }));
+    }
+
+    /**
+     * Bring back the nearest evicted newer page, dropping the oldest resident page if the
+     * table is full; paging to older rows then continues from the new oldest page
+     */
+    private void restoreNewerWindow() {
+        if (isPaging()) {
+            return;
+        }
+        if (evictedWindows.isEmpty()) {
+            if (newerDroppedTo >= 0) showNewest();
+            return;
+        }
+
+        PageWindow window = evictedWindows.peekFirst();
+        PageWindow bottom = null;
+        Long resumeAt = null;
+        if (residentWindows.size() >= AppConfig.TABLE_RESIDENT_PAGES) {
+            Iterator<PageWindow> oldestFirst = residentWindows.descendingIterator();
+            bottom = oldestFirst.next();
+            resumeAt = oldestFirst.next().from;
+            // The prefetched page follows the page about to be dropped
+            if (prefetchedPage != null) {
+                prefetchedPage.cancel(true);
+                prefetchedPage = null;
+            }
+        }
+
+        EntryCache cache = layoutManager.getWatcherService().getEntryCache();
+        List<LogEntry> cached = windowSource != null
+                ? cache.get(new EntryCache.Key(windowSource, windowPath, window.from, window.to)) : null;
+
+        layoutManager.showLoading(true);
+        PagedLoader loader = pagedLoader;
+        int token = loadToken.get();
+        Long position = resumeAt;
+        CompletableFuture<List<LogEntry>> restore = ExecutorServiceManager.getInstance().getLoadScheduler()
+                .submit(LoadScheduler.Lane.INTERACTIVE, "restore-page", () -> readWindowAgain(loader, window, cached, position));
+        activeLoad = restore;
+
+        PageWindow dropped = bottom;
+        restore.whenComplete((entries, error) -> Platform.runLater(() -> {
+            if (token != loadToken.get() || loader != pagedLoader) return;
 
-        Consumer<Throwable> onError = error -> {
-            log.error("Failed to load next page", error);
             layoutManager.showLoading(false);
-        };
+            if (error != null) {
+                log.error("Failed to load page again", error);
+                pageLoadFailed = true;
+                return;
+            }
+
+            evictedWindows.removeFirst();
+            window.entries = entries;
+            residentWindows.addFirst(window);
+            infiniteScroll.keepViewport(() -> {
+                masterData.addAll(0, entries);
+                if (isLiveShown()) {
+                    masterData.addAll(0, liveEntries.newestFirst());
+                }
+                if (dropped != null) {
+                    residentWindows.removeLast();
+                    removeRows(dropped.entries);
+                }
+            });
+            fitColumns(entries);
+            prefetchNextPage();
+        }));
+    }
+
+    private void evictNewestWindow() {
+        PageWindow window = residentWindows.removeFirst();
+        removeRows(window.entries);
+        if (isLiveShown()) {
+            removeRows(liveEntries.newestFirst());
+        }
+        if (windowSource != null) {
+            layoutManager.getWatcherService().getEntryCache()
+                    .put(new EntryCache.Key(windowSource, windowPath, window.from, window.to), window.entries);
+        }
+        window.entries = null;
+        evictedWindows.addFirst(window);
+    }
 
-        pagedLoader.loadNextPageAsync(onSuccess, onError);
+    private void removeRows(List<LogEntry> rows) {
+        if (rows.isEmpty()) return;
+        Set<LogEntry> remove = Collections.newSetFromMap(new IdentityHashMap<>());
+        remove.addAll(rows);
+        masterData.removeIf(remove::contains);
+    }
+
+    /**
+     * Search the current remote file on the server and stream the matches into the table
+     */
+    private void searchOnServer() {
+        String term = searchField.getText().trim();
+        String path = currentRemotePath;
+        RemoteLogWatcher watcher = layoutManager.getRemoteLogWatcher();
+        SftpRemoteFileAccessor accessor = watcher != null ? watcher.getSftpAccessor() : null;
+        if (term.isEmpty() || path == null || accessor == null) return;
+
+        int token = loadToken.incrementAndGet();
+        cancelServerSearch();
+        cancelLoads();
+        RemoteGrepSearch search = new RemoteGrepSearch(accessor, activeParser);
+        activeSearch = search;
+        Profile profile = layoutManager.getProfileManager().getSelectedProfile();
+        boolean useAgent = profile != null && profile.isUseAgent();
+        EntrySource source = EntrySource.of(profile, path);
+
+        pagedLoader = null;
+        masterData.clear();
+        serverSearchStatus.setText("Searching...");
+        layoutManager.showScanIndicator(true);
+
+        ExecutorServiceManager.getInstance().executeRemote("server-search", () -> {
+            try {
+                Consumer<List<LogEntry>> onBatch = batch -> Platform.runLater(() -> {
+                    if (token == loadToken.get()) {
+                        masterData.addAll(batch);
+                    }
+                });
+
+                RemoteAgentClient agent = useAgent ? accessor.getOrStartAgent(profile.getPath()) : null;
+                int matches;
+                if (agent != null) {
+                    List<LogEntry> found = new ArrayList<>();
+                    for (RemoteAgentClient.Line line : agent.grep(new File(path).getName(), term, AppConfig.REMOTE_GREP_MAX_MATCHES)) {
+                        found.add(LogEntryFactory.parseOrInvalid(activeParser, line.getText(), source, line.getOffset()));
+                    }
+                    onBatch.accept(found);
+                    matches = found.size();
+                } else {
+                    matches = search.search(source, term, onBatch);
+                }
+                log.info("Server search in {} found {} matches", path, matches);
+                String status = RemoteGrepSearch.isCapped(matches)
+                        ? "First " + matches + " matches only, refine the search to see the rest"
+                        : matches + " matches";
+                Platform.runLater(() -> {
+                    if (token == loadToken.get()) {
+                        serverSearchStatus.setText(status);
+                        autoResizeColumns();
+                    }
+                });
+            } catch (Exception e) {
+                log.error("Server search failed in: {}", path, e);
+                Platform.runLater(() -> {
+                    if (token == loadToken.get()) {
+                        serverSearchStatus.setText(null);
+                        layoutManager.showError("Search Failed", "Could not search on server:\n" + e.getMessage());
+                    }
+                });
+            } finally {
+                Platform.runLater(() -> layoutManager.showScanIndicator(false));
+            }
+        });
+    }
+
+    private String formatLevelCounts(Map<String, Long> counts) {
+        StringBuilder text = new StringBuilder("Entries per level:");
+        counts.forEach((level, count) -> text.append("\n").append(level).append(": ").append(count));
+        return text.toString();
+    }
+
+    private void cancelServerSearch() {
+        serverSearchStatus.setText(null);
+        if (activeSearch != null) {
+            activeSearch.cancel();
+            activeSearch = null;
+        }
+    }
+
+    private void showRemoteContext(LogEntry entry) {
+        String path = currentRemotePath;
+        RemoteLogWatcher watcher = layoutManager.getRemoteLogWatcher();
+        SftpRemoteFileAccessor accessor = watcher != null ? watcher.getSftpAccessor() : null;
+        if (entry == null || entry.getOffset() < 0 || path == null || accessor == null) return;
+
+        String term = searchField.getText().trim();
+        RemoteGrepSearch search = new RemoteGrepSearch(accessor, activeParser);
+        ExecutorServiceManager.getInstance().executeRemote("remote-context", () -> {
+            String text = search.fetchContext(path, entry.getOffset());
+            Platform.runLater(() -> layoutManager.getDetailManager()
+                    .showRawText("Lines around offset " + entry.getOffset() + ":", text, term));
+        });
+    }
+
+    private void queueGroupRefresh() {
+        if (!groupToggle.isSelected() || groupRefreshQueued) return;
+        groupRefreshQueued = true;
+        Platform.runLater(() -> {
+            groupRefreshQueued = false;
+            if (groupToggle.isSelected()) groupView.applyChanges();
+        });
     }
 
     private void updateFilters() {
         String search = searchField.getText().toLowerCase();
+        FieldQuery fieldQuery = FieldQuery.parse(searchField.getText());
         String selectedLevel = levelFilter.getValue();
         var dateFrom = dateFromPicker.getValue();
         var dateTo = dateToPicker.getValue();
@@ -397,7 +791,7 @@ public class LogManager {
         LogEntry currentSelection = tableView.getSelectionModel().getSelectedItem();
 
         filteredData.setPredicate(log -> {
-            boolean matchesSearch = search.isEmpty()
+            boolean matchesSearch = fieldQuery != null ? fieldQuery.matches(log) : search.isEmpty()
                     || log.getMessage().toLowerCase().contains(search)
                     || log.getFile().toLowerCase().contains(search)
                     || log.getLevel().toLowerCase().contains(search)
@@ -438,83 +832,195 @@ public class LogManager {
         }
     }
 
+    /**
+     * Size the columns to their header and the first rows, e.g. for a new file
+     */
     private void autoResizeColumns() {
-        tableView.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
+        useUnconstrainedColumns();
         int sampleSize = Math.min(AppConfig.TABLE_SAMPLE_SIZE, tableView.getItems().size());
 
         tableView.getColumns().forEach(column -> {
-            Text headerText = new Text(column.getText());
-            double max = headerText.getLayoutBounds().getWidth() + 20;
+            double max = TextMeasurer.of(Font.getDefault()).width(column.getText()) + 20;
 
             for (int i = 0; i < sampleSize; i++) {
-                Object cellData = column.getCellData(i);
-                if (cellData != null) {
-                    String textStr = cellData.toString();
-                    if (column.getText().equalsIgnoreCase("Message")) {
-                        textStr = textStr.length() > AppConfig.MESSAGE_PREVIEW_LENGTH ?
-                                 textStr.substring(0, AppConfig.MESSAGE_PREVIEW_LENGTH) + "..." : textStr;
-                    }
-                    Text t = new Text(textStr);
-                    double width = t.getLayoutBounds().getWidth() + 20;
-                    if (width > max) {
-                        max = width;
-                    }
-                }
+                max = Math.max(max, cellWidth(column, tableView.getItems().get(i)));
             }
             column.setPrefWidth(max);
         });
     }
 
+    /**
+     * Widen the columns for new rows; only the newest rows of the batch are measured and
+     * the columns never shrink, so pages and live updates do not rescan the table
+     */
+    private void fitColumns(List<LogEntry> rows) {
+        int from = Math.max(0, rows.size() - AppConfig.TABLE_SAMPLE_SIZE);
+        tableView.getColumns().forEach(column -> {
+            double max = column.getPrefWidth();
+            for (int i = from; i < rows.size(); i++) {
+                max = Math.max(max, cellWidth(column, rows.get(i)));
+            }
+            if (max > column.getPrefWidth()) {
+                useUnconstrainedColumns();
+                column.setPrefWidth(max);
+            }
+        });
+    }
+
+    private void useUnconstrainedColumns() {
+        if (tableView.getColumnResizePolicy() != TableView.UNCONSTRAINED_RESIZE_POLICY) {
+            tableView.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
+        }
+    }
+
+    private double cellWidth(TableColumn<LogEntry, ?> column, LogEntry entry) {
+        Function<LogEntry, String> text = columnText.get(column);
+        String textStr = text != null && entry != null ? text.apply(entry) : null;
+        if (textStr == null) return 0;
+        return TextMeasurer.of(Font.getDefault()).width(textStr) + 20;
+    }
+
     public void clearLogs() {
+        loadToken.incrementAndGet();
+        cancelLoads();
         masterData.clear();
+        highlightTimer.clear();
         layoutManager.getDetailManager().showLogDetails(null, null);
     }
 
-    private void appendLoadMoreMarker() {
-        masterData.removeIf(entry -> "LM".equals(entry.getLevel()) || "-".equals(entry.getLevel()));
+    public void prependLogEntries(List<LogEntry> entries) {
+        for (LogEntry entry : entries) {
+            entry.setGroupKey(extractGroupKey(entry.getDate()));
+        }
 
-        if (pagedLoader != null && pagedLoader.hasMore()) {
-            masterData.add(LogEntryFactory.createSpacer());
-            masterData.add(LogEntryFactory.createLoadMoreMarker());
+        // While newer pages are evicted the new entries wait in the buffer, out of the table
+        boolean shown = isLiveShown();
+        List<LogEntry> expired = liveEntries.add(entries, System.currentTimeMillis());
+        if (shown) {
+            // Newest on top, inserted as a single change so the filtered and sorted views update once
+            List<LogEntry> newestFirst = new ArrayList<>(entries);
+            Collections.reverse(newestFirst);
+            masterData.addAll(0, newestFirst);
+            highlightTimer.highlight(entries);
+            fitColumns(entries);
+        }
+        if (!expired.isEmpty()) {
+            retireLiveEntries(expired, shown);
         }
     }
 
-    public void prependLogEntries(List<LogEntry> entries) {
-        for (LogEntry entry : entries) {
-            String groupKey = extractGroupKey(entry.getDate());
-            entry.setGroupKey(groupKey);
-            masterData.add(0, entry);
-            highlightEntry(entry);
+    /**
+     * Turn entries evicted from the live buffer into pages of the file, as if they had
+     * been loaded by scrolling: shown pages count against the resident pages, the others
+     * go to the entry cache, up to {@link AppConfig#TABLE_EVICTED_PAGES}. Entries without
+     * a known offset cannot be read again and are dropped.
+     * @param expired evicted entries, oldest first
+     * @param shown   whether the entries are in the table
+     */
+    private void retireLiveEntries(List<LogEntry> expired, boolean shown) {
+        long end = liveEntries.getOldestOffset();
+        for (int from = 0; from < expired.size(); from += AppConfig.DEFAULT_PAGE_SIZE) {
+            int to = Math.min(expired.size(), from + AppConfig.DEFAULT_PAGE_SIZE);
+            List<LogEntry> chunk = List.copyOf(expired.subList(from, to));
+            PageWindow window = new PageWindow(chunk.get(0).getOffset(),
+                    to < expired.size() ? expired.get(to).getOffset() : end, chunk);
+
+            if (pagedLoader == null || window.from < 0 || window.to < window.from) {
+                if (shown) removeRows(chunk);
+            } else if (shown) {
+                residentWindows.addFirst(window);
+            } else if (newerDroppedTo >= 0 || evictedWindows.size() >= AppConfig.TABLE_EVICTED_PAGES) {
+                // Keep the newest dropped offset only; its pages are read again from there
+                newerDroppedTo = window.to;
+            } else {
+                if (windowSource != null) {
+                    layoutManager.getWatcherService().getEntryCache()
+                            .put(new EntryCache.Key(windowSource, windowPath, window.from, window.to), chunk);
+                }
+                window.entries = null;
+                evictedWindows.addLast(window);
+            }
         }
-        rebuildGroupColorMap();
-        autoResizeColumns();
+        dropOldestWindows();
     }
 
-    private String extractGroupKey(String dateStr) {
-        if (dateStr == null || dateStr.isBlank()) return "";
-        return dateStr.split("\\.")[0].trim();
+    /**
+     * Drop the oldest pages beyond {@link AppConfig#TABLE_RESIDENT_PAGES}; paging to older
+     * rows then continues from the oldest page left
+     */
+    private void dropOldestWindows() {
+        if (residentWindows.size() <= AppConfig.TABLE_RESIDENT_PAGES || isPaging()) return;
+
+        List<LogEntry> dropped = new ArrayList<>();
+        while (residentWindows.size() > AppConfig.TABLE_RESIDENT_PAGES) {
+            dropped.addAll(residentWindows.removeLast().entries);
+        }
+        infiniteScroll.keepViewport(() -> removeRows(dropped));
+
+        if (prefetchedPage != null) {
+            prefetchedPage.cancel(true);
+            prefetchedPage = null;
+        }
+        long resumeAt = residentWindows.peekLast().from;
+        seekPage(resumeAt, this::prefetchNextPage);
     }
 
-    private void rebuildGroupColorMap() {
-        groupColorMap.clear();
-        List<String> orderedKeys = new ArrayList<>();
+    /**
+     * Start the table again from the live entries once the newer pages nearest to them
+     * were dropped; paging to older rows reads the dropped pages again
+     */
+    private void showNewest() {
+        if (prefetchedPage != null) {
+            prefetchedPage.cancel(true);
+            prefetchedPage = null;
+        }
+        long resumeAt = newerDroppedTo;
+        newerDroppedTo = -1;
+        residentWindows.clear();
+        masterData.setAll(liveEntries.newestFirst());
+        seekPage(resumeAt, this::loadPageAsync);
+    }
 
-        for (LogEntry entry : masterData) {
-            String key = entry.getGroupKey();
-            if (!groupColorMap.containsKey(key)) {
-                boolean useAlt = (orderedKeys.size() % 2 != 0);
-                groupColorMap.put(key, useAlt);
-                orderedKeys.add(key);
+    /**
+     * Move the loader so that the next page read ends at the given offset
+     * @param then run on the FX thread once the loader has moved
+     */
+    private void seekPage(long position, Runnable then) {
+        PagedLoader loader = pagedLoader;
+        int token = loadToken.get();
+        CompletableFuture<Object> seek = ExecutorServiceManager.getInstance().getLoadScheduler()
+                .submit(LoadScheduler.Lane.INTERACTIVE, "seek-page", () -> {
+                    ReentrantLock lock = lockOf(loader);
+                    lock.lock();
+                    try {
+                        loader.setPosition(position);
+                    } finally {
+                        lock.unlock();
+                    }
+                    return null;
+                });
+        activeLoad = seek;
+        seek.whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (token != loadToken.get() || loader != pagedLoader) return;
+            if (error != null) {
+                log.error("Failed to move to page at offset {}", position, error);
+                pageLoadFailed = true;
+                return;
             }
-        }
+            then.run();
+        }));
     }
 
-    private void highlightEntry(LogEntry entry) {
-        entry.setHighlighted(true);
-        Timeline timeline = new Timeline(
-                new KeyFrame(Duration.seconds(AppConfig.HIGHLIGHT_DURATION_SECONDS), e -> entry.setHighlighted(false))
-        );
-        timeline.play();
+    /**
+     * @return whether the live entries are in the table, i.e. no newer page is out of it
+     */
+    private boolean isLiveShown() {
+        return evictedWindows.isEmpty() && newerDroppedTo < 0;
+    }
+
+    private String extractGroupKey(String dateStr) {
+        if (dateStr == null || dateStr.isBlank()) return "";
+        return dateStr.split("\\.")[0].trim();
     }
 
     public LogParser getActiveParser() {
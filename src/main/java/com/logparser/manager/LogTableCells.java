@@ -0,0 +1,165 @@
+package com.logparser.manager;
+
+import com.logparser.model.LogEntry;
+import javafx.beans.InvalidationListener;
+import javafx.collections.FXCollections;
+import javafx.collections.transformation.SortedList;
+import javafx.css.PseudoClass;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * Columns, cells and rows of the log table.
+ * <p>
+ * The columns hold no values: the cells read their text from the {@link LogEntry} of their
+ * row, so scrolling creates no properties or strings. For the same reason a table sorts by
+ * the comparators of its columns applied to the entries, see {@link #sortByColumns}.
+ * Levels and highlighting are pseudo-classes styled in style.css instead of inline styles.
+ */
+final class LogTableCells {
+
+    private static final PseudoClass INVALID = PseudoClass.getPseudoClass("invalid");
+    private static final PseudoClass CRITICAL = PseudoClass.getPseudoClass("critical");
+    private static final PseudoClass ERROR = PseudoClass.getPseudoClass("error");
+    private static final PseudoClass WARNING = PseudoClass.getPseudoClass("warning");
+    private static final PseudoClass INFO = PseudoClass.getPseudoClass("info");
+    private static final PseudoClass NOTICE = PseudoClass.getPseudoClass("notice");
+    private static final PseudoClass HIGHLIGHTED = PseudoClass.getPseudoClass("highlighted");
+
+    private LogTableCells() {
+    }
+
+    /**
+     * Column showing one text of the entry
+     * @param title   header text
+     * @param text    text of a cell
+     * @param sortKey value the column sorts by
+     */
+    static TableColumn<LogEntry, LogEntry> column(String title, Function<LogEntry, String> text,
+                                                  Function<LogEntry, String> sortKey) {
+        TableColumn<LogEntry, LogEntry> column = new TableColumn<>(title);
+        // Every cell value is null, the cells show the row item
+        column.setCellValueFactory(c -> null);
+        column.setComparator(Comparator.comparing(sortKey, Comparator.nullsFirst(Comparator.naturalOrder())));
+        column.setCellFactory(c -> new TextCell(text));
+        return column;
+    }
+
+    /**
+     * Column showing the level, colored by the level-cell rules of style.css
+     */
+    static TableColumn<LogEntry, LogEntry> levelColumn(String title) {
+        TableColumn<LogEntry, LogEntry> column = column(title, LogEntry::getLevel, LogEntry::getLevel);
+        column.setCellFactory(c -> new LevelCell());
+        return column;
+    }
+
+    /**
+     * Sort policy of a table made of these columns: their comparators compare the entries of
+     * the rows, not the cell values
+     * @param table table whose items are a {@link SortedList} or a modifiable list
+     * @return always true, the sort cannot fail
+     */
+    @SuppressWarnings("unchecked")
+    static Boolean sortByColumns(TableView<LogEntry> table) {
+        Comparator<LogEntry> comparator = null;
+        for (TableColumn<LogEntry, ?> column : table.getSortOrder()) {
+            Comparator<LogEntry> key = (Comparator<LogEntry>) column.getComparator();
+            if (column.getSortType() == TableColumn.SortType.DESCENDING) key = key.reversed();
+            comparator = comparator == null ? key : comparator.thenComparing(key);
+        }
+        if (table.getItems() instanceof SortedList<LogEntry> sorted) {
+            sorted.setComparator(comparator);
+        } else if (comparator != null) {
+            FXCollections.sort(table.getItems(), comparator);
+        }
+        return true;
+    }
+
+    /**
+     * Row marked :highlighted while its entry is highlighted
+     */
+    static TableRow<LogEntry> highlightRow() {
+        return new HighlightRow();
+    }
+
+    private static class TextCell extends TableCell<LogEntry, LogEntry> {
+        private final Function<LogEntry, String> text;
+
+        TextCell(Function<LogEntry, String> text) {
+            this.text = text;
+        }
+
+        @Override
+        protected void updateItem(LogEntry item, boolean empty) {
+            super.updateItem(item, empty);
+            LogEntry entry = entryOf(empty);
+            setText(entry == null ? null : text.apply(entry));
+        }
+
+        LogEntry entryOf(boolean empty) {
+            TableRow<LogEntry> row = getTableRow();
+            return empty || row == null ? null : row.getItem();
+        }
+    }
+
+    private static final class LevelCell extends TextCell {
+        private PseudoClass level;
+
+        LevelCell() {
+            super(LogEntry::getLevel);
+            getStyleClass().add("level-cell");
+        }
+
+        @Override
+        protected void updateItem(LogEntry item, boolean empty) {
+            super.updateItem(item, empty);
+            LogEntry entry = entryOf(empty);
+            PseudoClass next = entry == null ? null : levelOf(entry);
+            if (next == level) return;
+            if (level != null) pseudoClassStateChanged(level, false);
+            if (next != null) pseudoClassStateChanged(next, true);
+            level = next;
+        }
+
+        private static PseudoClass levelOf(LogEntry entry) {
+            String level = entry.getLevel();
+            if (!entry.isValid()) return INVALID;
+            if ("CRITICAL".equalsIgnoreCase(level)) return CRITICAL;
+            if ("ERROR".equalsIgnoreCase(level) || "ALERT".equalsIgnoreCase(level)) return ERROR;
+            if ("WARNING".equalsIgnoreCase(level)) return WARNING;
+            if ("INFO".equalsIgnoreCase(level)) return INFO;
+            if ("NOTICE".equalsIgnoreCase(level)) return NOTICE;
+            return null;
+        }
+    }
+
+    /**
+     * The row moves its one listener to the entry it shows, instead of binding per entry
+     */
+    private static final class HighlightRow extends TableRow<LogEntry> {
+        private final InvalidationListener highlightListener = obs -> updateHighlight();
+        private LogEntry observed;
+
+        @Override
+        protected void updateItem(LogEntry item, boolean empty) {
+            super.updateItem(item, empty);
+            LogEntry next = empty ? null : item;
+            if (next != observed) {
+                if (observed != null) observed.highlightedProperty().removeListener(highlightListener);
+                if (next != null) next.highlightedProperty().addListener(highlightListener);
+                observed = next;
+            }
+            updateHighlight();
+        }
+
+        private void updateHighlight() {
+            pseudoClassStateChanged(HIGHLIGHTED, observed != null && observed.isHighlighted());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.logparser.manager;
 
-import com.logparser.watcher.LogFileWatcher;
+import com.logparser.model.Profile;
 import com.logparser.watcher.RemoteLogWatcher;
+import com.logparser.watcher.WatcherService;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.Orientation;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ProgressIndicator;
@@ -23,8 +25,7 @@ public class MainLayoutManager {
     private final ProfileManager profileManager;
     private final FileManager fileManager;
 
-    private final LogFileWatcher localLogWatcher;
-    private final RemoteLogWatcher remoteLogWatcher;
+    private final WatcherService watcherService;
 
     private final ProgressIndicator loadingIndicator;
     private boolean windowFocused = true;
@@ -39,14 +40,21 @@ public class MainLayoutManager {
         profileManager = new ProfileManager();
         fileManager = new FileManager(this, profileManager);
 
-        localLogWatcher = new LogFileWatcher(this, fileManager, logManager);
-        remoteLogWatcher = new RemoteLogWatcher(this, fileManager, logManager);
+        watcherService = new WatcherService(this, fileManager, logManager);
+        watcherService.setOnUnreadChanged(profileManager::refreshBadges);
+        profileManager.setUnreadCounter(watcherService::getUnreadCount);
+
+        profileManager.getProfiles().addListener((ListChangeListener<Profile>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(watcherService::unwatch);
+                change.getAddedSubList().forEach(watcherService::watch);
+            }
+        });
 
         profileManager.setOnProfileSelected(profile -> {
             fileManager.getFileNames().clear();
             logManager.clearLogs();
-            localLogWatcher.stopWatching();
-            remoteLogWatcher.stopWatching();
+            watcherService.display(profile);
 
             if (profile != null) {
                 fileManager.getFormatSelector().setValue(profile.getFormat());
@@ -54,17 +62,12 @@ public class MainLayoutManager {
 
                 if (profile.isRemote()) {
                     RemoteLogWatcher watcher = getRemoteLogWatcher();
-                    List<String> cachedFiles = watcher.getFileListFromCache(profile);
+                    List<String> cachedFiles = watcher != null ? watcher.getFileListFromCache() : List.of();
 
                     if (!cachedFiles.isEmpty()) {
-                        fileManager.getFileNames().setAll(cachedFiles);
-                        showLoading(false);
+                        fileManager.loadFileList(profile);
                     } else {
-                        showLoading(true);
-                    }
-
-                    if (profile.getHost() != null && !profile.getHost().isBlank()) {
-                        watcher.startWatching(profile);
+                        showLoading(watcher != null);
                     }
 
                 } else {
@@ -72,7 +75,6 @@ public class MainLayoutManager {
                     if (path.exists() && path.isDirectory()) {
                         showLoading(true);
                         fileManager.loadFileList(profile);
-                        localLogWatcher.startWatching(path);
                     } else {
                         fileManager.getFileNames().clear();
                         showLoading(false);
@@ -106,6 +108,8 @@ public class MainLayoutManager {
         StackPane.setMargin(scanIndicator, new Insets(5));
 
         root = new StackPane(mainLayout, loadingIndicator, scanIndicator);
+
+        watcherService.watchAll(profileManager.getProfiles());
     }
 
     public StackPane getMainLayout() {
@@ -134,16 +138,13 @@ public class MainLayoutManager {
     }
 
     public void shutdown() {
-        localLogWatcher.stopWatching();
-        remoteLogWatcher.stopWatching();
-        remoteLogWatcher.fullDisconnect();
+        watcherService.shutdown();
         logManager.clearLogs();
     }
 
     public void setWindowFocused(boolean focused) {
         this.windowFocused = focused;
-        localLogWatcher.setActive(focused);
-        remoteLogWatcher.setActive(focused);
+        watcherService.setActive(focused);
     }
 
     public void showScanIndicator(boolean show) {
@@ -166,8 +167,15 @@ public class MainLayoutManager {
         alert.showAndWait();
     }
 
+    /**
+     * @return watcher of the selected profile, or null if it is not a watched remote profile
+     */
     public RemoteLogWatcher getRemoteLogWatcher() {
-        return remoteLogWatcher;
+        return watcherService.getRemoteWatcher(profileManager.getSelectedProfile());
+    }
+
+    public WatcherService getWatcherService() {
+        return watcherService;
     }
 
     public void clearLogDisplay() {
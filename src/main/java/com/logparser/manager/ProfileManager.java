@@ -1,5 +1,6 @@
 package com.logparser.manager;
 
+import com.logparser.config.AppConfig;
 import com.logparser.model.Profile;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,10 +24,12 @@ import javax.crypto.SecretKey;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import java.util.ArrayList;
 
 public class ProfileManager {
@@ -38,6 +41,7 @@ public class ProfileManager {
     private static final ObjectMapper mapper = new ObjectMapper();
     private static final String PROFILE_FILE = getProfileFilePath();
     private Consumer<Profile> profileSelectedCallback;
+    private ToIntFunction<Profile> unreadCounter = profile -> 0;
 
     static {
         String envHome = System.getenv("HOME");
@@ -64,13 +68,7 @@ public class ProfileManager {
                 }
             }
         });
-        profileSelector.setCellFactory(lv -> new ListCell<>() {
-            @Override
-            protected void updateItem(Profile item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : item.getName());
-            }
-        });
+        refreshBadges();
 
         profileSelector.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             if (profileSelectedCallback != null && newVal != null) {
@@ -108,6 +106,46 @@ public class ProfileManager {
         this.profileSelectedCallback = callback;
     }
 
+    public ObservableList<Profile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * @param counter number of files with unseen changes per profile, shown as a badge in the selector
+     */
+    public void setUnreadCounter(ToIntFunction<Profile> counter) {
+        this.unreadCounter = counter;
+        refreshBadges();
+    }
+
+    /**
+     * Redraw the profile list with the current unread counts
+     */
+    public void refreshBadges() {
+        profileSelector.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(Profile item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    setGraphic(null);
+                    return;
+                }
+                setText(item.getName());
+                int unread = unreadCounter.applyAsInt(item);
+                if (unread > 0) {
+                    Label badge = new Label(String.valueOf(unread));
+                    badge.setStyle("-fx-background-color: red; -fx-text-fill: white; -fx-font-size: 10px; "
+                            + "-fx-padding: 0 4 0 4; -fx-background-radius: 8;");
+                    setGraphic(badge);
+                    setContentDisplay(ContentDisplay.RIGHT);
+                } else {
+                    setGraphic(null);
+                }
+            }
+        });
+    }
+
     private void deleteSelectedProfile() {
         Profile selected = getSelectedProfile();
         if (selected != null) {
@@ -254,12 +292,15 @@ public class ProfileManager {
         PasswordField passwordField = new PasswordField();
         passwordField.setPromptText("Password");
 
+        CheckBox agentCheck = new CheckBox("Use indexing agent (requires Java on host)");
+
         VBox remoteBox = new VBox(5,
                 new Label("Remote Path:"), remotePathField,
                 new Label("Host:"), hostField,
                 new Label("Port:"), portField,
                 new Label("Username:"), userField,
-                new Label("Password:"), passwordField
+                new Label("Password:"), passwordField,
+                agentCheck
         );
 
         pathSection.setVisible(true);
@@ -279,6 +320,8 @@ public class ProfileManager {
         formatBox.setPromptText("Select Format");
         formatBox.setPrefWidth(300);
 
+        TextField fieldsField = new TextField(String.join(", ", AppConfig.DEFAULT_EXTRACTED_FIELDS));
+
         Button saveButton = new Button("Save");
         Button cancelButton = new Button("Cancel");
         HBox buttonBox = new HBox(10, saveButton, cancelButton);
@@ -301,6 +344,7 @@ public class ProfileManager {
                     : pathField.getText().trim();
 
             Profile newProfile = new Profile(name, path, format);
+            newProfile.setExtractedFields(parseFields(fieldsField.getText()));
 
             if (remoteCheck.isSelected()) {
                 newProfile.setRemote(true);
@@ -308,6 +352,7 @@ public class ProfileManager {
                 newProfile.setPort(Integer.parseInt(portField.getText().trim()));
                 newProfile.setUsername(userField.getText().trim());
                 newProfile.setPassword(passwordField.getText());
+                newProfile.setUseAgent(agentCheck.isSelected());
             }
 
             profiles.add(newProfile);
@@ -324,6 +369,7 @@ public class ProfileManager {
                 pathSection,
                 remoteBox,
                 new Label("Log Format:"), formatBox,
+                new Label("Correlation Fields (comma-separated):"), fieldsField,
                 buttonBox
         );
 
@@ -333,7 +379,22 @@ public class ProfileManager {
         dialog.showAndWait();
     }
 
+    private static List<String> parseFields(String text) {
+        return Arrays.stream(text.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .toList();
+    }
+
     private static String getProfileFilePath() {
+        return getConfigDirPath() + "/profiles.json";
+    }
+
+    /**
+     * Get the per-user configuration directory of the application
+     * @return Absolute path of the LogParser configuration directory
+     */
+    public static String getConfigDirPath() {
         String os = System.getProperty("os.name").toLowerCase();
         String baseDir;
 
@@ -345,7 +406,7 @@ public class ProfileManager {
             baseDir = System.getProperty("user.home") + "/.config";
         }
 
-        return baseDir + "/LogParser/profiles.json";
+        return baseDir + "/LogParser";
     }
 
     private void openEditProfileDialog() {
@@ -386,13 +447,16 @@ public class ProfileManager {
         PasswordField passwordField = new PasswordField();
         passwordField.setText(selected.getPassword());
         TextField remotePathField = new TextField(selected.getPath());
+        CheckBox agentCheck = new CheckBox("Use indexing agent (requires Java on host)");
+        agentCheck.setSelected(selected.isUseAgent());
 
         VBox remoteBox = new VBox(5,
                 new Label("Remote Path:"), remotePathField,
                 new Label("Host:"), hostField,
                 new Label("Port:"), portField,
                 new Label("Username:"), userField,
-                new Label("Password:"), passwordField
+                new Label("Password:"), passwordField,
+                agentCheck
         );
 
         pathSection.setManaged(!selected.isRemote());
@@ -411,10 +475,13 @@ public class ProfileManager {
         formatBox.getItems().addAll("OX", "Symfony");
         formatBox.setValue(selected.getFormat());
 
+        TextField fieldsField = new TextField(String.join(", ", selected.getExtractedFields()));
+
         Button saveButton = new Button("Save");
         saveButton.setOnAction(e -> {
             selected.setName(nameField.getText());
             selected.setFormat(formatBox.getValue());
+            selected.setExtractedFields(parseFields(fieldsField.getText()));
             selected.setRemote(remoteCheck.isSelected());
 
             if (remoteCheck.isSelected()) {
@@ -423,6 +490,7 @@ public class ProfileManager {
                 selected.setPort(Integer.parseInt(portField.getText()));
                 selected.setUsername(userField.getText());
                 selected.setPassword(passwordField.getText());
+                selected.setUseAgent(agentCheck.isSelected());
             } else {
                 selected.setPath(pathField.getText());
             }
@@ -442,6 +510,7 @@ public class ProfileManager {
                 pathSection,
                 remoteBox,
                 new Label("Log Format:"), formatBox,
+                new Label("Correlation Fields (comma-separated):"), fieldsField,
                 new HBox(10, saveButton, cancelButton)
         );
 
@@ -0,0 +1,72 @@
+package com.logparser.manager;
+
+import com.logparser.cache.FieldIndex;
+import com.logparser.model.LogEntry;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.util.List;
+
+/**
+ * Window listing the entries that share a correlation field, e.g. every entry of one request.
+ * Selecting an entry shows it in the detail panel of the main window.
+ */
+final class RelatedEntriesWindow {
+
+    private RelatedEntriesWindow() {
+    }
+
+    /**
+     * @param title   what the entries share, e.g. "request_id = 5f3a"
+     * @param found   the entries, in any order, and how many are no longer in memory
+     * @param details detail panel to show the selected entry in
+     */
+    @SuppressWarnings("unchecked")
+    static void show(String title, FieldIndex.Found found, DetailManager details) {
+        List<LogEntry> entries = found.entries();
+        TableView<LogEntry> table = new TableView<>(FXCollections.observableArrayList(entries));
+        table.setPlaceholder(new Label("No entries."));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_ALL_COLUMNS);
+        table.setRowFactory(tv -> LogTableCells.highlightRow());
+        table.setSortPolicy(LogTableCells::sortByColumns);
+
+        TableColumn<LogEntry, LogEntry> dateColumn = LogTableCells.column("Date/Time", LogEntry::getDate, LogEntry::getDate);
+        dateColumn.setPrefWidth(160);
+        TableColumn<LogEntry, LogEntry> fileColumn = LogTableCells.column("File", LogEntry::getFile, LogEntry::getFile);
+        TableColumn<LogEntry, LogEntry> levelColumn = LogTableCells.levelColumn("Level");
+        levelColumn.setPrefWidth(80);
+        TableColumn<LogEntry, LogEntry> messageColumn = LogTableCells.column("Message", LogEntry::getMessagePreview, LogEntry::getMessage);
+        messageColumn.setPrefWidth(500);
+        table.getColumns().addAll(dateColumn, fileColumn, levelColumn, messageColumn);
+        table.getSortOrder().add(dateColumn);
+
+        table.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
+            if (newSelection != null) {
+                details.showLogDetails(newSelection, null);
+            }
+        });
+
+        // Entries of pages and lines scrolled out of memory are not shown; say so rather than look complete
+        String text = entries.size() + " entries with " + title;
+        if (found.unavailable() > 0) {
+            text += " – " + found.unavailable() + " more were dropped from memory, reload their files to see them";
+        }
+        Label heading = new Label(text);
+        VBox root = new VBox(10, heading, table);
+        root.setPadding(new Insets(10));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Stage stage = new Stage();
+        stage.setTitle(title);
+        stage.setScene(new Scene(root, 900, 500));
+        stage.getScene().getStylesheets().add(RelatedEntriesWindow.class.getResource("/style.css").toExternalForm());
+        stage.show();
+    }
+}
@@ -0,0 +1,341 @@
+package com.logparser.manager;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import com.logparser.parser.TemplateMiner;
+import com.logparser.utils.DateParser;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.scene.control.Label;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeTableColumn;
+import javafx.scene.control.TreeTableView;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Grouped mode of the log table: one row per message template, see {@link TemplateMiner},
+ * with the entries of a template listed when its row is expanded.
+ * <p>
+ * Groups are built from the rows the table shows, so the filters apply. They follow the
+ * changes of those rows: only the templates of added or removed entries are updated, and
+ * the date of an entry is parsed once when it is added. The entry rows of a group are
+ * created on expansion, {@link AppConfig#TREE_CHILDREN_CHUNK} at a time.
+ */
+final class TemplateGroupView {
+
+    /**
+     * Row of the view: a template with its entries, or one entry of an expanded template
+     */
+    static final class Row {
+        private final int templateId;
+        private final String text;
+        private final List<LogEntry> entries;
+        // Dates of the oldest and newest dated entries of a template
+        private final String firstSeen;
+        private final String lastSeen;
+        private final LogEntry entry;
+
+        private Row(int templateId, String text, List<LogEntry> entries, String firstSeen, String lastSeen) {
+            this.templateId = templateId;
+            this.text = text;
+            this.entries = entries;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+            this.entry = null;
+        }
+
+        private Row(LogEntry entry) {
+            this.templateId = entry.getTemplateId();
+            this.text = entry.getMessagePreview();
+            this.entries = List.of(entry);
+            this.firstSeen = null;
+            this.lastSeen = null;
+            this.entry = entry;
+        }
+
+        private Row(String text) {
+            this.templateId = -1;
+            this.text = text;
+            this.entries = List.of();
+            this.firstSeen = null;
+            this.lastSeen = null;
+            this.entry = null;
+        }
+
+        boolean isGroup() {
+            return entry == null && !entries.isEmpty();
+        }
+    }
+
+    // Oldest first, lines without a date first
+    private static final Comparator<Timed> BY_TIME =
+            Comparator.comparing(Timed::time, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()));
+    private static final Comparator<TreeItem<Row>> BY_SIZE =
+            Comparator.comparingInt((TreeItem<Row> item) -> item.getValue().entries.size()).reversed();
+
+    private final TreeTableView<Row> table = new TreeTableView<>();
+    // Template id -> entries of the template, see BY_TIME
+    private final Map<Integer, List<Timed>> groups = new HashMap<>();
+    private final Map<Integer, TreeItem<Row>> items = new HashMap<>();
+    // Changes not applied yet; an entry added and removed again in between is in neither
+    private final Set<LogEntry> added = new LinkedHashSet<>();
+    private final Set<LogEntry> removed = new LinkedHashSet<>();
+
+    /**
+     * @param onSelect called with the selected entry
+     */
+    @SuppressWarnings("unchecked")
+    TemplateGroupView(Consumer<LogEntry> onSelect) {
+        table.setRoot(new TreeItem<>());
+        table.setShowRoot(false);
+        table.setPlaceholder(new Label("No logs to display."));
+        table.setColumnResizePolicy(TreeTableView.CONSTRAINED_RESIZE_POLICY_ALL_COLUMNS);
+
+        TreeTableColumn<Row, Long> countColumn = new TreeTableColumn<>("Count");
+        countColumn.setCellValueFactory(cell -> {
+            Row row = cell.getValue().getValue();
+            return new ReadOnlyObjectWrapper<>(row.isGroup() ? (long) row.entries.size() : null);
+        });
+        countColumn.setPrefWidth(80);
+        countColumn.setSortable(false);
+
+        TreeTableColumn<Row, String> dateColumn = new TreeTableColumn<>("Date/Time");
+        dateColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(dateText(cell.getValue().getValue())));
+        dateColumn.setPrefWidth(300);
+        dateColumn.setSortable(false);
+
+        TreeTableColumn<Row, String> levelColumn = new TreeTableColumn<>("Level");
+        levelColumn.setCellValueFactory(cell -> {
+            Row row = cell.getValue().getValue();
+            return new ReadOnlyStringWrapper(row.entry != null ? row.entry.getLevel() : null);
+        });
+        levelColumn.setPrefWidth(100);
+        levelColumn.setSortable(false);
+
+        TreeTableColumn<Row, String> messageColumn = new TreeTableColumn<>("Template / Message");
+        messageColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getValue().text));
+        messageColumn.setPrefWidth(600);
+        messageColumn.setSortable(false);
+
+        table.getColumns().addAll(messageColumn, countColumn, dateColumn, levelColumn);
+
+        table.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
+            if (newSelection == null) return;
+            Row row = newSelection.getValue();
+            if (row.entry != null) {
+                onSelect.accept(row.entry);
+            } else if (row.isGroup()) {
+                // The newest entry stands for the template
+                onSelect.accept(row.entries.get(0));
+            }
+        });
+    }
+
+    TreeTableView<Row> getNode() {
+        return table;
+    }
+
+    /**
+     * Rebuild the groups, keeping the expanded templates expanded
+     * @param entries rows shown by the table, in any order
+     */
+    void setEntries(List<LogEntry> entries) {
+        Set<Integer> expanded = new HashSet<>();
+        items.forEach((templateId, item) -> {
+            if (item.isExpanded()) expanded.add(templateId);
+        });
+        groups.clear();
+        items.clear();
+        added.clear();
+        removed.clear();
+
+        for (LogEntry entry : entries) {
+            groups.computeIfAbsent(entry.getTemplateId(), id -> new ArrayList<>())
+                    .add(new Timed(entry, DateParser.parseLogDateTime(entry.getDate())));
+        }
+        List<TreeItem<Row>> rows = new ArrayList<>(groups.size());
+        for (Map.Entry<Integer, List<Timed>> group : groups.entrySet()) {
+            group.getValue().sort(BY_TIME);
+            TreeItem<Row> item = groupItem(group.getKey(), group.getValue());
+            item.setExpanded(expanded.contains(group.getKey()));
+            items.put(group.getKey(), item);
+            rows.add(item);
+        }
+        rows.sort(BY_SIZE);
+        table.getRoot().getChildren().setAll(rows);
+    }
+
+    /**
+     * Record a change of the rows shown by the table, see {@link #applyChanges()}
+     */
+    void entriesChanged(ListChangeListener.Change<? extends LogEntry> change) {
+        while (change.next()) {
+            for (LogEntry entry : change.getRemoved()) {
+                if (!added.remove(entry)) removed.add(entry);
+            }
+            for (LogEntry entry : change.getAddedSubList()) {
+                if (!removed.remove(entry)) added.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Update the groups of the templates whose entries changed since the last call
+     */
+    void applyChanges() {
+        if (added.isEmpty() && removed.isEmpty()) return;
+
+        Map<Integer, Set<LogEntry>> removedByTemplate = new HashMap<>();
+        for (LogEntry entry : removed) {
+            removedByTemplate.computeIfAbsent(entry.getTemplateId(), id -> new HashSet<>()).add(entry);
+        }
+        Set<Integer> changed = new HashSet<>(removedByTemplate.keySet());
+        removedByTemplate.forEach((templateId, gone) -> {
+            List<Timed> group = groups.get(templateId);
+            if (group != null) group.removeIf(timed -> gone.contains(timed.entry));
+        });
+
+        Set<Integer> unsorted = new HashSet<>();
+        for (LogEntry entry : added) {
+            Timed timed = new Timed(entry, DateParser.parseLogDateTime(entry.getDate()));
+            List<Timed> group = groups.computeIfAbsent(entry.getTemplateId(), id -> new ArrayList<>());
+            // New lines usually come after the newest one; older pages are sorted in once per group
+            if (!group.isEmpty() && BY_TIME.compare(group.get(group.size() - 1), timed) > 0) {
+                unsorted.add(entry.getTemplateId());
+            }
+            group.add(timed);
+            changed.add(entry.getTemplateId());
+        }
+        added.clear();
+        removed.clear();
+
+        ObservableList<TreeItem<Row>> rows = table.getRoot().getChildren();
+        List<TreeItem<Row>> next = new ArrayList<>(rows);
+        for (Integer templateId : changed) {
+            List<Timed> group = groups.get(templateId);
+            TreeItem<Row> previous = items.remove(templateId);
+            if (previous != null) next.remove(previous);
+            if (group == null || group.isEmpty()) {
+                groups.remove(templateId);
+                continue;
+            }
+            if (unsorted.contains(templateId)) group.sort(BY_TIME);
+            TreeItem<Row> item = groupItem(templateId, group);
+            item.setExpanded(previous != null && previous.isExpanded());
+            items.put(templateId, item);
+            next.add(item);
+        }
+        next.sort(BY_SIZE);
+        rows.setAll(next);
+    }
+
+    /**
+     * @param group entries of the template, see {@link #BY_TIME}
+     */
+    private static TreeItem<Row> groupItem(int templateId, List<Timed> group) {
+        // Newest first; lines without a date go last
+        List<LogEntry> entries = new NewestFirst(group);
+        String firstSeen = null;
+        for (Timed timed : group) {
+            if (timed.time != null) {
+                firstSeen = timed.entry.getDate();
+                break;
+            }
+        }
+        Timed newest = group.get(group.size() - 1);
+        String lastSeen = newest.time != null ? newest.entry.getDate() : null;
+
+        TemplateMiner.Template mined = TemplateMiner.getInstance().get(templateId);
+        String text = mined != null ? mined.getText() : "(lines without a template)";
+        return new GroupItem(new Row(templateId, text, entries, firstSeen, lastSeen), 0);
+    }
+
+    private static String dateText(Row row) {
+        if (row.entry != null) return row.entry.getDate();
+        if (row.lastSeen == null) return null;
+        return row.firstSeen.equals(row.lastSeen) ? row.lastSeen : row.firstSeen + " – " + row.lastSeen;
+    }
+
+    private record Timed(LogEntry entry, LocalDateTime time) {
+    }
+
+    /**
+     * Entries of a group newest first; the row showing them is replaced whenever the group changes
+     */
+    private static final class NewestFirst extends AbstractList<LogEntry> {
+        private final List<Timed> group;
+
+        private NewestFirst(List<Timed> group) {
+            this.group = group;
+        }
+
+        @Override
+        public LogEntry get(int index) {
+            return group.get(group.size() - 1 - index).entry;
+        }
+
+        @Override
+        public int size() {
+            return group.size();
+        }
+    }
+
+    /**
+     * Template row, or a "more" row continuing one, whose entry rows are created on expansion
+     */
+    private static final class GroupItem extends TreeItem<Row> {
+        private final Row group;
+        private final int skip;
+        private boolean loaded;
+
+        private GroupItem(Row value, Row group, int skip) {
+            super(value);
+            this.group = group;
+            this.skip = skip;
+        }
+
+        private GroupItem(Row group, int skip) {
+            this(group, group, skip);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+
+        @Override
+        public ObservableList<TreeItem<Row>> getChildren() {
+            if (!loaded) {
+                loaded = true;
+                super.getChildren().setAll(readChildren());
+            }
+            return super.getChildren();
+        }
+
+        private List<TreeItem<Row>> readChildren() {
+            List<LogEntry> entries = group.entries;
+            int to = Math.min(entries.size(), skip + AppConfig.TREE_CHILDREN_CHUNK);
+            List<TreeItem<Row>> children = new ArrayList<>(to - skip + 1);
+            for (int i = skip; i < to; i++) {
+                children.add(new TreeItem<>(new Row(entries.get(i))));
+            }
+            if (to < entries.size()) {
+                children.add(new GroupItem(new Row("… " + (entries.size() - to) + " more"), group, to));
+            }
+            return children;
+        }
+    }
+}
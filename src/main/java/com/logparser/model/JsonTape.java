@@ -0,0 +1,374 @@
+package com.logparser.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * JSON payload parsed once into a tape of token offsets into the original String.
+ * <p>
+ * Every value and field name is one token; a node is the index of its token. Containers
+ * know where their last descendant ends, so walking the children of a node skips nested
+ * values without looking at them, and scalars are cut from the source only when asked for.
+ * The tape is immutable and may be shared between threads.
+ */
+public final class JsonTape {
+
+    public enum Type {
+        OBJECT, ARRAY, FIELD_NAME, STRING, NUMBER, TRUE, FALSE, NULL
+    }
+
+    private static final JsonFactory factory = new JsonFactory();
+    private static final Type[] TYPES = Type.values();
+
+    // A token takes a type byte and three ints; the tape adds four array headers
+    private static final long TOKEN_BYTES = 13;
+    private static final long TAPE_OVERHEAD_BYTES = 96;
+
+    /** Marks a payload that is not JSON, so that it is not parsed again */
+    static final JsonTape NOT_JSON = new JsonTape("", new byte[0], new int[0], new int[0], new int[0]);
+
+    private final String source;
+    private final byte[] types;
+    private final int[] starts;
+    private final int[] ends;
+    // Index of the token after the value, i.e. after all descendants of a container
+    private final int[] next;
+
+    private JsonTape(String source, byte[] types, int[] starts, int[] ends, int[] next) {
+        this.source = source;
+        this.types = types;
+        this.starts = starts;
+        this.ends = ends;
+        this.next = next;
+    }
+
+    /**
+     * Parse a payload
+     * @param source raw payload
+     * @return the tape, or {@link #NOT_JSON} if the payload is not a well-formed JSON object or array
+     */
+    static JsonTape parse(String source) {
+        if (source == null || source.isBlank()) return NOT_JSON;
+        int first = 0;
+        while (Character.isWhitespace(source.charAt(first))) first++;
+        if (source.charAt(first) != '{' && source.charAt(first) != '[') return NOT_JSON;
+
+        int capacity = 16;
+        byte[] types = new byte[capacity];
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+        int[] next = new int[capacity];
+        int[] open = new int[16];
+        int depth = 0;
+        int count = 0;
+
+        try (JsonParser parser = factory.createParser(source)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                int start = (int) parser.currentTokenLocation().getCharOffset();
+                if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                    int container = open[--depth];
+                    ends[container] = start + 1;
+                    next[container] = count;
+                    if (depth == 0) break;
+                    continue;
+                }
+
+                if (count == capacity) {
+                    capacity *= 2;
+                    types = Arrays.copyOf(types, capacity);
+                    starts = Arrays.copyOf(starts, capacity);
+                    ends = Arrays.copyOf(ends, capacity);
+                    next = Arrays.copyOf(next, capacity);
+                }
+                Type type = typeOf(token);
+                types[count] = (byte) type.ordinal();
+                starts[count] = start;
+                next[count] = count + 1;
+                switch (type) {
+                    case OBJECT, ARRAY -> {
+                        if (depth == open.length) open = Arrays.copyOf(open, depth * 2);
+                        open[depth++] = count;
+                    }
+                    case FIELD_NAME, STRING -> ends[count] = stringEnd(source, start);
+                    default -> ends[count] = literalEnd(source, start);
+                }
+                count++;
+            }
+            if (depth != 0) return NOT_JSON;
+        } catch (IOException e) {
+            return NOT_JSON;
+        }
+
+        return new JsonTape(source, Arrays.copyOf(types, count), Arrays.copyOf(starts, count),
+                Arrays.copyOf(ends, count), Arrays.copyOf(next, count));
+    }
+
+    /**
+     * Upper bound of the heap the tape of a payload takes, counted without parsing it: every
+     * token but the root follows a comma, a colon or an opening bracket
+     * @param source raw payload
+     * @return estimated size in bytes, 0 if the payload is not a JSON object or array
+     */
+    public static long estimateSize(String source) {
+        if (source == null) return 0;
+        int length = source.length();
+        int first = 0;
+        while (first < length && Character.isWhitespace(source.charAt(first))) first++;
+        if (first == length || (source.charAt(first) != '{' && source.charAt(first) != '[')) return 0;
+
+        long tokens = 1;
+        for (int i = first; i < length; i++) {
+            char c = source.charAt(i);
+            if (c == ',' || c == ':' || c == '{' || c == '[') tokens++;
+        }
+        return TAPE_OVERHEAD_BYTES + TOKEN_BYTES * tokens;
+    }
+
+    /**
+     * @return the root node, an object or an array
+     */
+    public int root() {
+        return 0;
+    }
+
+    public Type type(int node) {
+        return TYPES[types[node]];
+    }
+
+    public boolean isContainer(int node) {
+        return types[node] <= Type.ARRAY.ordinal();
+    }
+
+    /**
+     * First child of a container: the value of its first field or its first element
+     * @return the child, or -1 if the container is empty
+     */
+    public int firstChild(int node) {
+        int child = node + 1;
+        if (child >= next[node]) return -1;
+        return type(node) == Type.OBJECT ? child + 1 : child;
+    }
+
+    /**
+     * Next child of the same container
+     * @param parent container
+     * @param child  a child returned by {@link #firstChild} or this method
+     * @return the next child, or -1 after the last one
+     */
+    public int nextSibling(int parent, int child) {
+        int sibling = next[child];
+        if (sibling >= next[parent]) return -1;
+        return type(parent) == Type.OBJECT ? sibling + 1 : sibling;
+    }
+
+    /**
+     * @param child child of an object
+     * @return name of the field holding the child
+     */
+    public String fieldName(int child) {
+        return unescape(starts[child - 1] + 1, ends[child - 1] - 1);
+    }
+
+    /**
+     * @return number of children of a container
+     */
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChild(node); child >= 0; child = nextSibling(node, child)) count++;
+        return count;
+    }
+
+    /**
+     * Look up a field by path, e.g. {@code user.id} or {@code items.0.id}
+     * @param path field names and array indexes separated by dots
+     * @return the node, or -1 if there is no such field
+     */
+    public int find(String path) {
+        int node = root();
+        int from = 0;
+        while (node >= 0 && from <= path.length()) {
+            int dot = path.indexOf('.', from);
+            int to = dot < 0 ? path.length() : dot;
+            node = child(node, path, from, to);
+            if (dot < 0) return node;
+            from = dot + 1;
+        }
+        return -1;
+    }
+
+    private int child(int node, String path, int from, int to) {
+        if (type(node) == Type.OBJECT) {
+            for (int child = firstChild(node); child >= 0; child = nextSibling(node, child)) {
+                int name = child - 1;
+                int nameStart = starts[name] + 1;
+                int nameEnd = ends[name] - 1;
+                boolean matches = hasEscape(nameStart, nameEnd)
+                        ? fieldName(child).equals(path.substring(from, to))
+                        : nameEnd - nameStart == to - from && source.regionMatches(nameStart, path, from, to - from);
+                if (matches) return child;
+            }
+        } else if (type(node) == Type.ARRAY) {
+            int index;
+            try {
+                index = Integer.parseInt(path, from, to, 10);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            for (int child = firstChild(node); child >= 0; child = nextSibling(node, child)) {
+                if (index-- == 0) return child;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return text of a scalar, strings unescaped; the raw JSON of a container
+     */
+    public String text(int node) {
+        if (type(node) == Type.STRING) {
+            return unescape(starts[node] + 1, ends[node] - 1);
+        }
+        return raw(node);
+    }
+
+    /**
+     * Start of a string, e.g. for showing a long value
+     * @param maxChars maximum length of the source to read
+     * @return the unescaped start of a string; the start of the raw JSON of other nodes
+     */
+    public String textPreview(int node, int maxChars) {
+        if (type(node) == Type.STRING) {
+            return unescape(starts[node] + 1, Math.min(ends[node] - 1, starts[node] + 1 + maxChars));
+        }
+        return source.substring(starts[node], Math.min(ends[node], starts[node] + maxChars));
+    }
+
+    /**
+     * @return the node as it appears in the source
+     */
+    public String raw(int node) {
+        return source.substring(starts[node], ends[node]);
+    }
+
+    /**
+     * @return length of the node in the source
+     */
+    public int rawLength(int node) {
+        return ends[node] - starts[node];
+    }
+
+    /**
+     * Pretty-print the payload in the layout of Jackson's default pretty printer, copying
+     * the scalars as they appear in the source
+     * @param out where to append the text
+     */
+    public void prettyPrint(StringBuilder out) {
+        prettyPrint(root(), 0, out);
+    }
+
+    private void prettyPrint(int node, int indent, StringBuilder out) {
+        switch (type(node)) {
+            case OBJECT -> {
+                int child = firstChild(node);
+                if (child < 0) {
+                    out.append("{ }");
+                    return;
+                }
+                out.append('{');
+                for (; child >= 0; child = nextSibling(node, child)) {
+                    out.append(child == firstChild(node) ? "\n" : ",\n");
+                    out.repeat(' ', indent + 2);
+                    out.append(source, starts[child - 1], ends[child - 1]).append(" : ");
+                    prettyPrint(child, indent + 2, out);
+                }
+                out.append('\n').repeat(' ', indent).append('}');
+            }
+            case ARRAY -> {
+                int child = firstChild(node);
+                if (child < 0) {
+                    out.append("[ ]");
+                    return;
+                }
+                out.append("[ ");
+                for (; child >= 0; child = nextSibling(node, child)) {
+                    if (child != firstChild(node)) out.append(", ");
+                    prettyPrint(child, indent, out);
+                }
+                out.append(" ]");
+            }
+            default -> out.append(source, starts[node], ends[node]);
+        }
+    }
+
+    private static Type typeOf(JsonToken token) {
+        return switch (token) {
+            case START_OBJECT -> Type.OBJECT;
+            case START_ARRAY -> Type.ARRAY;
+            case FIELD_NAME -> Type.FIELD_NAME;
+            case VALUE_STRING -> Type.STRING;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> Type.NUMBER;
+            case VALUE_TRUE -> Type.TRUE;
+            case VALUE_FALSE -> Type.FALSE;
+            default -> Type.NULL;
+        };
+    }
+
+    private static int stringEnd(String source, int start) {
+        for (int i = start + 1; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        return source.length();
+    }
+
+    private static int literalEnd(String source, int start) {
+        int i = start;
+        while (i < source.length() && "{}[],: \t\r\n".indexOf(source.charAt(i)) < 0) i++;
+        return i;
+    }
+
+    private boolean hasEscape(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == '\\') return true;
+        }
+        return false;
+    }
+
+    private String unescape(int from, int to) {
+        if (!hasEscape(from, to)) return source.substring(from, to);
+
+        StringBuilder text = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            if (c != '\\' || i + 1 >= to) {
+                text.append(c);
+                continue;
+            }
+            char escaped = source.charAt(++i);
+            switch (escaped) {
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'n' -> text.append('\n');
+                case 'r' -> text.append('\r');
+                case 't' -> text.append('\t');
+                case 'u' -> {
+                    if (i + 4 < to) {
+                        text.append((char) Integer.parseInt(source, i + 1, i + 5, 16));
+                        i += 4;
+                    }
+                }
+                default -> text.append(escaped);
+            }
+        }
+        return text.toString();
+    }
+}
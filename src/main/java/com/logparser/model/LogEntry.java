@@ -1,5 +1,6 @@
 package com.logparser.model;
 
+import com.logparser.config.AppConfig;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 
@@ -14,6 +15,11 @@ public class LogEntry {
     private String rawLine;
     private final BooleanProperty highlighted = new SimpleBooleanProperty(false);
     private String groupKey;
+    private long offset = -1;
+    private String messagePreview;
+    private JsonTape contextJson;
+    private JsonTape extraJson;
+    private int templateId = -1;
 
     public LogEntry(String date, String file, String level, String message, String context, String extra) {
         this(date, file, level, message, context, extra, true, null);
@@ -46,6 +52,19 @@ public class LogEntry {
         return message;
     }
 
+    /**
+     * Message cut to {@link AppConfig#MESSAGE_PREVIEW_LENGTH} characters for the table;
+     * computed on first use and kept
+     * @return the preview, or null if the entry has no message
+     */
+    public String getMessagePreview() {
+        if (messagePreview == null && message != null) {
+            messagePreview = message.length() > AppConfig.MESSAGE_PREVIEW_LENGTH
+                    ? message.substring(0, AppConfig.MESSAGE_PREVIEW_LENGTH) + "..." : message;
+        }
+        return messagePreview;
+    }
+
     public String getContext() {
         return context;
     }
@@ -54,6 +73,28 @@ public class LogEntry {
         return extra;
     }
 
+    /**
+     * Context parsed on first use and kept, shared by the filters and the detail panel
+     * @return the parsed context, or null if it is not a JSON object or array
+     */
+    public JsonTape getContextJson() {
+        if (contextJson == null) {
+            contextJson = JsonTape.parse(context);
+        }
+        return contextJson != JsonTape.NOT_JSON ? contextJson : null;
+    }
+
+    /**
+     * Extra parsed on first use and kept, see {@link #getContextJson()}
+     * @return the parsed extra, or null if it is not a JSON object or array
+     */
+    public JsonTape getExtraJson() {
+        if (extraJson == null) {
+            extraJson = JsonTape.parse(extra);
+        }
+        return extraJson != JsonTape.NOT_JSON ? extraJson : null;
+    }
+
     public boolean isValid() {
         return valid;
     }
@@ -81,4 +122,28 @@ public class LogEntry {
     public void setGroupKey(String groupKey) {
         this.groupKey = groupKey;
     }
-}
\ No newline at end of file
+
+    /**
+     * Byte offset of the entry in its source file
+     * @return offset, or -1 if unknown
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * Id of the message template, see {@link com.logparser.parser.TemplateMiner}
+     * @return template id, or -1 if the entry was not mined
+     */
+    public int getTemplateId() {
+        return templateId;
+    }
+
+    public void setTemplateId(int templateId) {
+        this.templateId = templateId;
+    }
+}
@@ -1,6 +1,9 @@
 package com.logparser.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.logparser.config.AppConfig;
+
+import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Profile {
@@ -12,6 +15,8 @@ public class Profile {
     private int port;
     private String username;
     private String password;
+    private boolean useAgent;
+    private List<String> extractedFields;
 
     public Profile() {}
 
@@ -74,6 +79,26 @@ public class Profile {
         this.password = password;
     }
 
+    public boolean isUseAgent() {
+        return useAgent;
+    }
+
+    public void setUseAgent(boolean useAgent) {
+        this.useAgent = useAgent;
+    }
+
+    /**
+     * JSON keys of context and extra indexed for correlating entries, e.g. request_id
+     * @return the configured keys, or the defaults if none were set
+     */
+    public List<String> getExtractedFields() {
+        return extractedFields != null ? extractedFields : AppConfig.DEFAULT_EXTRACTED_FIELDS;
+    }
+
+    public void setExtractedFields(List<String> extractedFields) {
+        this.extractedFields = extractedFields;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
@@ -0,0 +1,221 @@
+package com.logparser.parser;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Online miner of message templates after Drain: entries whose messages differ only in
+ * ids and other variable tokens get the same template.
+ * <p>
+ * The first line of a message is split into tokens; tokens holding a digit are masked as
+ * variables. A fixed-depth tree routes the message by its token count and its first
+ * {@link AppConfig#TEMPLATE_TREE_DEPTH} tokens to a small list of templates, and the most
+ * similar one takes the message if at least {@link AppConfig#TEMPLATE_SIMILARITY} of its
+ * tokens match; the tokens that differ become variables. Otherwise the message starts a
+ * new template.
+ * <p>
+ * The miner lives as long as the application, so it is bounded: a leaf holding
+ * {@link AppConfig#TEMPLATE_MAX_PER_LEAF} templates, or a miner holding
+ * {@link AppConfig#TEMPLATE_MAX_TEMPLATES}, merges a new message into the most similar
+ * template of its leaf instead. A message arriving at an empty leaf of a full miner gets no
+ * template.
+ * <p>
+ * Entries may be parsed on virtual threads, so the tree is guarded by a lock rather than a
+ * monitor.
+ */
+public final class TemplateMiner {
+
+    public static final String VARIABLE = "<*>";
+
+    /**
+     * Template of a group of messages. Its tokens change under the miner's lock; the text
+     * is a snapshot taken after each change, so it can be read without the lock.
+     */
+    public static final class Template {
+        private final int id;
+        private final String[] tokens;
+        private volatile String text;
+
+        private Template(int id, String[] tokens) {
+            this.id = id;
+            this.tokens = tokens;
+            this.text = String.join(" ", tokens);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the template, variables shown as {@link #VARIABLE}
+         */
+        public String getText() {
+            return text;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Template> templates = new ArrayList<>();
+    }
+
+    private static final TemplateMiner instance = new TemplateMiner();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, Node> byLength = new HashMap<>();
+    private final List<Template> templates = new ArrayList<>();
+
+    TemplateMiner() {
+    }
+
+    public static TemplateMiner getInstance() {
+        return instance;
+    }
+
+    /**
+     * Assign a parsed entry to its template, see {@link LogEntry#getTemplateId()}
+     * @param entry parsed entry
+     */
+    public void add(LogEntry entry) {
+        String[] tokens = tokenize(entry.getMessage());
+
+        lock.lock();
+        try {
+            Node leaf = leaf(tokens);
+            Template template = closest(leaf.templates, tokens);
+            boolean full = leaf.templates.size() >= AppConfig.TEMPLATE_MAX_PER_LEAF
+                    || templates.size() >= AppConfig.TEMPLATE_MAX_TEMPLATES;
+            if (template != null && (full || similarity(template, tokens) >= AppConfig.TEMPLATE_SIMILARITY)) {
+                merge(template, tokens);
+            } else if (!full) {
+                template = new Template(templates.size(), tokens);
+                templates.add(template);
+                leaf.templates.add(template);
+            } else {
+                return;
+            }
+            entry.setTemplateId(template.id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param id template id of an entry
+     * @return the template, or null if the id is unknown
+     */
+    public Template get(int id) {
+        lock.lock();
+        try {
+            return id >= 0 && id < templates.size() ? templates.get(id) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of templates mined so far
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return templates.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String[] tokenize(String message) {
+        List<String> tokens = new ArrayList<>();
+        int length = message != null ? message.length() : 0;
+        int i = 0;
+        while (i < length && message.charAt(i) != '\n') {
+            if (Character.isWhitespace(message.charAt(i))) {
+                i++;
+                continue;
+            }
+            if (tokens.size() == AppConfig.TEMPLATE_MAX_TOKENS) {
+                // Everything past the limit counts as one variable tail
+                tokens.add(VARIABLE);
+                break;
+            }
+            int start = i;
+            boolean digit = false;
+            while (i < length && !Character.isWhitespace(message.charAt(i))) {
+                digit |= Character.isDigit(message.charAt(i));
+                i++;
+            }
+            // Tokens holding a digit are ids, numbers, times and the like
+            tokens.add(digit ? VARIABLE : message.substring(start, i));
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private Node leaf(String[] tokens) {
+        Node node = byLength.computeIfAbsent(tokens.length, length -> new Node());
+        int depth = Math.min(AppConfig.TEMPLATE_TREE_DEPTH, tokens.length);
+        for (int i = 0; i < depth; i++) {
+            String token = tokens[i];
+            Node child = node.children.get(token);
+            if (child == null) {
+                // A crowded level sends the rest of the messages to its variable branch
+                if (node.children.size() >= AppConfig.TEMPLATE_MAX_CHILDREN) token = VARIABLE;
+                child = node.children.computeIfAbsent(token, t -> new Node());
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * @return the most similar template, on a tie the more general one; null if there is none
+     */
+    private static Template closest(List<Template> candidates, String[] tokens) {
+        Template best = null;
+        double bestSimilarity = -1;
+        int bestVariables = -1;
+        for (Template template : candidates) {
+            int variables = 0;
+            for (String token : template.tokens) {
+                if (token.equals(VARIABLE)) variables++;
+            }
+            double similarity = similarity(template, tokens);
+            if (similarity > bestSimilarity || (similarity == bestSimilarity && variables > bestVariables)) {
+                best = template;
+                bestSimilarity = similarity;
+                bestVariables = variables;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return share of the tokens equal to those of the template; a masked token matches a
+     *         variable, a constant one does not
+     */
+    private static double similarity(Template template, String[] tokens) {
+        if (tokens.length == 0) return 1;
+        int same = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (template.tokens[i].equals(tokens[i])) same++;
+        }
+        return (double) same / tokens.length;
+    }
+
+    private static void merge(Template template, String[] tokens) {
+        boolean changed = false;
+        for (int i = 0; i < tokens.length; i++) {
+            if (!template.tokens[i].equals(tokens[i])) {
+                template.tokens[i] = VARIABLE;
+                changed = true;
+            }
+        }
+        if (changed) template.text = String.join(" ", template.tokens);
+    }
+}
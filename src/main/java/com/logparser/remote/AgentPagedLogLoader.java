@@ -0,0 +1,77 @@
+package com.logparser.remote;
+
+import com.logparser.cache.EntrySource;
+import com.logparser.config.AppConfig;
+import com.logparser.loader.PageBatcher;
+import com.logparser.loader.PagedLoader;
+import com.logparser.model.LogEntry;
+import com.logparser.parser.LogParser;
+import com.logparser.utils.LogEntryFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Pages a remote file by shipping page queries to the remote indexing agent
+ */
+public class AgentPagedLogLoader implements PagedLoader {
+
+    private final RemoteAgentClient agent;
+    private final String fileName;
+    private final LogParser parser;
+    private final EntrySource source;
+    private final int pageSize;
+    private long filePointer = -1; // -1 until the first page: the agent reads from the end of the file
+
+    public AgentPagedLogLoader(RemoteAgentClient agent, String fileName, LogParser parser, EntrySource source) {
+        this.agent = agent;
+        this.fileName = fileName;
+        this.parser = parser;
+        this.source = source;
+        this.pageSize = AppConfig.DEFAULT_PAGE_SIZE;
+    }
+
+    @Override
+    public List<LogEntry> loadNextPage(Consumer<List<LogEntry>> onBatch) throws IOException {
+        PageBatcher batcher = new PageBatcher(onBatch);
+        if (!hasMore()) {
+            return batcher.finish();
+        }
+
+        RemoteAgentClient.Page page = agent.page(fileName, filePointer, pageSize);
+        List<RemoteAgentClient.Line> lines = page.getLines();
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            RemoteAgentClient.Line line = lines.get(i);
+            if (line.getText().isBlank()) continue;
+            batcher.add(LogEntryFactory.parseOrInvalid(parser, line.getText(), source, line.getOffset()));
+        }
+        filePointer = page.getStartOffset();
+        return batcher.finish();
+    }
+
+    @Override
+    public boolean hasMore() {
+        return filePointer != 0;
+    }
+
+    @Override
+    public long getPosition() {
+        return filePointer;
+    }
+
+    @Override
+    public void setPosition(long position) {
+        filePointer = position;
+    }
+
+    @Override
+    public void reset() {
+        filePointer = -1;
+    }
+
+    @Override
+    public void close() {
+        // The agent is owned by the accessor and shared between loaders
+    }
+}
@@ -0,0 +1,81 @@
+package com.logparser.remote;
+
+import com.logparser.cache.EntrySource;
+import com.logparser.config.AppConfig;
+import com.logparser.loader.PagedLoader;
+import com.logparser.model.LogEntry;
+import com.logparser.parser.LogParser;
+import com.logparser.utils.PagedLogLoader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Pages a remote file through its local mirror first and falls back to
+ * reading the remote file for the history older than the mirrored range.
+ */
+public class MirroredPagedLogLoader implements PagedLoader {
+
+    private final PagedLogLoader localLoader;
+    private final RemoteFileAccessor accessor;
+    private final EntrySource source;
+    private final LogParser parser;
+    private final long baseOffset;
+    private RemotePagedLogLoader remoteLoader;
+
+    public MirroredPagedLogLoader(RemoteLogMirror.SyncResult mirror, RemoteFileAccessor accessor, EntrySource source, LogParser parser) {
+        this.localLoader = new PagedLogLoader(mirror.getFile(), parser, source.withBaseOffset(mirror.getBaseOffset()));
+        this.accessor = accessor;
+        this.source = source;
+        this.parser = parser;
+        this.baseOffset = mirror.getBaseOffset();
+    }
+
+    @Override
+    public List<LogEntry> loadNextPage(Consumer<List<LogEntry>> onBatch) throws IOException {
+        if (localLoader.hasMore()) {
+            return localLoader.loadNextPage(onBatch);
+        }
+        if (remoteLoader == null) {
+            remoteLoader = new RemotePagedLogLoader(accessor, source, parser, AppConfig.DEFAULT_PAGE_SIZE, baseOffset);
+        }
+        return remoteLoader.loadNextPage(onBatch);
+    }
+
+    @Override
+    public boolean hasMore() {
+        return localLoader.hasMore() || (remoteLoader == null ? baseOffset > 0 : remoteLoader.hasMore());
+    }
+
+    @Override
+    public long getPosition() {
+        return remoteLoader == null ? baseOffset + localLoader.getPosition() : remoteLoader.getPosition();
+    }
+
+    @Override
+    public void setPosition(long position) throws IOException {
+        if (position >= baseOffset) {
+            localLoader.setPosition(position - baseOffset);
+            remoteLoader = null;
+            return;
+        }
+        localLoader.setPosition(0);
+        if (remoteLoader == null) {
+            remoteLoader = new RemotePagedLogLoader(accessor, source, parser, AppConfig.DEFAULT_PAGE_SIZE, baseOffset);
+        }
+        remoteLoader.setPosition(position);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        localLoader.reset();
+        remoteLoader = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        localLoader.close();
+        // The accessor is shared with the watcher and stays connected
+    }
+}
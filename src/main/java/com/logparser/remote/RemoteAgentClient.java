@@ -0,0 +1,273 @@
+package com.logparser.remote;
+
+import com.jcraft.jsch.ChannelExec;
+import com.logparser.agent.AgentJarBuilder;
+import com.logparser.agent.AgentProtocol;
+import com.logparser.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client side of the remote indexing agent.
+ * <p>
+ * Uploads the agent jar once per agent version, starts it over an exec channel and
+ * ships page, grep and level-count queries to it instead of moving file bytes over
+ * SFTP.
+ */
+public class RemoteAgentClient implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteAgentClient.class);
+    private static final String AGENT_DIR = ".logparser";
+
+    /**
+     * A line of a remote file with its byte offset
+     */
+    public static final class Line {
+        private final long offset;
+        private final String text;
+
+        Line(long offset, String text) {
+            this.offset = offset;
+            this.text = text;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * A page of lines in file order, read backwards from an end offset
+     */
+    public static final class Page {
+        private final long startOffset;
+        private final List<Line> lines;
+
+        Page(long startOffset, List<Line> lines) {
+            this.startOffset = startOffset;
+            this.lines = lines;
+        }
+
+        /** Offset of the first line of the page, the end offset of the previous page */
+        public long getStartOffset() {
+            return startOffset;
+        }
+
+        public List<Line> getLines() {
+            return lines;
+        }
+    }
+
+    private final ChannelExec channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final String directory;
+
+    private RemoteAgentClient(ChannelExec channel, String directory) throws Exception {
+        this.channel = channel;
+        this.directory = directory;
+        this.in = new DataInputStream(new UninterruptibleInputStream(channel.getInputStream()));
+        this.out = new DataOutputStream(channel.getOutputStream());
+        channel.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
+    }
+
+    /**
+     * Upload (if needed) and start the agent for a log directory.
+     *
+     * @param accessor  connected accessor of the host
+     * @param directory remote log directory served by the agent
+     * @return started agent client
+     * @throws Exception if Java is missing on the host or the agent does not answer
+     */
+    public static RemoteAgentClient launch(SftpRemoteFileAccessor accessor, String directory) throws Exception {
+        if (accessor.execForExitStatus("command -v java") != 0) {
+            throw new IOException("Java is not available on the remote host");
+        }
+
+        String jarPath = AGENT_DIR + "/" + AgentJarBuilder.jarName();
+        if (!accessor.exists(jarPath)) {
+            accessor.execForExitStatus("mkdir -p " + AGENT_DIR);
+            accessor.upload(AgentJarBuilder.build(), jarPath);
+            log.info("Uploaded remote agent: {}", jarPath);
+        }
+
+        ChannelExec exec = accessor.openExecChannel("exec java -Xmx" + AppConfig.AGENT_MAX_HEAP_MB + "m -jar "
+                + SftpRemoteFileAccessor.shellQuote(jarPath) + " " + SftpRemoteFileAccessor.shellQuote(directory));
+        RemoteAgentClient client = new RemoteAgentClient(exec, directory);
+        try {
+            client.hello();
+        } catch (Exception e) {
+            client.close();
+            throw e;
+        }
+        log.info("Remote agent started for: {}", directory);
+        return client;
+    }
+
+    private void hello() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new DataOutputStream(buffer).writeByte(AgentProtocol.OP_HELLO);
+        AgentProtocol.writeFrame(out, buffer.toByteArray());
+
+        // A missing or too old JVM exits without answering; don't block on it forever
+        long deadline = System.currentTimeMillis() + AppConfig.AGENT_START_TIMEOUT_MS;
+        while (in.available() < Integer.BYTES) {
+            if (channel.isClosed() || System.currentTimeMillis() > deadline) {
+                throw new IOException("Remote agent did not start (exit status " + channel.getExitStatus() + ")");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while starting remote agent", e);
+            }
+        }
+
+        int version = read(AgentProtocol.readFrame(in)).readInt();
+        if (version != AgentProtocol.VERSION) {
+            throw new IOException("Unsupported remote agent version: " + version);
+        }
+    }
+
+    public Page page(String fileName, long endOffset, int maxLines) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream request = new DataOutputStream(buffer);
+        request.writeByte(AgentProtocol.OP_PAGE);
+        AgentProtocol.writeString(request, fileName);
+        request.writeLong(endOffset);
+        request.writeInt(maxLines);
+
+        DataInputStream response = call(buffer.toByteArray());
+        long startOffset = response.readLong();
+        return new Page(startOffset, readLines(response));
+    }
+
+    public List<Line> grep(String fileName, String term, int maxMatches) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream request = new DataOutputStream(buffer);
+        request.writeByte(AgentProtocol.OP_GREP);
+        AgentProtocol.writeString(request, fileName);
+        AgentProtocol.writeString(request, term);
+        request.writeInt(maxMatches);
+        return readLines(call(buffer.toByteArray()));
+    }
+
+    public Map<String, Long> levelCounts(String fileName) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream request = new DataOutputStream(buffer);
+        request.writeByte(AgentProtocol.OP_LEVEL_COUNT);
+        AgentProtocol.writeString(request, fileName);
+
+        DataInputStream response = call(buffer.toByteArray());
+        int count = response.readInt();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            counts.put(AgentProtocol.readString(response), response.readLong());
+        }
+        return counts;
+    }
+
+    private synchronized DataInputStream call(byte[] request) throws IOException {
+        byte[] response;
+        try {
+            AgentProtocol.writeFrame(out, request);
+            response = AgentProtocol.readFrame(in);
+        } catch (IOException e) {
+            // A call failed halfway leaves the stream out of sync; the agent is restarted on next use
+            close();
+            throw e;
+        }
+        return read(response);
+    }
+
+    private static DataInputStream read(byte[] frame) throws IOException {
+        DataInputStream response = new DataInputStream(new ByteArrayInputStream(frame));
+        if (response.readByte() != AgentProtocol.STATUS_OK) {
+            throw new IOException("Remote agent error: " + AgentProtocol.readString(response));
+        }
+        return response;
+    }
+
+    private static List<Line> readLines(DataInputStream response) throws IOException {
+        int count = response.readInt();
+        List<Line> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(new Line(response.readLong(), AgentProtocol.readString(response)));
+        }
+        return lines;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public boolean isAlive() {
+        return channel.isConnected() && !channel.isClosed();
+    }
+
+    @Override
+    public void close() {
+        channel.disconnect();
+    }
+
+    /**
+     * Agent responses are short, and one abandoned halfway would be read as the answer to
+     * the next call: a wait interrupted by a cancelled load is resumed, and the interrupt
+     * is restored once the data arrived so the caller still stops right after the call.
+     */
+    private static final class UninterruptibleInputStream extends FilterInputStream {
+
+        UninterruptibleInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return super.read();
+                    } catch (InterruptedIOException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return super.read(b, off, len);
+                    } catch (InterruptedIOException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
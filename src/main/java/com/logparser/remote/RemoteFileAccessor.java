@@ -5,15 +5,14 @@ import java.io.IOException;
 public interface RemoteFileAccessor {
     void connect() throws Exception;
     void disconnect();
-    long getFileSize() throws Exception;
-    byte[] read(long offset, int length);
-    byte[] readLastBytes(int maxBytes);
+    long getFileSize(String path) throws Exception;
 
     /**
      * Читает чанк данных из файла начиная с указанного offset
+     * @param path путь к файлу на сервере
      * @param offset позиция начала чтения
      * @param length количество байт для чтения
      * @return массив прочитанных байт
      */
-    byte[] readChunk(long offset, int length);
-}
\ No newline at end of file
+    byte[] readChunk(String path, long offset, int length);
+}
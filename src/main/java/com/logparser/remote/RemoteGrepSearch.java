@@ -0,0 +1,171 @@
+package com.logparser.remote;
+
+import com.jcraft.jsch.ChannelExec;
+import com.logparser.cache.EntrySource;
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import com.logparser.parser.LogParser;
+import com.logparser.utils.LogEntryFactory;
+import com.logparser.utils.RecordAssembler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Searches a remote file on the server with {@code grep} over an exec channel.
+ * <p>
+ * Only matching lines travel over the wire, each prefixed with its byte offset
+ * ({@code grep -b}), so the surrounding lines can be fetched on demand through
+ * {@link SftpRemoteFileAccessor#readChunk(String, long, int)}. The exit status of grep is
+ * echoed as the last line, so the search is complete when the output ends.
+ */
+public class RemoteGrepSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteGrepSearch.class);
+    // Prefix of the last output line; unlike a match it has no byte offset before the colon
+    private static final String EXIT_MARKER = "grep-exit:";
+
+    private final SftpRemoteFileAccessor accessor;
+    private final LogParser parser;
+    private volatile ChannelExec channel;
+    private volatile boolean cancelled;
+
+    public RemoteGrepSearch(SftpRemoteFileAccessor accessor, LogParser parser) {
+        this.accessor = accessor;
+        this.parser = parser;
+    }
+
+    /**
+     * Run a case-insensitive fixed-string search and stream the matches.
+     *
+     * @param source  remote file to search
+     * @param term    text to search for
+     * @param onBatch receives parsed matches, with offsets set, in batches
+     * @return number of matches found; {@link AppConfig#REMOTE_GREP_MAX_MATCHES} means grep
+     *         stopped there, see {@link #isCapped(int)}
+     * @throws Exception if the command cannot be run or grep reports an error
+     */
+    public int search(EntrySource source, String term, Consumer<List<LogEntry>> onBatch) throws Exception {
+        String remotePath = source.path();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        ChannelExec exec = accessor.openExecChannel(buildCommand(remotePath, term, AppConfig.REMOTE_GREP_MAX_MATCHES));
+        exec.setErrStream(errors);
+        InputStream input = exec.getInputStream();
+        exec.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
+        channel = exec;
+
+        int matches = 0;
+        try {
+            RecordAssembler assembler = new RecordAssembler();
+            byte[] chunk = new byte[AppConfig.DEFAULT_BUFFER_SIZE];
+            List<LogEntry> batch = new ArrayList<>();
+            int exitStatus = -1;
+            int read;
+
+            while (!cancelled && (read = input.read(chunk)) != -1) {
+                for (String line : assembler.feed(chunk, read)) {
+                    if (line.startsWith(EXIT_MARKER)) {
+                        exitStatus = Integer.parseInt(line.substring(EXIT_MARKER.length()).trim());
+                        continue;
+                    }
+                    LogEntry entry = parseMatch(line, source);
+                    if (entry == null) continue;
+                    batch.add(entry);
+                    matches++;
+                }
+                if (batch.size() >= AppConfig.REMOTE_GREP_BATCH_SIZE || (!batch.isEmpty() && input.available() == 0)) {
+                    onBatch.accept(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!cancelled && !batch.isEmpty()) {
+                onBatch.accept(batch);
+            }
+
+            if (cancelled) return matches;
+            if (exitStatus < 0) {
+                throw new IOException("Remote grep ended early: " + remotePath);
+            }
+            // grep exits with 1 when nothing matched, anything above is a real error
+            if (exitStatus > 1) {
+                throw new IOException("Remote grep failed: " + errors.toString(StandardCharsets.UTF_8).trim());
+            }
+        } finally {
+            channel = null;
+            exec.disconnect();
+        }
+
+        log.debug("Remote grep for '{}' in {} returned {} matches", term, remotePath, matches);
+        return matches;
+    }
+
+    /**
+     * Stop a running search; the search call returns with the matches delivered so far
+     */
+    public void cancel() {
+        cancelled = true;
+        ChannelExec current = channel;
+        if (current != null) {
+            current.disconnect();
+        }
+    }
+
+    /**
+     * Fetch the complete lines surrounding a byte offset of the remote file
+     *
+     * @param remotePath full remote path of the file
+     * @param offset     offset of the line of interest
+     * @return text of the surrounding lines
+     */
+    public String fetchContext(String remotePath, long offset) {
+        long start = Math.max(0, offset - AppConfig.REMOTE_GREP_CONTEXT_BYTES);
+        byte[] data = accessor.readChunk(remotePath, start, AppConfig.REMOTE_GREP_CONTEXT_BYTES * 2);
+
+        int from = 0;
+        if (start > 0) {
+            while (from < data.length && data[from] != '\n') from++;
+            from = Math.min(from + 1, data.length);
+        }
+        int to = data.length;
+        while (to > from && data[to - 1] != '\n') to--;
+        if (to == from) to = data.length;
+
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    static String buildCommand(String remotePath, String term, int maxMatches) {
+        return "LC_ALL=C grep -b -i -F -m " + maxMatches
+                + " -e " + SftpRemoteFileAccessor.shellQuote(term)
+                + " -- " + SftpRemoteFileAccessor.shellQuote(remotePath)
+                + "; echo \"" + EXIT_MARKER + "$?\"";
+    }
+
+    /**
+     * @param matches number of matches a search returned
+     * @return true if the search stopped at {@link AppConfig#REMOTE_GREP_MAX_MATCHES}, so more may exist
+     */
+    public static boolean isCapped(int matches) {
+        return matches >= AppConfig.REMOTE_GREP_MAX_MATCHES;
+    }
+
+    LogEntry parseMatch(String line, EntrySource source) {
+        int separator = line.indexOf(':');
+        if (separator <= 0) return null;
+
+        long offset;
+        try {
+            offset = Long.parseLong(line.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        return LogEntryFactory.parseOrInvalid(parser, line.substring(separator + 1), source, offset);
+    }
+}
@@ -0,0 +1,165 @@
+package com.logparser.remote;
+
+import com.logparser.service.ExecutorServiceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the remote I/O of one host on a fixed number of workers.
+ * <p>
+ * Jobs carry a key (typically the remote file path): a key is never run twice at the
+ * same time, and submitting a key that is already waiting is a no-op, so a file that
+ * keeps changing costs at most one queued and one running job. Waiting jobs run in
+ * {@link Priority} order, then in submission order.
+ * <p>
+ * Workers run on the remote pool of the {@link ExecutorServiceManager}. They are started
+ * when a job is queued and end when nothing is left to run, so an idle host holds no thread
+ * of the bounded pool.
+ */
+public class RemoteIoScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteIoScheduler.class);
+
+    public enum Priority {
+        /** Work for the file selected in the file list */
+        SELECTED,
+        /** Work for the displayed profile */
+        FOREGROUND,
+        /** Work for profiles watched in the background */
+        BACKGROUND
+    }
+
+    private static final class Job {
+        private final String key;
+        private final Runnable task;
+        private final long sequence;
+        private Priority priority;
+
+        Job(String key, Priority priority, Runnable task, long sequence) {
+            this.key = key;
+            this.priority = priority;
+            this.task = task;
+            this.sequence = sequence;
+        }
+    }
+
+    private final TreeSet<Job> waiting = new TreeSet<>(
+            Comparator.<Job, Priority>comparing(job -> job.priority).thenComparingLong(job -> job.sequence));
+    private final Map<String, Job> waitingByKey = new HashMap<>();
+    private final Set<String> running = new HashSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final String name;
+    private final int threads;
+    private int workers;
+    private long sequence;
+    private boolean shutdown;
+
+    /**
+     * @param name    task name of the workers, see {@link ExecutorServiceManager#executeRemote}
+     * @param threads maximum number of jobs running at the same time
+     */
+    public RemoteIoScheduler(String name, int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+    /**
+     * Queue a job unless one with the same key is already waiting; the waiting job is
+     * raised to the given priority instead.
+     *
+     * @param key      coalescing key
+     * @param priority priority of the job
+     * @param task     work to run
+     * @return true if the job was queued
+     */
+    public boolean submit(String key, Priority priority, Runnable task) {
+        lock.lock();
+        try {
+            if (shutdown) return false;
+
+            Job existing = waitingByKey.get(key);
+            if (existing != null) {
+                if (priority.compareTo(existing.priority) < 0) {
+                    waiting.remove(existing);
+                    existing.priority = priority;
+                    waiting.add(existing);
+                }
+                return false;
+            }
+
+            Job job = new Job(key, priority, task, sequence++);
+            waiting.add(job);
+            waitingByKey.put(key, job);
+            if (workers < threads) {
+                workers++;
+                ExecutorServiceManager.getInstance().executeRemote(name, this::work);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop the waiting jobs and stop the workers once their current job is done
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            waiting.clear();
+            waitingByKey.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        Job job;
+        while ((job = take()) != null) {
+            try {
+                job.task.run();
+            } catch (RuntimeException e) {
+                log.error("Remote I/O job {} failed", job.key, e);
+            } finally {
+                lock.lock();
+                try {
+                    running.remove(job.key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next job whose key is not running, or null if the worker is to end
+     */
+    private Job take() {
+        lock.lock();
+        try {
+            if (!shutdown) {
+                for (Job job : waiting) {
+                    if (running.contains(job.key)) continue;
+                    waiting.remove(job);
+                    waitingByKey.remove(job.key);
+                    running.add(job.key);
+                    return job;
+                }
+            }
+            // A job left waiting has its key running; the worker running it takes it afterwards
+            workers--;
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
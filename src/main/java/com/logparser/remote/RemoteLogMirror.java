@@ -0,0 +1,250 @@
+package com.logparser.remote;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logparser.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent on-disk mirror of remote log files.
+ * <p>
+ * Every mirrored file keeps the remote bytes already fetched together with a small
+ * state file describing which remote range is mirrored and a checksum of its tail block.
+ * On each sync only the newly appended range is downloaded; a shrunk file or a tail
+ * block that no longer matches means the remote file was rotated or truncated and the
+ * mirror is rebuilt from the remote tail.
+ */
+public class RemoteLogMirror {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteLogMirror.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String STATE_SUFFIX = ".state.json";
+
+    private final File baseDir;
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public RemoteLogMirror(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Result of a mirror synchronisation
+     */
+    public static final class SyncResult {
+        private final File file;
+        private final long baseOffset;
+        private final long previousLength;
+        private final long length;
+        private final boolean reset;
+
+        SyncResult(File file, long baseOffset, long previousLength, long length, boolean reset) {
+            this.file = file;
+            this.baseOffset = baseOffset;
+            this.previousLength = previousLength;
+            this.length = length;
+            this.reset = reset;
+        }
+
+        /** Local mirror file */
+        public File getFile() {
+            return file;
+        }
+
+        /** Remote offset of the first mirrored byte */
+        public long getBaseOffset() {
+            return baseOffset;
+        }
+
+        /** Local length before this sync (0 if the mirror was rebuilt) */
+        public long getPreviousLength() {
+            return previousLength;
+        }
+
+        /** Local length after this sync */
+        public long getLength() {
+            return length;
+        }
+
+        /** True if the mirror was (re)created from scratch */
+        public boolean isReset() {
+            return reset;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static final class MirrorState {
+        public long baseOffset;
+        public long endOffset;
+        public long tailChecksum;
+        public int tailLength;
+    }
+
+    /**
+     * Bring the local mirror of a remote file up to date.
+     *
+     * @param profileId  id of the profile the file belongs to
+     * @param accessor   connected SFTP accessor of the profile
+     * @param remotePath full remote path of the file
+     * @return sync result describing the local mirror file
+     * @throws IOException if the remote file cannot be read or the mirror cannot be written
+     */
+    public SyncResult sync(String profileId, SftpRemoteFileAccessor accessor, String remotePath) throws IOException {
+        File file = getMirrorFile(profileId, remotePath);
+        synchronized (locks.computeIfAbsent(file.getAbsolutePath(), k -> new Object())) {
+            return doSync(file, accessor, remotePath);
+        }
+    }
+
+    private SyncResult doSync(File file, SftpRemoteFileAccessor accessor, String remotePath) throws IOException {
+        long remoteSize;
+        try {
+            remoteSize = accessor.getFileSize(remotePath);
+        } catch (Exception e) {
+            throw new IOException("Failed to stat remote file: " + remotePath, e);
+        }
+
+        long maxReadSize = AppConfig.MAX_INCREMENTAL_READ_MB * 1024L * 1024L;
+        MirrorState state = loadState(file);
+
+        boolean reset = state == null
+                || !file.isFile()
+                || file.length() != state.endOffset - state.baseOffset;
+        if (!reset && (remoteSize < state.endOffset || !tailMatches(state, accessor, remotePath))) {
+            log.info("Remote file rotated or truncated, rebuilding mirror: {}", remotePath);
+            reset = true;
+        }
+
+        // However much was appended since the last sync is topped up chunk by chunk below
+        if (reset) {
+            state = new MirrorState();
+            state.baseOffset = Math.max(0, remoteSize - maxReadSize);
+            state.endOffset = state.baseOffset;
+        }
+
+        long previousLength = reset ? 0 : file.length();
+
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create mirror directory: " + parent.getAbsolutePath());
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (reset) {
+                raf.setLength(0);
+            }
+            raf.seek(raf.length());
+
+            boolean skipPartialLine = reset && state.baseOffset > 0;
+            long offset = state.endOffset;
+            try {
+                while (offset < remoteSize) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Mirror sync cancelled: " + remotePath);
+                    }
+                    int length = (int) Math.min(AppConfig.REMOTE_READ_MAX_BYTES, remoteSize - offset);
+                    byte[] data = accessor.readChunk(remotePath, offset, length);
+                    if (data.length == 0) {
+                        throw new IOException("Short read at offset " + offset + " from: " + remotePath);
+                    }
+
+                    int start = 0;
+                    if (skipPartialLine) {
+                        while (start < data.length && data[start] != '\n') start++;
+                        if (start < data.length) {
+                            start++;
+                            skipPartialLine = false;
+                        }
+                        state.baseOffset = offset + start;
+                    }
+
+                    raf.write(data, start, data.length - start);
+                    offset += data.length;
+                }
+            } finally {
+                // Keep what was mirrored so far, a cancelled or failed sync resumes from there
+                state.endOffset = offset;
+                updateTailChecksum(state, raf);
+                saveState(file, state);
+            }
+        }
+
+        return new SyncResult(file, state.baseOffset, previousLength, file.length(), reset);
+    }
+
+    private boolean tailMatches(MirrorState state, SftpRemoteFileAccessor accessor, String remotePath) {
+        if (state.tailLength == 0) {
+            return true;
+        }
+        byte[] tail = accessor.readChunk(remotePath, state.endOffset - state.tailLength, state.tailLength);
+        return tail.length == state.tailLength && checksum(tail, tail.length) == state.tailChecksum;
+    }
+
+    private void updateTailChecksum(MirrorState state, RandomAccessFile raf) throws IOException {
+        int tailLength = (int) Math.min(AppConfig.MIRROR_TAIL_CHECK_BYTES, raf.length());
+        byte[] tail = new byte[tailLength];
+        raf.seek(raf.length() - tailLength);
+        raf.readFully(tail);
+        state.tailLength = tailLength;
+        state.tailChecksum = checksum(tail, tailLength);
+    }
+
+    private static long checksum(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return crc.getValue();
+    }
+
+    private MirrorState loadState(File file) {
+        File stateFile = new File(file.getPath() + STATE_SUFFIX);
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            return mapper.readValue(stateFile, MirrorState.class);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable mirror state: {}", stateFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private void saveState(File file, MirrorState state) throws IOException {
+        mapper.writeValue(new File(file.getPath() + STATE_SUFFIX), state);
+    }
+
+    /**
+     * Get the local mirror file for a remote file (it may not exist yet)
+     * @param profileId id of the profile the file belongs to
+     * @param remotePath full remote path of the file
+     * @return local mirror file
+     */
+    public File getMirrorFile(String profileId, String remotePath) {
+        // The profile id is per host, so the full path keeps directories of the same host apart
+        return new File(new File(baseDir, sanitize(profileId)), sanitize(remotePath));
+    }
+
+    /**
+     * Delete all mirrored files of a profile
+     * @param profileId id of the profile
+     */
+    public void clearProfile(String profileId) {
+        File dir = new File(baseDir, sanitize(profileId));
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
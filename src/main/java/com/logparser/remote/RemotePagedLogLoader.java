@@ -1,69 +1,133 @@
 package com.logparser.remote;
 
+import com.logparser.cache.EntrySource;
 import com.logparser.config.AppConfig;
+import com.logparser.loader.PageBatcher;
 import com.logparser.loader.PagedLoader;
 import com.logparser.model.LogEntry;
 import com.logparser.parser.LogParser;
 import com.logparser.utils.LogEntryFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class RemotePagedLogLoader implements PagedLoader {
 
     private final RemoteFileAccessor accessor;
+    private final String remotePath;
+    private final EntrySource source;
     private final LogParser parser;
     private final int pageSize;
     private long filePointer; // Current position in file (reading backwards)
     private final long fileSize; // Total file size
+    private final long endOffset; // Fixed start offset, or -1 for the end of the file
 
-    public RemotePagedLogLoader(RemoteFileAccessor accessor, LogParser parser, int pageSize) throws IOException {
+    public RemotePagedLogLoader(RemoteFileAccessor accessor, EntrySource source, LogParser parser, int pageSize) throws IOException {
+        this(accessor, source, parser, pageSize, -1);
+    }
+
+    /**
+     * Create a loader that pages backwards from the given offset instead of the end of the file
+     * @param endOffset remote offset to start reading backwards from, or -1 for the end of the file
+     */
+    public RemotePagedLogLoader(RemoteFileAccessor accessor, EntrySource source, LogParser parser, int pageSize, long endOffset) throws IOException {
         this.accessor = accessor;
+        this.remotePath = source.path();
+        this.source = source;
         this.parser = parser;
         this.pageSize = pageSize;
+        this.endOffset = endOffset;
         try {
             this.accessor.connect();
-            this.fileSize = accessor.getFileSize();
+            this.fileSize = endOffset >= 0 ? endOffset : accessor.getFileSize(remotePath);
             this.filePointer = fileSize; // Start from the end
         } catch (Exception e) {
             throw new IOException("Failed to initialize RemotePagedLogLoader", e);
         }
     }
 
-    public RemotePagedLogLoader(RemoteFileAccessor accessor, LogParser parser) throws IOException {
-        this(accessor, parser, AppConfig.DEFAULT_PAGE_SIZE);
+    public RemotePagedLogLoader(RemoteFileAccessor accessor, EntrySource source, LogParser parser) throws IOException {
+        this(accessor, source, parser, AppConfig.DEFAULT_PAGE_SIZE);
     }
 
+    /**
+     * Reads backwards in growing chunks, starting with a small one so that the newest
+     * rows show up after a single short round trip. Lines are only cut at '\n', so a
+     * line split between two chunks is completed by the next one.
+     */
     @Override
-    public List<LogEntry> loadNextPage() throws IOException {
-        List<LogEntry> entries = new ArrayList<>();
+    public List<LogEntry> loadNextPage(Consumer<List<LogEntry>> onBatch) throws IOException {
+        PageBatcher batcher = new PageBatcher(onBatch);
 
         if (filePointer <= 0) {
-            return entries; // No more data to load
+            return batcher.finish(); // No more data to load
         }
 
-        int bytesToRead = (int) Math.min(AppConfig.REMOTE_READ_MAX_BYTES, filePointer);
-        long startOffset = filePointer - bytesToRead;
+        long limit = Math.max(0, filePointer - AppConfig.REMOTE_READ_MAX_BYTES);
+        long position = filePointer; // Offset of the bytes read so far
+        byte[] head = new byte[0]; // Unparsed bytes at position: a partial line or lines beyond the page
+        int chunkSize = AppConfig.REMOTE_PAGE_FIRST_READ_BYTES;
+
+        while (position > limit && batcher.size() < pageSize) {
+            int bytesToRead = (int) Math.min(chunkSize, position - limit);
+            byte[] chunk = accessor.readChunk(remotePath, position - bytesToRead, bytesToRead);
+            if (chunk.length != bytesToRead) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Page load cancelled");
+                }
+                throw new IOException("Failed to read " + bytesToRead + " bytes at offset " + (position - bytesToRead));
+            }
+            position -= bytesToRead;
+            chunkSize *= 2;
+
+            byte[] data = new byte[chunk.length + head.length];
+            System.arraycopy(chunk, 0, data, 0, chunk.length);
+            System.arraycopy(head, 0, data, chunk.length, head.length);
+
+            int lineEnd = data.length;
+            for (int i = data.length - 1; i >= 0 && batcher.size() < pageSize; i--) {
+                if (data[i] == '\n') {
+                    addLine(batcher, data, i + 1, lineEnd, position);
+                    lineEnd = i;
+                }
+            }
+            head = Arrays.copyOf(data, lineEnd);
+            batcher.flush();
+        }
 
-        byte[] data = accessor.readChunk(startOffset, bytesToRead);
-        String content = new String(data, StandardCharsets.UTF_8);
+        if (head.length > 0 && batcher.size() < pageSize && (position == 0 || batcher.size() == 0)) {
+            // Start of the file, or a single line longer than a whole page read: take it as it is
+            addLine(batcher, head, 0, head.length, position);
+            head = new byte[0];
+        }
 
-        String[] lines = content.split("\n");
+        filePointer = position + head.length;
 
-        int start = Math.max(0, lines.length - pageSize);
-        for (int i = start; i < lines.length; i++) {
-            String line = lines[i].trim();
-            if (line.isEmpty()) {
-                continue; // Skip empty lines
-            }
-            entries.add(LogEntryFactory.parseOrInvalid(parser, line));
+        return batcher.finish();
+    }
+
+    /**
+     * @param dataOffset remote offset of the first byte of data
+     */
+    private void addLine(PageBatcher batcher, byte[] data, int from, int to, long dataOffset) {
+        String line = new String(data, from, to - from, StandardCharsets.UTF_8).trim();
+        if (!line.isEmpty()) {
+            batcher.add(LogEntryFactory.parseOrInvalid(parser, line, source, dataOffset + from));
         }
+    }
 
-        filePointer = startOffset;
+    @Override
+    public long getPosition() {
+        return filePointer;
+    }
 
-        return entries;
+    @Override
+    public void setPosition(long position) {
+        filePointer = position;
     }
 
     @Override
@@ -74,7 +138,7 @@ public class RemotePagedLogLoader implements PagedLoader {
     @Override
     public void reset() throws IOException {
         try {
-            filePointer = accessor.getFileSize();
+            filePointer = endOffset >= 0 ? endOffset : accessor.getFileSize(remotePath);
         } catch (Exception e) {
             throw new IOException("Failed to reset remote file pointer", e);
         }
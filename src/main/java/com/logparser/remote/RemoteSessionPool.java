@@ -0,0 +1,81 @@
+package com.logparser.remote;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.Profile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one SFTP session per host so that every profile, watcher and loader of the
+ * same host ({@link Profile#getId()}) shares a single connection, together with the
+ * {@link RemoteIoScheduler} that bounds the background I/O sent over it.
+ */
+public class RemoteSessionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteSessionPool.class);
+
+    private final Map<String, SftpRemoteFileAccessor> accessors = new ConcurrentHashMap<>();
+    private final Map<String, RemoteIoScheduler> schedulers = new ConcurrentHashMap<>();
+
+    /**
+     * Get the shared accessor of a profile's host, creating it if needed.
+     * The accessor is not connected by this call.
+     *
+     * @param profile remote profile
+     * @return shared accessor of the host
+     */
+    public SftpRemoteFileAccessor acquire(Profile profile) {
+        return accessors.computeIfAbsent(profile.getId(), id -> {
+            log.debug("Creating pooled SFTP accessor for {}", id);
+            return new SftpRemoteFileAccessor(
+                    profile.getHost(),
+                    profile.getPort(),
+                    profile.getUsername(),
+                    profile.getPassword()
+            );
+        });
+    }
+
+    /**
+     * @param profile remote profile
+     * @return shared accessor of the profile's host, or null if none was acquired yet
+     */
+    public SftpRemoteFileAccessor get(Profile profile) {
+        return accessors.get(profile.getId());
+    }
+
+    /**
+     * Get the I/O scheduler of a profile's host, creating it if needed
+     * @param profile remote profile
+     * @return shared scheduler of the host
+     */
+    public RemoteIoScheduler getIoScheduler(Profile profile) {
+        return schedulers.computeIfAbsent(profile.getId(),
+                id -> new RemoteIoScheduler("remote-io-worker", AppConfig.REMOTE_IO_THREADS_PER_HOST));
+    }
+
+    /**
+     * Disconnect and forget the session of a host
+     * @param hostId host key, see {@link Profile#getId()}
+     */
+    public void close(String hostId) {
+        SftpRemoteFileAccessor accessor = accessors.remove(hostId);
+        if (accessor != null) {
+            accessor.disconnect();
+        }
+        RemoteIoScheduler scheduler = schedulers.remove(hostId);
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    public void closeAll() {
+        accessors.values().forEach(SftpRemoteFileAccessor::disconnect);
+        accessors.clear();
+        schedulers.values().forEach(RemoteIoScheduler::shutdown);
+        schedulers.clear();
+    }
+}
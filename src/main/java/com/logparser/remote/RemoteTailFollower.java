@@ -0,0 +1,190 @@
+package com.logparser.remote;
+
+import com.jcraft.jsch.ChannelExec;
+import com.logparser.cache.EntrySource;
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import com.logparser.parser.LogParser;
+import com.logparser.service.ExecutorServiceManager;
+import com.logparser.utils.LogEntryFactory;
+import com.logparser.utils.RecordAssembler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a remote file as it grows over a long-lived {@code tail -F} exec channel.
+ * <p>
+ * Parsed entries are pushed to the sink in batches as soon as they arrive. The offset
+ * after the last line the sink accepted is tracked, so after a disconnect the follower
+ * reconnects with an exponential backoff and resumes exactly where it stopped. When tail
+ * reports that the file was replaced or truncated, the offset restarts at 0.
+ */
+public class RemoteTailFollower {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteTailFollower.class);
+
+    private final SftpRemoteFileAccessor accessor;
+    private final EntrySource source;
+    private final String remotePath;
+    private final LogParser parser;
+    private final Consumer<List<LogEntry>> sink;
+
+    // Notice of tail about the followed file, e.g. "tail: 'app.log' has been replaced;  following new file"
+    private final Pattern tailNotice;
+
+    private volatile long offset;
+    private volatile boolean running;
+    private volatile ChannelExec channel;
+    private Future<?> task;
+
+    public RemoteTailFollower(SftpRemoteFileAccessor accessor, EntrySource source, long startOffset,
+                              LogParser parser, Consumer<List<LogEntry>> sink) {
+        this.accessor = accessor;
+        this.source = source;
+        this.remotePath = source.path();
+        this.offset = startOffset;
+        this.tailNotice = Pattern.compile("tail: '?" + Pattern.quote(remotePath) + "'?:? (.*)$");
+        this.parser = parser;
+        this.sink = sink;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        task = ExecutorServiceManager.getInstance().submitRemote("remote-follow", Executors.callable(this::run));
+    }
+
+    public synchronized void stop() {
+        running = false;
+        ChannelExec current = channel;
+        if (current != null) {
+            current.disconnect();
+        }
+        if (task != null) {
+            task.cancel(true);
+            task = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    /**
+     * Remote offset right after the last complete line delivered to the sink
+     * @return resume offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    private void run() {
+        long backoff = AppConfig.FOLLOW_RECONNECT_MIN_MS;
+
+        while (running) {
+            long before = offset;
+            try {
+                follow();
+            } catch (Exception e) {
+                if (!running) break;
+                log.warn("Tail of {} interrupted at offset {}: {}", remotePath, offset, e.getMessage());
+            }
+            if (!running) break;
+
+            backoff = offset != before ? AppConfig.FOLLOW_RECONNECT_MIN_MS
+                    : Math.min(backoff * 2, AppConfig.FOLLOW_RECONNECT_MAX_MS);
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.debug("Stopped following: {}", remotePath);
+    }
+
+    private void follow() throws Exception {
+        long startOffset = offset;
+        // tail counts bytes from 1; -F keeps following across re-creation of the file. Its notices
+        // share the stream with the data, so a switch to a new file shows up right where it happened
+        String command = "LC_ALL=C tail -c +" + (startOffset + 1) + " -F "
+                + SftpRemoteFileAccessor.shellQuote(remotePath) + " 2>&1";
+
+        ChannelExec exec = accessor.openExecChannel(command);
+        InputStream input = exec.getInputStream();
+        exec.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
+        channel = exec;
+        log.debug("Following {} from offset {}", remotePath, startOffset);
+
+        try {
+            RecordAssembler assembler = new RecordAssembler();
+            byte[] chunk = new byte[AppConfig.DEFAULT_BUFFER_SIZE];
+            List<LogEntry> batch = new ArrayList<>();
+            // Remote offset of the first byte fed to the assembler, negative once tail moved to a new file
+            long base = startOffset;
+            int read;
+
+            while (running && (read = input.read(chunk)) != -1) {
+                List<String> lines = assembler.feed(chunk, read);
+                for (int i = 0; i < lines.size(); i++) {
+                    String line = lines.get(i);
+                    Matcher notice = tailNotice.matcher(line);
+                    if (!notice.find()) {
+                        batch.add(parse(line, base + assembler.getRecordOffset(i)));
+                        continue;
+                    }
+                    // A notice right after an unterminated last line of the old file
+                    if (notice.start() > 0 && !line.substring(0, notice.start()).isBlank()) {
+                        batch.add(parse(line.substring(0, notice.start()), base + assembler.getRecordOffset(i)));
+                    }
+                    String message = notice.group(1);
+                    if (message.contains("truncated") || message.contains("following new file")) {
+                        log.info("Followed file {} was replaced or truncated, reading it from the start", remotePath);
+                        // Hand over the old file's lines first so the offset never mixes the two
+                        if (!batch.isEmpty()) {
+                            sink.accept(batch);
+                            batch = new ArrayList<>();
+                        }
+                        long noticeEnd = i + 1 < lines.size() ? assembler.getRecordOffset(i + 1) : assembler.getConsumedBytes();
+                        base = -noticeEnd;
+                        offset = 0;
+                    }
+                }
+
+                if (!batch.isEmpty() && (input.available() == 0 || batch.size() >= AppConfig.FOLLOW_BATCH_SIZE)) {
+                    sink.accept(batch);
+                    batch = new ArrayList<>();
+                }
+                // Resume after what the sink has, a batch still held is read again after a reconnect
+                if (batch.isEmpty()) {
+                    offset = base + assembler.getConsumedBytes();
+                }
+            }
+
+            if (running && !batch.isEmpty()) {
+                sink.accept(batch);
+                offset = base + assembler.getConsumedBytes();
+            }
+        } finally {
+            channel = null;
+            exec.disconnect();
+        }
+    }
+
+    private LogEntry parse(String line, long lineOffset) {
+        return LogEntryFactory.parseOrInvalid(parser, line, source, lineOffset);
+    }
+}
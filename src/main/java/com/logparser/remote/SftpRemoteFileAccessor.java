@@ -1,19 +1,17 @@
 package com.logparser.remote;
 
 import com.logparser.config.AppConfig;
-import com.logparser.model.LogEntry;
-import com.logparser.parser.LogParser;
-import com.logparser.utils.LogEntryFactory;
 import com.jcraft.jsch.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.*;
 
@@ -25,23 +23,23 @@ public class SftpRemoteFileAccessor implements RemoteFileAccessor {
     private final int port;
     private final String username;
     private final String password;
-    private String remotePath;
-    private final LogParser parser;
 
     private ChannelSftp sftp;
     private Session session;
+    // Agent per directory; the future is shared by callers waiting for the same launch
+    private final Map<String, CompletableFuture<RemoteAgentClient>> agents = new ConcurrentHashMap<>();
+    private volatile long agentRetryAt;
+    private volatile long agentRetryDelay = AppConfig.AGENT_RETRY_MIN_MS;
 
-    public SftpRemoteFileAccessor(String host, int port, String username, String password, String remotePath, LogParser parser) {
+    public SftpRemoteFileAccessor(String host, int port, String username, String password) {
         this.host = host;
         this.port = port;
         this.username = username;
         this.password = password;
-        this.remotePath = remotePath;
-        this.parser = parser;
     }
 
     @Override
-    public void connect() throws Exception {
+    public synchronized void connect() throws Exception {
         if (isAlive()) return;
 
         if (session == null || !session.isConnected()) {
@@ -67,7 +65,12 @@ public class SftpRemoteFileAccessor implements RemoteFileAccessor {
     }
 
     @Override
-    public void disconnect() {
+    public synchronized void disconnect() {
+        for (CompletableFuture<RemoteAgentClient> launch : agents.values()) {
+            RemoteAgentClient agent = launch.getNow(null);
+            if (agent != null) agent.close();
+        }
+        agents.clear();
         if (sftp != null && sftp.isConnected()) {
             sftp.disconnect();
         }
@@ -78,66 +81,55 @@ public class SftpRemoteFileAccessor implements RemoteFileAccessor {
         session = null;
     }
 
+    /**
+     * Get the size of the given remote file on a dedicated SFTP channel
+     * @param path remote file path
+     * @return file size in bytes
+     * @throws Exception if the file cannot be stat'ed
+     */
     @Override
-    public long getFileSize() throws Exception {
-        if (sftp == null || !sftp.isConnected()) {
-            connect();
-        }
-        return sftp.lstat(remotePath).getSize();
-    }
-
-
-    @Override
-    public byte[] read(long offset, int length) {
+    public long getFileSize(String path) throws Exception {
+        ChannelSftp localSftp = null;
         try {
-            if (sftp == null || !sftp.isConnected()) {
-                connect();
-            }
-            try (InputStream input = sftp.get(remotePath);
-                 ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
-
-                input.skip(offset);
-
-                byte[] chunk = new byte[AppConfig.DEFAULT_BUFFER_SIZE];
-                int remaining = length;
-                int read;
-
-                while ((read = input.read(chunk, 0, Math.min(chunk.length, remaining))) != -1 && remaining > 0) {
-                    buffer.write(chunk, 0, read);
-                    remaining -= read;
-                }
+            if (!isAlive()) connect();
 
-                return buffer.toByteArray();
-            }
-        } catch (Exception e) {
-            log.error("Failed to read from remote file: {}", remotePath, e);
-            return new byte[0];
+            Channel channel = session.openChannel("sftp");
+            channel.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
+            localSftp = (ChannelSftp) channel;
+            return localSftp.lstat(path).getSize();
+        } finally {
+            if (localSftp != null && localSftp.isConnected()) localSftp.disconnect();
         }
     }
-
+    /**
+     * Reads a chunk of the given remote file on a dedicated SFTP channel.
+     *
+     * @param path   remote file path
+     * @param offset position to start reading from
+     * @param length number of bytes to read
+     * @return bytes read, empty on failure
+     */
     @Override
-    public byte[] readLastBytes(int maxBytes) {
+    public byte[] readChunk(String path, long offset, int length) {
         ChannelSftp localSftp = null;
         try {
             if (!isAlive()) connect();
 
             Channel channel = session.openChannel("sftp");
-            channel.connect(3000);
+            channel.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
             localSftp = (ChannelSftp) channel;
 
-            long fileSize = localSftp.lstat(remotePath).getSize();
-            if (fileSize == 0) return new byte[0];
-            long bytesToRead = Math.min(maxBytes, fileSize);
-            long startOffset = Math.max(0, fileSize - bytesToRead);
-
-            try (InputStream input = localSftp.get(remotePath, null, startOffset);
+            try (InputStream input = localSftp.get(path, null, offset);
                  ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
 
                 byte[] chunk = new byte[AppConfig.DEFAULT_BUFFER_SIZE];
                 int read;
-                long remaining = bytesToRead;
+                long remaining = length;
 
                 while (remaining > 0 && (read = input.read(chunk, 0, (int) Math.min(chunk.length, remaining))) != -1) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Read cancelled");
+                    }
                     buffer.write(chunk, 0, read);
                     remaining -= read;
                 }
@@ -145,8 +137,13 @@ public class SftpRemoteFileAccessor implements RemoteFileAccessor {
                 return buffer.toByteArray();
             }
 
+        } catch (InterruptedIOException e) {
+            // The interrupt status is cleared by the pipe the channel reads from; keep the cancellation visible
+            Thread.currentThread().interrupt();
+            log.debug("Read of {} at offset {} cancelled", path, offset);
+            return new byte[0];
         } catch (Exception e) {
-            log.error("Failed to read last {} bytes from: {}", maxBytes, remotePath, e);
+            log.error("Failed to read chunk at offset {} from: {}", offset, path, e);
             return new byte[0];
         } finally {
             if (localSftp != null && localSftp.isConnected()) localSftp.disconnect();
@@ -154,56 +151,73 @@ public class SftpRemoteFileAccessor implements RemoteFileAccessor {
     }
 
     /**
-     * Reads new lines from a remote file starting from the specified offset.
-     * Limits reading to prevent excessive data transfer.
+     * Opens an exec channel for the given command on the session of this accessor.
+     * The channel is returned unconnected so the caller can take its streams before
+     * calling {@code connect}; the caller owns the channel and must disconnect it.
      *
-     * @param offset position in the file to start reading from
-     * @return list of new log entries
+     * @param command shell command to run
+     * @return exec channel, not yet connected
+     * @throws Exception if the session or the channel cannot be opened
      */
-    public List<LogEntry> readFromOffset(long offset) {
-        List<LogEntry> entries = new ArrayList<>();
-        ChannelSftp localSftp = null;
+    public ChannelExec openExecChannel(String command) throws Exception {
+        if (!isAlive()) connect();
 
+        ChannelExec exec = (ChannelExec) session.openChannel("exec");
+        exec.setCommand(command);
+        exec.setInputStream(null);
+        return exec;
+    }
+
+    /**
+     * Runs a command on the remote host and waits for it to finish
+     * @param command shell command to run
+     * @return exit status of the command
+     * @throws Exception if the command cannot be run
+     */
+    public int execForExitStatus(String command) throws Exception {
+        ChannelExec exec = openExecChannel(command);
+        try {
+            InputStream output = exec.getInputStream();
+            exec.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
+            output.transferTo(OutputStream.nullOutputStream());
+            while (!exec.isClosed()) {
+                Thread.sleep(10);
+            }
+            return exec.getExitStatus();
+        } finally {
+            exec.disconnect();
+        }
+    }
+
+    /**
+     * Check whether a remote path exists
+     * @param path remote path, relative paths are resolved against the home directory
+     * @return true if the path exists
+     */
+    public boolean exists(String path) {
+        ChannelSftp localSftp = null;
         try {
             if (!isAlive()) connect();
+
             Channel channel = session.openChannel("sftp");
             channel.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
             localSftp = (ChannelSftp) channel;
-
-            long fileSize = localSftp.lstat(remotePath).getSize();
-            if (offset >= fileSize) return entries;
-
-            long bytesToRead = fileSize - offset;
-            long maxReadSize = AppConfig.MAX_INCREMENTAL_READ_MB * 1024L * 1024L;
-
-            if (bytesToRead > maxReadSize) {
-                offset = fileSize - maxReadSize;
-            }
-
-            try (InputStream input = localSftp.get(remotePath, null, offset);
-                 ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
-
-                byte[] chunk = new byte[AppConfig.DEFAULT_BUFFER_SIZE];
-                int read;
-                while ((read = input.read(chunk)) != -1) buffer.write(chunk, 0, read);
-
-                String[] lines = buffer.toString(StandardCharsets.UTF_8).split("\n");
-                for (String line : lines) {
-                    String decoded = new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
-                    entries.add(LogEntryFactory.parseOrInvalid(parser, decoded));
-                }
-            }
-
+            localSftp.lstat(path);
+            return true;
         } catch (Exception e) {
-            log.error("Failed to read from offset {} in: {}", offset, remotePath, e);
+            return false;
         } finally {
             if (localSftp != null && localSftp.isConnected()) localSftp.disconnect();
         }
-        return entries;
     }
 
-    @Override
-    public byte[] readChunk(long offset, int length) {
+    /**
+     * Upload bytes to a remote file, replacing it
+     * @param data content to upload
+     * @param path remote path, relative paths are resolved against the home directory
+     * @throws Exception if the upload fails
+     */
+    public void upload(byte[] data, String path) throws Exception {
         ChannelSftp localSftp = null;
         try {
             if (!isAlive()) connect();
@@ -211,46 +225,86 @@ public class SftpRemoteFileAccessor implements RemoteFileAccessor {
             Channel channel = session.openChannel("sftp");
             channel.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
             localSftp = (ChannelSftp) channel;
-
-            try (InputStream input = localSftp.get(remotePath, null, offset);
-                 ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
-
-                byte[] chunk = new byte[AppConfig.DEFAULT_BUFFER_SIZE];
-                int read;
-                long remaining = length;
-
-                while (remaining > 0 && (read = input.read(chunk, 0, (int) Math.min(chunk.length, remaining))) != -1) {
-                    buffer.write(chunk, 0, read);
-                    remaining -= read;
-                }
-
-                return buffer.toByteArray();
-            }
-
-        } catch (Exception e) {
-            log.error("Failed to read chunk at offset {} from: {}", offset, remotePath, e);
-            return new byte[0];
+            localSftp.put(new ByteArrayInputStream(data), path);
         } finally {
             if (localSftp != null && localSftp.isConnected()) localSftp.disconnect();
         }
     }
 
-    private InputStream getWithTimeout(ChannelSftp sftp, String path, long timeoutMillis) throws Exception {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<InputStream> future = executor.submit(() -> sftp.get(path));
+    /**
+     * Get the remote indexing agent for a directory, starting it on first use.
+     * If the host cannot run the agent (e.g. no Java) this returns null and callers
+     * fall back to plain SFTP; the launch is tried again after a growing backoff.
+     * Profiles sharing this host session each get their own agent per directory.
+     * <p>
+     * The launch runs on the first caller's thread without holding this accessor, so
+     * other users of the host session are not held up; concurrent callers for the same
+     * directory wait for that launch.
+     *
+     * @param directory remote log directory
+     * @return running agent client, or null if unavailable
+     */
+    public RemoteAgentClient getOrStartAgent(String directory) {
+        CompletableFuture<RemoteAgentClient> launch = agents.get(directory);
+        if (launch != null && launch.isDone()) {
+            RemoteAgentClient agent = launch.getNow(null);
+            if (agent != null && agent.isAlive()) return agent;
+            if (agents.remove(directory, launch) && agent != null) agent.close();
+            launch = null;
+        }
+        if (launch == null) {
+            if (System.currentTimeMillis() < agentRetryAt) return null;
+            CompletableFuture<RemoteAgentClient> created = new CompletableFuture<>();
+            launch = agents.putIfAbsent(directory, created);
+            if (launch == null) {
+                launch = created;
+                launchAgent(directory, created);
+            }
+        }
 
         try {
-            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
-        } catch (TimeoutException e) {
-            future.cancel(true);
-            throw new IOException("Timeout while opening remote file: " + path);
-        } finally {
-            executor.shutdownNow();
+            return launch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    private void launchAgent(String directory, CompletableFuture<RemoteAgentClient> launch) {
+        try {
+            RemoteAgentClient agent = RemoteAgentClient.launch(this, directory);
+            agentRetryDelay = AppConfig.AGENT_RETRY_MIN_MS;
+            if (agents.get(directory) != launch) {
+                // Disconnected while starting
+                agent.close();
+                launch.completeExceptionally(new IOException("Disconnected while starting the remote agent"));
+                return;
+            }
+            launch.complete(agent);
+        } catch (Exception e) {
+            agents.remove(directory, launch);
+            launch.completeExceptionally(e);
+            if (Thread.currentThread().isInterrupted()) {
+                // A cancelled load says nothing about the host
+                log.debug("Start of remote agent for {} cancelled", directory);
+                return;
+            }
+            long delay = agentRetryDelay;
+            agentRetryAt = System.currentTimeMillis() + delay;
+            agentRetryDelay = Math.min(delay * 2, AppConfig.AGENT_RETRY_MAX_MS);
+            log.warn("Remote agent unavailable on {}, falling back to SFTP for {} s: {}", host, delay / 1000, e.getMessage());
         }
     }
 
-    public void setRemotePath(String remotePath) {
-        this.remotePath = remotePath;
+    /**
+     * Quotes a value for safe use as a single POSIX shell argument
+     * @param value raw argument
+     * @return single-quoted argument
+     */
+    public static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
     }
 
     public Session getSession() { return session; }
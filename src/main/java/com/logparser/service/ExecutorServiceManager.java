@@ -1,38 +1,65 @@
 package com.logparser.service;
 
 import com.logparser.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Centralized executor service for async operations
+ * Centralized executors for async operations.
+ * <p>
+ * Blocking file I/O runs on a virtual thread per task; parsing, indexing and filtering run
+ * on a pool sized to the CPU cores. Everything talking to JSch runs on a bounded pool of
+ * platform threads instead: JSch blocks inside monitors (its synchronized session calls and
+ * piped streams), which would pin the carrier of a virtual thread and could stall every
+ * other virtual task. Every task is submitted under a name and counted in its
+ * {@link TaskMetrics}. User-visible loads go through the {@link LoadScheduler} on top of the
+ * remote executor, as they may read remote files.
  */
 public final class ExecutorServiceManager {
 
+    private static final Logger log = LoggerFactory.getLogger(ExecutorServiceManager.class);
+
     private static ExecutorServiceManager instance;
-    private final ExecutorService executorService;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService cpuExecutor;
+    private final ExecutorService remoteExecutor;
+    private final LoadScheduler loadScheduler = new LoadScheduler(AppConfig.LOAD_SLOTS);
+    private final Map<String, TaskMetrics> metrics = new ConcurrentHashMap<>();
 
     private ExecutorServiceManager() {
-        ThreadFactory threadFactory = new ThreadFactory() {
+        this.cpuExecutor = Executors.newFixedThreadPool(AppConfig.CPU_POOL_SIZE, daemonThreads("LogParser-Worker-"));
+        this.ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("LogParser-IO-", 0).factory());
+        ThreadPoolExecutor remote = new ThreadPoolExecutor(AppConfig.REMOTE_POOL_SIZE, AppConfig.REMOTE_POOL_SIZE,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreads("LogParser-Remote-"));
+        remote.allowCoreThreadTimeOut(true);
+        this.remoteExecutor = remote;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        return new ThreadFactory() {
             private final AtomicInteger counter = new AtomicInteger(0);
 
             @Override
             public Thread newThread(Runnable r) {
                 Thread thread = new Thread(r);
-                thread.setName("LogParser-Worker-" + counter.incrementAndGet());
+                thread.setName(prefix + counter.incrementAndGet());
                 thread.setDaemon(true);
                 return thread;
             }
         };
-
-        this.executorService = Executors.newFixedThreadPool(
-            AppConfig.EXECUTOR_THREAD_POOL_SIZE,
-            threadFactory
-        );
     }
 
     /**
@@ -47,17 +74,89 @@ public final class ExecutorServiceManager {
     }
 
     /**
-     * Get the executor service
-     * @return ExecutorService
+     * Run blocking I/O on its own virtual thread
+     * @param name task name the metrics are kept under
+     * @param task the task to execute
+     */
+    public void executeIo(String name, Runnable task) {
+        ioExecutor.execute(wrap(name, task));
+    }
+
+    /**
+     * Run blocking I/O on its own virtual thread
+     * @param name task name the metrics are kept under
+     * @param task the task to execute
+     * @return future of the task's result
+     */
+    public <T> Future<T> submitIo(String name, Callable<T> task) {
+        return ioExecutor.submit(wrap(name, task));
+    }
+
+    /**
+     * Run remote I/O over JSch on the bounded platform-thread pool
+     * @param name task name the metrics are kept under
+     * @param task the task to execute
+     */
+    public void executeRemote(String name, Runnable task) {
+        remoteExecutor.execute(wrap(name, task));
+    }
+
+    /**
+     * Run remote I/O over JSch on the bounded platform-thread pool
+     * @param name task name the metrics are kept under
+     * @param task the task to execute
+     * @return future of the task's result
      */
-    public ExecutorService getExecutor() {
-        return executorService;
+    public <T> Future<T> submitRemote(String name, Callable<T> task) {
+        return remoteExecutor.submit(wrap(name, task));
     }
 
     /**
-     * Shutdown the executor service gracefully
+     * Run CPU-bound work (parsing, indexing, filtering) on the core-sized pool
+     * @param name task name the metrics are kept under
+     * @param task the task to execute
+     */
+    public void executeCpu(String name, Runnable task) {
+        cpuExecutor.execute(wrap(name, task));
+    }
+
+    /**
+     * Run CPU-bound work (parsing, indexing, filtering) on the core-sized pool
+     * @param name task name the metrics are kept under
+     * @param task the task to execute
+     * @return future of the task's result
+     */
+    public <T> Future<T> submitCpu(String name, Callable<T> task) {
+        return cpuExecutor.submit(wrap(name, task));
+    }
+
+    /**
+     * Adapt the I/O executor for APIs taking an {@link Executor}, e.g. {@code CompletableFuture}
+     * @param name task name the metrics are kept under
+     * @return executor running each task on a virtual thread
+     */
+    public Executor ioExecutor(String name) {
+        return task -> executeIo(name, task);
+    }
+
+    /**
+     * @return scheduler of user-visible loads
+     */
+    public LoadScheduler getLoadScheduler() {
+        return loadScheduler;
+    }
+
+    /**
+     * Shutdown the executors gracefully
      */
     public void shutdown() {
+        metrics.values().forEach(m -> log.info("Tasks {}", m));
+        shutdown(cpuExecutor);
+        shutdown(remoteExecutor);
+        shutdown(ioExecutor);
+    }
+
+    private static void shutdown(ExecutorService executorService) {
         executorService.shutdown();
         try {
             if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -69,12 +168,38 @@ public final class ExecutorServiceManager {
         }
     }
 
-    /**
-     * Execute a task asynchronously
-     * @param task The task to execute
-     */
-    public void execute(Runnable task) {
-        executorService.execute(task);
+    private Runnable wrap(String name, Runnable task) {
+        TaskMetrics taskMetrics = metrics.computeIfAbsent(name, TaskMetrics::new);
+        taskMetrics.onSubmit();
+        long submittedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            taskMetrics.onStart(startedAt - submittedAt);
+            boolean success = false;
+            try {
+                task.run();
+                success = true;
+            } finally {
+                taskMetrics.onFinish(System.nanoTime() - startedAt, success);
+            }
+        };
     }
-}
 
+    private <T> Callable<T> wrap(String name, Callable<T> task) {
+        TaskMetrics taskMetrics = metrics.computeIfAbsent(name, TaskMetrics::new);
+        taskMetrics.onSubmit();
+        long submittedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            taskMetrics.onStart(startedAt - submittedAt);
+            boolean success = false;
+            try {
+                T result = task.call();
+                success = true;
+                return result;
+            } finally {
+                taskMetrics.onFinish(System.nanoTime() - startedAt, success);
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package com.logparser.service;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs user-visible loads in priority lanes on a bounded number of I/O slots.
+ * <p>
+ * Waiting loads start in {@link Lane} order, and one slot is always kept free for
+ * interactive loads, so prefetching and indexing never delay the first rows of a file.
+ * Cancelling the returned future removes a waiting load or interrupts a running one;
+ * the loaders and SFTP reads stop at the interrupt instead of finishing unseen.
+ */
+public final class LoadScheduler {
+
+    public enum Lane {
+        /** Loads the user is waiting for: the first page of a file, "load more" */
+        INTERACTIVE,
+        /** Pages likely to be needed next */
+        PREFETCH,
+        /** Indexing and statistics */
+        BACKGROUND
+    }
+
+    private final class LoadTask<T> extends FutureTask<T> {
+        private final String name;
+        private final long sequence;
+        private final Handle<T> handle;
+        private Lane lane;
+
+        LoadTask(Lane lane, String name, Callable<T> callable, long sequence) {
+            super(callable);
+            this.lane = lane;
+            this.name = name;
+            this.sequence = sequence;
+            this.handle = new Handle<>(this);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                handle.cancelled();
+                return;
+            }
+            try {
+                handle.complete(get());
+            } catch (ExecutionException e) {
+                handle.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                lock.lock();
+                try {
+                    waiting.remove(this);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Future of a load; cancelling it cancels the load itself
+     */
+    private static final class Handle<T> extends CompletableFuture<T> {
+        private final LoadTask<T> task;
+
+        Handle(LoadTask<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            task.cancel(true);
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        void cancelled() {
+            super.cancel(false);
+        }
+    }
+
+    private final int slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<LoadTask<?>> waiting = new PriorityQueue<>(
+            Comparator.<LoadTask<?>, Lane>comparing(task -> task.lane).thenComparingLong(task -> task.sequence));
+    private int running;
+    private long sequence;
+
+    /**
+     * @param slots maximum number of loads running at the same time, at least 2
+     */
+    public LoadScheduler(int slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Queue a load
+     * @param lane priority lane
+     * @param name task name the metrics are kept under
+     * @param load the load to run
+     * @return future of the load's result
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, String name, Callable<T> load) {
+        LoadTask<T> task;
+        lock.lock();
+        try {
+            task = new LoadTask<>(lane, name, load, sequence++);
+            waiting.add(task);
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+        return task.handle;
+    }
+
+    /**
+     * Move a load that has not started yet to a more urgent lane, e.g. when the user asks
+     * for a page that was being prefetched
+     * @param future future returned by {@link #submit}
+     * @param lane   new lane; ignored if it is less urgent than the current one
+     */
+    public void promote(CompletableFuture<?> future, Lane lane) {
+        if (!(future instanceof Handle<?> handle)) return;
+        lock.lock();
+        try {
+            LoadTask<?> task = handle.task;
+            if (lane.compareTo(task.lane) < 0 && waiting.remove(task)) {
+                task.lane = lane;
+                waiting.add(task);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (true) {
+            LoadTask<?> next;
+            lock.lock();
+            try {
+                next = waiting.peek();
+                if (next == null || running >= slots) return;
+                if (next.lane != Lane.INTERACTIVE && running >= slots - 1) return;
+                waiting.poll();
+                running++;
+            } finally {
+                lock.unlock();
+            }
+
+            LoadTask<?> task = next;
+            ExecutorServiceManager.getInstance().executeRemote(task.name, () -> {
+                try {
+                    task.run();
+                } finally {
+                    lock.lock();
+                    try {
+                        running--;
+                    } finally {
+                        lock.unlock();
+                    }
+                    dispatch();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.logparser.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one named kind of task run by {@link ExecutorServiceManager}
+ */
+public final class TaskMetrics {
+
+    private final String name;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder queuedNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    TaskMetrics(String name) {
+        this.name = name;
+    }
+
+    void onSubmit() {
+        submitted.increment();
+    }
+
+    void onStart(long waitedNanos) {
+        queuedNanos.add(waitedNanos);
+        running.incrementAndGet();
+    }
+
+    void onFinish(long ranNanos, boolean success) {
+        running.decrementAndGet();
+        runNanos.add(ranNanos);
+        if (success) {
+            completed.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return average time between submission and start, in milliseconds
+     */
+    public double getAverageQueuedMs() {
+        long finished = getCompleted() + getFailed();
+        return finished == 0 ? 0 : queuedNanos.sum() / 1e6 / finished;
+    }
+
+    /**
+     * @return average run time, in milliseconds
+     */
+    public double getAverageRunMs() {
+        long finished = getCompleted() + getFailed();
+        return finished == 0 ? 0 : runNanos.sum() / 1e6 / finished;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d submitted, %d completed, %d failed, %d running, %.1f ms queued, %.1f ms run (avg)",
+                name, getSubmitted(), getCompleted(), getFailed(), getRunning(), getAverageQueuedMs(), getAverageRunMs());
+    }
+}
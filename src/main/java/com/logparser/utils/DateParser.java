@@ -1,6 +1,7 @@
 package com.logparser.utils;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
@@ -11,6 +12,8 @@ public final class DateParser {
 
     private static final DateTimeFormatter DOT_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
     private static final DateTimeFormatter ISO_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final DateTimeFormatter DOT_DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
+    private static final DateTimeFormatter ISO_DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private DateParser() {}
 
@@ -42,6 +45,24 @@ public final class DateParser {
         return null;
     }
 
+    /**
+     * Parse the date and time of a log entry
+     * @param dateString The date string, e.g. "2024-05-01 10:00:00" or "01.05.2024 10:00:00"
+     * @return LocalDateTime or null if unparseable
+     */
+    public static LocalDateTime parseLogDateTime(String dateString) {
+        if (dateString == null || dateString.isBlank()) {
+            return null;
+        }
+
+        try {
+            return LocalDateTime.parse(dateString.trim(),
+                    dateString.indexOf('.') == 2 ? DOT_DATE_TIME_FORMAT : ISO_DATE_TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     /**
      * Check if a date is between two dates (inclusive)
      * @param date The date to check
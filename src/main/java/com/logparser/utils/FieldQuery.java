@@ -0,0 +1,45 @@
+package com.logparser.utils;
+
+import com.logparser.model.JsonTape;
+import com.logparser.model.LogEntry;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Search for the value of a context or extra field, e.g. {@code ctx.user_id=42} or
+ * {@code extra.request.method=POST}; an empty value matches entries having the field.
+ * <p>
+ * Fields are looked up on the entry's parsed payload, see {@link LogEntry#getContextJson()}.
+ */
+public final class FieldQuery {
+
+    private static final Pattern QUERY = Pattern.compile("(ctx|context|extra)\\.([^\\s=]+)\\s*=\\s*(.*)", Pattern.CASE_INSENSITIVE);
+
+    private final boolean extra;
+    private final String path;
+    private final String value;
+
+    private FieldQuery(boolean extra, String path, String value) {
+        this.extra = extra;
+        this.path = path;
+        this.value = value;
+    }
+
+    /**
+     * @param search text of the search field
+     * @return the query, or null if the search is plain text
+     */
+    public static FieldQuery parse(String search) {
+        Matcher matcher = QUERY.matcher(search.trim());
+        if (!matcher.matches()) return null;
+        return new FieldQuery(matcher.group(1).equalsIgnoreCase("extra"), matcher.group(2), matcher.group(3));
+    }
+
+    public boolean matches(LogEntry entry) {
+        JsonTape json = extra ? entry.getExtraJson() : entry.getContextJson();
+        if (json == null) return false;
+        int node = json.find(path);
+        return node >= 0 && (value.isEmpty() || json.text(node).equalsIgnoreCase(value));
+    }
+}
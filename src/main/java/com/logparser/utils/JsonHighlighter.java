@@ -5,48 +5,127 @@ import org.fxmisc.richtext.model.StyleSpansBuilder;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * Single-pass JSON highlighter.
+ * <p>
+ * A small lexer walks the text once and emits the style spans straight from the token
+ * positions. It does not validate: text around and between JSON (e.g. the header of the
+ * detail panel) stays unstyled, and a string without closing quote is left as plain text.
+ */
 public class JsonHighlighter {
 
-    private static final Pattern PATTERN = Pattern.compile(
-            "(?<KEY>\"(\\\\.|[^\"])*\"\\s*:)" +
-                    "|(?<STRING>\"(\\\\.|[^\"])*\")" +
-                    "|(?<NUMBER>-?\\d+(\\.\\d+)?)" +
-                    "|(?<BRACE>[{}])" +
-                    "|(?<BRACKET>[\\[\\]])" +
-                    "|(?<COLON>:)" +
-                    "|(?<COMMA>,)"
-    );
-
-    public static Pattern getPattern() {
-        return PATTERN;
+    private static final Collection<String> PLAIN = Collections.emptyList();
+    private static final Collection<String> KEY = Collections.singleton("json-key");
+    private static final Collection<String> STRING = Collections.singleton("json-string");
+    private static final Collection<String> NUMBER = Collections.singleton("json-number");
+    private static final Collection<String> BRACE = Collections.singleton("json-brace");
+    private static final Collection<String> BRACKET = Collections.singleton("json-bracket");
+    private static final Collection<String> COLON = Collections.singleton("json-colon");
+    private static final Collection<String> COMMA = Collections.singleton("json-comma");
+
+    private JsonHighlighter() {
     }
 
     public static StyleSpans<Collection<String>> computeHighlighting(String text) {
-        Matcher matcher = PATTERN.matcher(text);
+        return computeHighlighting(text, 0, text.length());
+    }
+
+    /**
+     * Highlight part of a text, e.g. the visible paragraphs of a huge payload.
+     * Tokens do not continue past the bounds, which is exact for pretty-printed JSON
+     * as long as the range consists of whole lines.
+     *
+     * @param text text to highlight
+     * @param from start of the range, inclusive
+     * @param to   end of the range, exclusive
+     * @return spans covering the range
+     */
+    public static StyleSpans<Collection<String>> computeHighlighting(CharSequence text, int from, int to) {
         StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
+        boolean unterminated = false;
+
+        int lastEnd = from;
+        int i = from;
+        while (i < to) {
+            char c = text.charAt(i);
+            Collection<String> style = null;
+            int end = i + 1;
 
-        int lastEnd = 0;
-        while (matcher.find()) {
-            String styleClass =
-                    matcher.group("KEY") != null ? "json-key" :
-                            matcher.group("STRING") != null ? "json-string" :
-                                    matcher.group("NUMBER") != null ? "json-number" :
-                                            matcher.group("BRACE") != null ? "json-brace" :
-                                                    matcher.group("BRACKET") != null ? "json-bracket" :
-                                                            matcher.group("COLON") != null ? "json-colon" :
-                                                                    matcher.group("COMMA") != null ? "json-comma" :
-                                                                            null;
-
-            if (styleClass != null) {
-                spansBuilder.add(Collections.emptyList(), matcher.start() - lastEnd);
-                spansBuilder.add(Collections.singleton(styleClass), matcher.end() - matcher.start());
-                lastEnd = matcher.end();
+            if (c == '"' && !unterminated) {
+                int close = stringEnd(text, i + 1, to);
+                if (close < 0) {
+                    // No later quote can close a string either
+                    unterminated = true;
+                } else {
+                    int colon = skipWhitespace(text, close, to);
+                    if (colon < to && text.charAt(colon) == ':') {
+                        style = KEY;
+                        end = colon + 1;
+                    } else {
+                        style = STRING;
+                        end = close;
+                    }
+                }
+            } else if (c == '-' || isDigit(c)) {
+                int digits = c == '-' ? i + 1 : i;
+                int digitsEnd = skipDigits(text, digits, to);
+                if (digitsEnd > digits) {
+                    end = digitsEnd;
+                    if (end + 1 < to && text.charAt(end) == '.' && isDigit(text.charAt(end + 1))) {
+                        end = skipDigits(text, end + 1, to);
+                    }
+                    style = NUMBER;
+                }
+            } else if (c == '{' || c == '}') {
+                style = BRACE;
+            } else if (c == '[' || c == ']') {
+                style = BRACKET;
+            } else if (c == ':') {
+                style = COLON;
+            } else if (c == ',') {
+                style = COMMA;
             }
+
+            if (style != null) {
+                spansBuilder.add(PLAIN, i - lastEnd);
+                spansBuilder.add(style, end - i);
+                lastEnd = end;
+            }
+            i = end;
         }
-        spansBuilder.add(Collections.emptyList(), text.length() - lastEnd);
+        spansBuilder.add(PLAIN, to - lastEnd);
         return spansBuilder.create();
     }
-}
\ No newline at end of file
+
+    /**
+     * @return position after the closing quote, or -1 if the string is not closed before {@code to}
+     */
+    private static int stringEnd(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(CharSequence text, int from, int to) {
+        int i = from;
+        while (i < to && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static int skipDigits(CharSequence text, int from, int to) {
+        int i = from;
+        while (i < to && isDigit(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
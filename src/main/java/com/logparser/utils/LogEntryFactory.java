@@ -1,7 +1,10 @@
 package com.logparser.utils;
 
+import com.logparser.cache.EntrySource;
+import com.logparser.cache.FieldIndex;
 import com.logparser.model.LogEntry;
 import com.logparser.parser.LogParser;
+import com.logparser.parser.TemplateMiner;
 
 /**
  * Factory for creating LogEntry objects
@@ -13,18 +16,29 @@ public final class LogEntryFactory {
     }
 
     /**
-     * Parse a line using the given parser, returning a valid entry or invalid placeholder
+     * Parse a line using the given parser, returning a valid entry or invalid placeholder.
+     * Valid entries are added to the {@link FieldIndex} and the {@link TemplateMiner}.
      * @param parser The log parser to use
      * @param line The line to parse
+     * @param source The file the line was read from
+     * @param offset Offset of the line in what was read, see {@link EntrySource#baseOffset()}
      * @return A valid LogEntry or an invalid entry containing the raw line
      */
-    public static LogEntry parseOrInvalid(LogParser parser, String line) {
+    public static LogEntry parseOrInvalid(LogParser parser, String line, EntrySource source, long offset) {
         if (line == null || line.trim().isEmpty()) {
             return createInvalid("");
         }
 
         LogEntry entry = parser.parseLine(line);
-        return entry != null ? entry : createInvalid(line);
+        if (entry == null) {
+            entry = createInvalid(line);
+            entry.setOffset(source.baseOffset() + offset);
+            return entry;
+        }
+        entry.setOffset(source.baseOffset() + offset);
+        FieldIndex.getInstance().add(entry, source);
+        TemplateMiner.getInstance().add(entry);
+        return entry;
     }
 
     /**
@@ -35,21 +49,5 @@ public final class LogEntryFactory {
     public static LogEntry createInvalid(String rawLine) {
         return new LogEntry("", "", "INVALID", "", "", "", false, rawLine);
     }
-
-    /**
-     * Create a "Load More" marker entry
-     * @return A special LogEntry for "load more" button
-     */
-    public static LogEntry createLoadMoreMarker() {
-        return new LogEntry("", "", "LM", "", "", "", true, "");
-    }
-
-    /**
-     * Create a spacer entry
-     * @return A special LogEntry for spacing
-     */
-    public static LogEntry createSpacer() {
-        return new LogEntry("", "", "-", "", "", "", true, "");
-    }
 }
 
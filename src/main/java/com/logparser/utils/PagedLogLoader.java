@@ -1,41 +1,47 @@
 package com.logparser.utils;
 
+import com.logparser.cache.EntrySource;
 import com.logparser.config.AppConfig;
+import com.logparser.loader.PageBatcher;
 import com.logparser.loader.PagedLoader;
 import com.logparser.model.LogEntry;
 import com.logparser.parser.LogParser;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class PagedLogLoader implements PagedLoader {
 
     private final File file;
     private final LogParser parser;
+    private final EntrySource source;
     private final int pageSize;
     private long filePointer;
 
-    public PagedLogLoader(File file, LogParser parser, int pageSize) {
+    public PagedLogLoader(File file, LogParser parser, EntrySource source, int pageSize) {
         this.file = file;
         this.parser = parser;
+        this.source = source;
         this.pageSize = pageSize;
         this.filePointer = file.length(); // Start from the end of the file
     }
 
-    public PagedLogLoader(File file, LogParser parser) {
-        this(file, parser, AppConfig.DEFAULT_PAGE_SIZE);
+    /**
+     * @param source file the entries belong to; a mirror of part of a remote file has it with the offset of the part
+     */
+    public PagedLogLoader(File file, LogParser parser, EntrySource source) {
+        this(file, parser, source, AppConfig.DEFAULT_PAGE_SIZE);
     }
 
     @Override
-    public List<LogEntry> loadNextPage() throws IOException {
-        List<LogEntry> entries = new ArrayList<>();
+    public List<LogEntry> loadNextPage(Consumer<List<LogEntry>> onBatch) throws IOException {
+        PageBatcher batcher = new PageBatcher(onBatch);
         StringBuilder sb = new StringBuilder();
 
         try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-            if (filePointer <= 0) return entries;
+            if (filePointer <= 0) return batcher.finish();
 
             long currentPosition = filePointer;
             int linesRead = 0;
@@ -46,11 +52,14 @@ public class PagedLogLoader implements PagedLoader {
                 int readByte = raf.read();
 
                 if (readByte == '\n') {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Page load cancelled: " + file);
+                    }
                     if (sb.length() > 0) {
                         String line = sb.reverse().toString();
                         sb.setLength(0);
                         String decoded = new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
-                        entries.add(LogEntryFactory.parseOrInvalid(parser, decoded));
+                        batcher.add(LogEntryFactory.parseOrInvalid(parser, decoded, source, currentPosition + 1));
                         linesRead++;
                     }
                 } else {
@@ -61,15 +70,14 @@ public class PagedLogLoader implements PagedLoader {
             if (sb.length() > 0 && linesRead < pageSize) {
                 String line = sb.reverse().toString();
                 String decoded = new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
-                entries.add(LogEntryFactory.parseOrInvalid(parser, decoded));
+                batcher.add(LogEntryFactory.parseOrInvalid(parser, decoded, source, 0));
                 currentPosition = 0;
             }
 
             filePointer = currentPosition;
         }
 
-        Collections.reverse(entries); // чтобы новые сверху
-        return entries;
+        return batcher.finish(); // чтобы новые сверху
     }
 
     @Override
@@ -77,6 +85,16 @@ public class PagedLogLoader implements PagedLoader {
         return filePointer > 0;
     }
 
+    @Override
+    public long getPosition() {
+        return filePointer;
+    }
+
+    @Override
+    public void setPosition(long position) {
+        filePointer = Math.min(position, file.length());
+    }
+
     @Override
     public void reset() {
         filePointer = file.length();
@@ -86,38 +104,4 @@ public class PagedLogLoader implements PagedLoader {
     public void close() throws IOException {
         // No resources to close for local file
     }
-
-    /**
-     * Loads new lines added to the file since previousSize.
-     * Used for incremental updates when monitoring file changes.
-     *
-     * @param previousSize previous file size (offset to start reading from)
-     * @return list of new log entries
-     * @throws IOException on file read error
-     */
-    public List<LogEntry> loadNewLines(long previousSize) throws IOException {
-        List<LogEntry> newEntries = new ArrayList<>();
-
-        long currentSize = file.length();
-        if (previousSize >= currentSize) return newEntries;
-
-        long maxReadSize = AppConfig.MAX_INCREMENTAL_READ_MB * 1024L * 1024L;
-        long bytesToRead = currentSize - previousSize;
-
-        if (bytesToRead > maxReadSize) {
-            previousSize = currentSize - maxReadSize;
-        }
-
-        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-            raf.seek(previousSize);
-
-            String line;
-            while ((line = raf.readLine()) != null) {
-                String decoded = new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
-                newEntries.add(LogEntryFactory.parseOrInvalid(parser, decoded));
-            }
-        }
-
-        return newEntries;
-    }
 }
\ No newline at end of file
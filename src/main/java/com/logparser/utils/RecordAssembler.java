@@ -0,0 +1,94 @@
+package com.logparser.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assembles newline-terminated records from a stream of byte chunks.
+ * A trailing partial line is kept until the rest of it arrives.
+ */
+public class RecordAssembler {
+
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long consumed;
+    private long[] recordOffsets = new long[64];
+
+    /**
+     * Feed a chunk of bytes
+     * @param data buffer holding the chunk
+     * @param length number of valid bytes in the buffer
+     * @return complete records found, without line terminators
+     */
+    public List<String> feed(byte[] data, int length) {
+        List<String> records = new ArrayList<>();
+        int start = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (data[i] != '\n') continue;
+
+            pending.write(data, start, i - start);
+            long recordOffset = consumed;
+            consumed += pending.size() + 1;
+
+            String line = pending.toString(StandardCharsets.UTF_8);
+            if (line.endsWith("\r")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            if (!line.isBlank()) {
+                if (records.size() == recordOffsets.length) {
+                    recordOffsets = Arrays.copyOf(recordOffsets, recordOffsets.length * 2);
+                }
+                recordOffsets[records.size()] = recordOffset;
+                records.add(line);
+            }
+            pending.reset();
+            start = i + 1;
+        }
+
+        pending.write(data, start, length - start);
+        return records;
+    }
+
+    /**
+     * Offset of a record returned by the last {@link #feed} call, counted from the first
+     * byte fed like {@link #getConsumedBytes()}
+     * @param index index of the record in the returned list
+     * @return offset of the first byte of the record
+     */
+    public long getRecordOffset(int index) {
+        return recordOffsets[index];
+    }
+
+    /**
+     * Number of bytes belonging to complete records returned so far
+     * @return consumed byte count
+     */
+    public long getConsumedBytes() {
+        return consumed;
+    }
+
+    /**
+     * Take the pending partial line, if any, as a record of its own
+     * @return the partial line without terminator, or null if there is none
+     */
+    public String flush() {
+        String line = pending.toString(StandardCharsets.UTF_8);
+        consumed += pending.size();
+        pending.reset();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        return line.isBlank() ? null : line;
+    }
+
+    /**
+     * Drop any partial line and reset the consumed counter
+     */
+    public void reset() {
+        pending.reset();
+        consumed = 0;
+    }
+}
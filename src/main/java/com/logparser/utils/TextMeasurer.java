@@ -0,0 +1,76 @@
+package com.logparser.utils;
+
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the width of text in a font by adding up cached glyph advances.
+ * <p>
+ * Each character is laid out once per font on a single reused {@link Text} node; every
+ * later measurement is arithmetic. Kerning is ignored, which is fine for sizing columns.
+ * Not thread-safe: use it on the FX thread.
+ */
+public final class TextMeasurer {
+
+    private static final Map<Font, TextMeasurer> MEASURERS = new HashMap<>();
+
+    private final Text probe = new Text();
+    private final double[] latinWidths = new double[256];
+    private final Map<Character, Double> otherWidths = new HashMap<>();
+
+    private TextMeasurer(Font font) {
+        probe.setFont(font);
+        Arrays.fill(latinWidths, -1);
+    }
+
+    /**
+     * @param font font of the text
+     * @return shared measurer of the font
+     */
+    public static TextMeasurer of(Font font) {
+        return MEASURERS.computeIfAbsent(font, TextMeasurer::new);
+    }
+
+    /**
+     * @param text text to measure
+     * @return width of the text in pixels
+     */
+    public double width(String text) {
+        return width(text, text.length());
+    }
+
+    /**
+     * @param text     text to measure
+     * @param maxChars number of leading characters to measure
+     * @return width of the first characters of the text in pixels
+     */
+    public double width(String text, int maxChars) {
+        double width = 0;
+        int length = Math.min(text.length(), maxChars);
+        for (int i = 0; i < length; i++) {
+            width += charWidth(text.charAt(i));
+        }
+        return width;
+    }
+
+    private double charWidth(char c) {
+        if (c < latinWidths.length) {
+            double width = latinWidths[c];
+            if (width < 0) {
+                width = measure(c);
+                latinWidths[c] = width;
+            }
+            return width;
+        }
+        return otherWidths.computeIfAbsent(c, this::measure);
+    }
+
+    private double measure(char c) {
+        probe.setText(String.valueOf(c));
+        return probe.getLayoutBounds().getWidth();
+    }
+}
@@ -0,0 +1,90 @@
+package com.logparser.watcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-file check intervals: a file that changed is checked again after the minimum
+ * interval, every check that finds it unchanged doubles its interval up to the maximum.
+ */
+public class AdaptiveScanSchedule {
+
+    private static final class Slot {
+        long intervalMs;
+        long nextDueAt;
+    }
+
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    public AdaptiveScanSchedule(long minIntervalMs, long maxIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+    }
+
+    /**
+     * Record the result of a check
+     * @param key     file name
+     * @param changed true if the file appeared, grew or was rotated
+     * @param now     current time in milliseconds
+     */
+    public synchronized void record(String key, boolean changed, long now) {
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            slot = new Slot();
+            slot.intervalMs = minIntervalMs;
+            slots.put(key, slot);
+        } else {
+            slot.intervalMs = changed ? minIntervalMs : Math.min(slot.intervalMs * 2, maxIntervalMs);
+        }
+        slot.nextDueAt = now + slot.intervalMs;
+    }
+
+    public synchronized boolean isDue(String key, long now) {
+        Slot slot = slots.get(key);
+        return slot == null || slot.nextDueAt <= now;
+    }
+
+    /**
+     * @return keys whose next check is due, hottest first
+     */
+    public synchronized List<String> dueKeys(long now) {
+        List<String> due = new ArrayList<>();
+        slots.entrySet().stream()
+                .filter(e -> e.getValue().nextDueAt <= now)
+                .sorted((a, b) -> Long.compare(a.getValue().intervalMs, b.getValue().intervalMs))
+                .forEach(e -> due.add(e.getKey()));
+        return due;
+    }
+
+    /**
+     * @return milliseconds until the next file is due, the maximum interval if none is known
+     */
+    public synchronized long delayUntilNextDue(long now) {
+        long next = Long.MAX_VALUE;
+        for (Slot slot : slots.values()) {
+            next = Math.min(next, slot.nextDueAt);
+        }
+        return next == Long.MAX_VALUE ? maxIntervalMs : Math.max(0, next - now);
+    }
+
+    /**
+     * Make every file due now, e.g. to catch up after the window regains focus
+     */
+    public synchronized void makeAllDue(long now) {
+        for (Slot slot : slots.values()) {
+            slot.nextDueAt = now;
+        }
+    }
+
+    public synchronized void remove(String key) {
+        slots.remove(key);
+    }
+
+    public synchronized void clear() {
+        slots.clear();
+    }
+}
@@ -0,0 +1,147 @@
+package com.logparser.watcher;
+
+import com.logparser.config.AppConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Identity of one generation of a log file: file key (inode), size, modification time
+ * and checksums of the first block and of the block ending at the known size.
+ * <p>
+ * A file that is still the same generation only ever grows and keeps those blocks
+ * unchanged; anything else means it was truncated (copytruncate) or replaced.
+ */
+public final class FileFingerprint {
+
+    /**
+     * Reads a block of the file being fingerprinted
+     */
+    public interface BlockReader {
+        /**
+         * @return exactly {@code length} bytes at {@code offset}
+         * @throws IOException if the block cannot be read completely
+         */
+        byte[] read(long offset, int length) throws IOException;
+    }
+
+    private final Object fileKey;
+    private final long size;
+    private final long modified;
+    private final int headLength;
+    private final long headHash;
+    private final int tailLength;
+    private final long tailHash;
+
+    private FileFingerprint(Object fileKey, long size, long modified, int headLength, long headHash, int tailLength, long tailHash) {
+        this.fileKey = fileKey;
+        this.size = size;
+        this.modified = modified;
+        this.headLength = headLength;
+        this.headHash = headHash;
+        this.tailLength = tailLength;
+        this.tailHash = tailHash;
+    }
+
+    /**
+     * Fingerprint a file generation
+     * @param fileKey  inode or other stable file key, null if the filesystem has none
+     * @param size     current size
+     * @param modified modification time in any fixed unit
+     * @param reader   reader of the file's blocks
+     * @return fingerprint
+     * @throws IOException if the blocks cannot be read
+     */
+    public static FileFingerprint of(Object fileKey, long size, long modified, BlockReader reader) throws IOException {
+        int headLength = (int) Math.min(size, AppConfig.FINGERPRINT_BLOCK_BYTES);
+        int tailLength = (int) Math.min(size, AppConfig.FINGERPRINT_BLOCK_BYTES);
+        long headHash = checksum(reader.read(0, headLength));
+        long tailHash = checksum(reader.read(size - tailLength, tailLength));
+        return new FileFingerprint(fileKey, size, modified, headLength, headHash, tailLength, tailHash);
+    }
+
+    /**
+     * Fingerprint a local file
+     * @param file local file
+     * @return fingerprint
+     * @throws IOException if the file cannot be read
+     */
+    public static FileFingerprint of(File file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return of(attrs.fileKey(), attrs.size(), attrs.lastModifiedTime().toMillis(), localReader(file));
+    }
+
+    /**
+     * @param file local file
+     * @return reader of the file's blocks
+     */
+    public static BlockReader localReader(File file) {
+        return (offset, length) -> {
+            byte[] block = new byte[length];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(offset);
+                raf.readFully(block);
+            }
+            return block;
+        };
+    }
+
+    /**
+     * Check whether the file as it is now is still this generation, grown or not.
+     * If the blocks cannot be read the file is judged by its key and size alone.
+     *
+     * @param currentKey  current file key, null if unknown
+     * @param currentSize current size
+     * @param reader      reader of the file's current content
+     * @return false if the file was truncated or replaced since this fingerprint was taken
+     */
+    public boolean isSameGeneration(Object currentKey, long currentSize, BlockReader reader) {
+        if (fileKey != null && currentKey != null && !fileKey.equals(currentKey)) return false;
+        if (currentSize < size) return false;
+
+        try {
+            return checksum(reader.read(0, headLength)) == headHash
+                    && checksum(reader.read(size - tailLength, tailLength)) == tailHash;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return true if neither size nor modification time changed, so no content check is needed
+     */
+    public boolean isUnchanged(long currentSize, long currentModified) {
+        return size == currentSize && modified == currentModified;
+    }
+
+    public Object getFileKey() {
+        return fileKey;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    /**
+     * @param key file key of a candidate file
+     * @return true if the candidate is this very file, e.g. after a rename
+     */
+    public boolean hasFileKey(Object key) {
+        return fileKey != null && Objects.equals(fileKey, key);
+    }
+
+    private static long checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+}
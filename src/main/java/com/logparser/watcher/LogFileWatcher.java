@@ -1,133 +1,424 @@
 package com.logparser.watcher;
 
+import com.logparser.cache.EntrySource;
+import com.logparser.config.AppConfig;
 import com.logparser.manager.FileManager;
 import com.logparser.manager.LogManager;
 import com.logparser.manager.MainLayoutManager;
 import com.logparser.model.LogEntry;
-import com.logparser.utils.PagedLogLoader;
+import com.logparser.model.Profile;
+import com.logparser.service.ExecutorServiceManager;
 import javafx.application.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Watches the directory of one local profile.
+ * <p>
+ * Changes are picked up from {@link WatchService} events (inotify on Linux) and bursts
+ * of events are coalesced into one check of the touched files. Filesystems that do not
+ * deliver events (network and FUSE mounts, polling-only watch services) fall back to
+ * polling with an interval that backs off while the directory is idle; there each file
+ * is only checked again once its own {@link AdaptiveScanSchedule} interval has elapsed.
+ */
 public class LogFileWatcher {
 
     private static final Logger log = LoggerFactory.getLogger(LogFileWatcher.class);
 
-    private static final long SCAN_INTERVAL_SECONDS = 5;
-    private volatile boolean active = true;
-    private volatile boolean isFirstScan = true;
-
-    private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r);
-        t.setName("LogFileWatcher-Scheduler");
-        t.setDaemon(true);
-        return t;
-    });
+    private static final long COALESCE_MS = 50;
+    private static final long POLL_MIN_MS = 500;
+    private static final long POLL_MAX_MS = 5000;
+    private static final long RESCAN_INTERVAL_SECONDS = 60;
+    private static final String[] POLLING_FILE_STORES = {"nfs", "cifs", "smb", "fuse", "sshfs", "9p", "webdav", "afp"};
 
     private ScheduledFuture<?> watchTask;
-    private final Map<File, Long> fileReadOffsets = new HashMap<>();
+    private ScheduledFuture<?> rescanTask;
     private final FileManager fileManager;
     private final LogManager logManager;
     private final MainLayoutManager layoutManager;
+    private final WatcherService service;
+    private final Profile profile;
+    private final ProfileWatchState state;
+    private final File directory;
+
+    private final Object scanLock = new Object();
+    private final Set<String> pendingFiles = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private WatchService watchService;
+    private Future<?> eventTask;
+    private final AdaptiveScanSchedule schedule =
+            new AdaptiveScanSchedule(AppConfig.LOCAL_FILE_SCAN_MIN_MS, AppConfig.LOCAL_FILE_SCAN_MAX_MS);
+    private long pollDelayMs = POLL_MIN_MS;
+    private volatile boolean running;
 
-    public LogFileWatcher(MainLayoutManager layoutManager, FileManager fileManager, LogManager logManager) {
+    public LogFileWatcher(MainLayoutManager layoutManager, FileManager fileManager, LogManager logManager,
+                          WatcherService service, Profile profile) {
         this.layoutManager = layoutManager;
         this.fileManager = fileManager;
         this.logManager = logManager;
+        this.service = service;
+        this.profile = profile;
+        this.state = service.getState(profile);
+        this.directory = new File(profile.getPath());
     }
 
-    public void startWatching(File directory) {
-        stopWatching();
-        this.isFirstScan = true;
-        this.layoutManager.setFirstScanProfile(true);
-
-        if (scheduler.isShutdown()) {
-            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r);
-                t.setName("LogFileWatcher-Scheduler");
-                t.setDaemon(true);
-                return t;
-            });
+    public synchronized void startWatching() {
+        running = true;
+        service.getScheduler().execute(() -> fullScan(false));
+
+        watchService = openWatchService(directory.toPath());
+        if (watchService != null) {
+            eventTask = ExecutorServiceManager.getInstance().submitIo("watch-events", Executors.callable(this::pollEvents));
+            // Safety net for dropped events
+            rescanTask = service.getScheduler().scheduleWithFixedDelay(() -> fullScan(false),
+                    RESCAN_INTERVAL_SECONDS, RESCAN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            log.info("Watching {} with filesystem events", directory);
+        } else {
+            schedulePoll(POLL_MIN_MS);
+            log.info("Watching {} with adaptive polling", directory);
+        }
+    }
+
+    public synchronized void stopWatching() {
+        running = false;
+        if (watchTask != null && !watchTask.isCancelled()) {
+            watchTask.cancel(true);
+        }
+        closeWatchService();
+        if (eventTask != null) {
+            eventTask.cancel(true);
+            eventTask = null;
+        }
+    }
+
+    /**
+     * @return watch service registered on the directory, or null if polling must be used
+     */
+    private WatchService openWatchService(Path dir) {
+        try {
+            String storeType = Files.getFileStore(dir).type().toLowerCase();
+            for (String type : POLLING_FILE_STORES) {
+                if (storeType.contains(type)) {
+                    log.info("Filesystem {} of {} does not deliver change events", storeType, dir);
+                    return null;
+                }
+            }
+
+            WatchService ws = dir.getFileSystem().newWatchService();
+            // The JDK fallback implementation only polls, and slower than we do
+            if (ws.getClass().getSimpleName().contains("Polling")) {
+                ws.close();
+                return null;
+            }
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            return ws;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Change events unavailable for {}, polling instead: {}", dir, e.getMessage());
+            return null;
+        }
+    }
+
+    private void pollEvents() {
+        WatchService ws = watchService;
+        try {
+            while (running) {
+                WatchKey key = ws.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        service.getScheduler().execute(() -> fullScan(false));
+                        continue;
+                    }
+                    String name = event.context().toString();
+                    if (name.startsWith(".")) continue;
+                    pendingFiles.add(name);
+                }
+                if (!key.reset()) {
+                    log.warn("Watch key of {} is no longer valid, polling instead", directory);
+                    fallBackToPolling();
+                    return;
+                }
+                if (!pendingFiles.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+                    service.getScheduler().schedule(this::flushEvents, COALESCE_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher stopped
         }
+    }
 
-        watchTask = scheduler.scheduleAtFixedRate(() -> {
-            if (!active) return;
+    private synchronized void fallBackToPolling() {
+        if (!running) return;
+        closeWatchService();
+        schedulePoll(POLL_MIN_MS);
+    }
+
+    /**
+     * Close the watch service together with its safety-net rescan
+     */
+    private synchronized void closeWatchService() {
+        if (rescanTask != null) {
+            rescanTask.cancel(false);
+            rescanTask = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close watch service of {}", directory, e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void flushEvents() {
+        flushScheduled.set(false);
+        List<String> names = new ArrayList<>(pendingFiles);
+        pendingFiles.removeAll(names);
+
+        synchronized (scanLock) {
+            boolean displayed = service.isDisplayed(profile);
+            long now = System.currentTimeMillis();
+            for (String name : names) {
+                File file = new File(directory, name);
+                if (file.isFile()) {
+                    schedule.record(name, checkFile(file, false, displayed), now);
+                } else {
+                    removeFile(name, displayed);
+                }
+            }
+        }
+    }
+
+    private synchronized void schedulePoll(long delayMs) {
+        if (!running) return;
+        watchTask = service.getScheduler().schedule(() -> {
+            boolean changed = fullScan(true);
+            // Back off while idle, but come back when a hot file is due
+            pollDelayMs = changed ? POLL_MIN_MS : Math.min(pollDelayMs * 2, POLL_MAX_MS);
+            long next = Math.min(pollDelayMs, Math.max(POLL_MIN_MS, schedule.delayUntilNextDue(System.currentTimeMillis())));
+            schedulePoll(service.isActive() ? next : next * AppConfig.BACKGROUND_SCAN_FACTOR);
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
 
-            if (this.layoutManager.getFirstScanProfile()) {
+    /**
+     * Check all files at once after the window regains focus
+     */
+    public synchronized void catchUp() {
+        schedule.makeAllDue(System.currentTimeMillis());
+        if (running && watchService == null) {
+            if (watchTask != null) {
+                watchTask.cancel(false);
+            }
+            pollDelayMs = POLL_MIN_MS;
+            schedulePoll(0);
+        }
+    }
+
+    /**
+     * Check the files of the directory
+     * @param dueOnly only stat known files whose adaptive interval has elapsed
+     * @return true if any file appeared, grew or disappeared
+     */
+    private boolean fullScan(boolean dueOnly) {
+        if (!running) return false;
+        synchronized (scanLock) {
+            boolean displayed = service.isDisplayed(profile);
+            if (displayed && this.layoutManager.getFirstScanProfile()) {
                 this.layoutManager.showLoading(true);
                 this.layoutManager.setFirstScanProfile(false);
             }
-            Platform.runLater(() -> layoutManager.showScanIndicator(true));
+            if (displayed) {
+                Platform.runLater(() -> layoutManager.showScanIndicator(true));
+            }
             try {
                 File[] files = directory.listFiles((dir, name) -> !name.startsWith("."));
-                if (files == null) return;
+                if (files == null) return false;
 
-                boolean firstScan = isFirstScan;
-                if (isFirstScan) {
-                    isFirstScan = false;
-                }
+                boolean firstScan = !state.isScanned();
+                boolean changed = false;
+                Set<String> currentFileNames = new HashSet<>();
+                long now = System.currentTimeMillis();
 
                 for (File file : files) {
+                    String name = file.getName();
+                    currentFileNames.add(name);
+                    boolean known = state.getFileSizes().containsKey(name);
+                    if (dueOnly && known && !schedule.isDue(name, now)) continue;
                     if (!file.isFile()) continue;
 
-                    long currentSize = file.length();
-                    Long previousOffset = fileReadOffsets.get(file);
+                    boolean fileChanged = checkFile(file, firstScan, displayed);
+                    schedule.record(name, fileChanged, now);
+                    changed |= fileChanged;
+                }
 
-                    if (previousOffset == null) {
-                        fileReadOffsets.put(file, currentSize);
-                        boolean markAsUpdated = !firstScan;
-                        Platform.runLater(() -> fileManager.addNewFile(file.getName(), file.length(), markAsUpdated));
-                        continue;
+                for (String name : new ArrayList<>(state.getFileSizes().keySet())) {
+                    if (!currentFileNames.contains(name)) {
+                        removeFile(name, displayed);
+                        changed = true;
                     }
+                }
+                state.setScanned(true);
+                return changed;
+            } finally {
+                if (displayed) {
+                    this.layoutManager.showLoading(false);
+                    Platform.runLater(() -> layoutManager.showScanIndicator(false));
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare a file with its last known fingerprint and publish the change.
+     * A truncated or replaced file is read again from the start, after the rest of
+     * its previous generation if that can still be found in the directory.
+     * @return true if the file is new, grew or was rotated
+     */
+    private boolean checkFile(File file, boolean firstScan, boolean displayed) {
+        String name = file.getName();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return false;
+        }
+
+        Map<String, Long> fileReadOffsets = state.getFileSizes();
+        long currentSize = attrs.size();
+        Long previousOffset = fileReadOffsets.get(name);
+        FileFingerprint previous = state.getFingerprints().get(name);
+
+        if (previousOffset == null) {
+            fileReadOffsets.put(name, currentSize);
+            updateFingerprint(file);
+            boolean markAsUpdated = !firstScan;
+            if (markAsUpdated) {
+                service.markUnread(profile, name);
+            }
+            if (displayed) {
+                Platform.runLater(() -> {
+                    if (service.isDisplayed(profile)) fileManager.addNewFile(name, currentSize, markAsUpdated);
+                });
+            }
+            return true;
+        }
 
-                    if (previousOffset < currentSize) {
-                        fileReadOffsets.put(file, currentSize);
-
-                        Platform.runLater(() -> {
-                            String selectedFile = fileManager.getSelectedFileName();
-
-                            if (selectedFile != null && selectedFile.equals(file.getName())) {
-                                try {
-                                    PagedLogLoader loader = new PagedLogLoader(file, logManager.getActiveParser());
-                                    List<LogEntry> newEntries = loader.loadNewLines(previousOffset);
-                                    logManager.prependLogEntries(newEntries);
-                                } catch (IOException e) {
-                                    log.error("Failed to load new lines from: {}", file.getName(), e);
-                                }
-                            } else {
-                                fileManager.markFileAsUpdated(file.getName());
-                            }
-                        });
+        if (previous != null && previous.isUnchanged(currentSize, attrs.lastModifiedTime().toMillis())) {
+            return false;
+        }
+        boolean rotated = previous != null
+                && !previous.isSameGeneration(attrs.fileKey(), currentSize, FileFingerprint.localReader(file));
+        if (!rotated && previousOffset >= currentSize) {
+            updateFingerprint(file);
+            return false;
+        }
+
+        File previousGeneration = rotated ? findPreviousGeneration(file, previous) : null;
+        if (rotated) {
+            log.info("Detected rotation of {}{}", file,
+                    previousGeneration != null ? ", previous generation is now " + previousGeneration.getName() : "");
+        }
+        long readFrom = rotated ? 0 : previousOffset;
+        fileReadOffsets.put(name, currentSize);
+        updateFingerprint(file);
+
+        if (!displayed) {
+            service.markUnread(profile, name);
+            return true;
+        }
+
+        Platform.runLater(() -> {
+            String selectedFile = service.isDisplayed(profile) ? fileManager.getSelectedFileName() : null;
+
+            if (selectedFile != null && selectedFile.equals(name)) {
+                TailPipeline.Sink sink = (entries, from, to) -> {
+                    if (service.isDisplayed(profile) && name.equals(fileManager.getSelectedFileName())) {
+                        logManager.prependLogEntries(entries);
                     }
+                };
+                TailPipeline pipeline = service.getTailPipeline();
+                if (previousGeneration != null) {
+                    pipeline.submit(previousGeneration, previousOffset, previousGeneration.length(), logManager.getActiveParser(),
+                            EntrySource.of(profile, previousGeneration.getPath()), sink);
                 }
-            } finally {
-                this.layoutManager.showLoading(false);
-                Platform.runLater(() -> layoutManager.showScanIndicator(false));
+                pipeline.submit(file, readFrom, currentSize, logManager.getActiveParser(), EntrySource.of(profile, file.getPath()), sink);
+            } else {
+                service.markUnread(profile, name);
+                if (service.isDisplayed(profile)) fileManager.markFileAsUpdated(name);
             }
-        }, 0, SCAN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        });
+        return true;
     }
 
-    public void stopWatching() {
-        if (watchTask != null && !watchTask.isCancelled()) {
-            watchTask.cancel(true);
+    private void updateFingerprint(File file) {
+        try {
+            state.getFingerprints().put(file.getName(), FileFingerprint.of(file));
+        } catch (IOException e) {
+            state.getFingerprints().remove(file.getName());
         }
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
+    }
+
+    /**
+     * Find where the previous generation of a rotated file went: the same file renamed
+     * (e.g. app.log.1) or, after copytruncate, a copy that starts with the same content.
+     * @return the previous generation, or null if it is gone or compressed
+     */
+    private File findPreviousGeneration(File file, FileFingerprint previous) {
+        String name = file.getName();
+        int dot = name.indexOf('.');
+        String prefix = dot > 0 ? name.substring(0, dot) : name;
+        File[] candidates = directory.listFiles((dir, candidate) -> !candidate.equals(name) && candidate.startsWith(prefix));
+        if (candidates == null) return null;
+
+        for (File candidate : candidates) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(candidate.toPath(), BasicFileAttributes.class);
+                if (previous.hasFileKey(attrs.fileKey())) {
+                    return candidate;
+                }
+                if (attrs.size() >= previous.getSize()
+                        && previous.isSameGeneration(null, attrs.size(), FileFingerprint.localReader(candidate))) {
+                    return candidate;
+                }
+            } catch (IOException e) {
+                log.debug("Skipping rotation candidate {}", candidate, e);
+            }
         }
-        fileReadOffsets.clear();
+        return null;
     }
 
-    public void setActive(boolean active) {
-        this.active = active;
+    private void removeFile(String name, boolean displayed) {
+        if (state.getFileSizes().remove(name) == null) return;
+        state.getFingerprints().remove(name);
+        schedule.remove(name);
+        service.markRead(profile, name);
+        if (displayed) {
+            Platform.runLater(() -> {
+                if (service.isDisplayed(profile)) fileManager.removeFile(name);
+            });
+        }
     }
-}
\ No newline at end of file
+}
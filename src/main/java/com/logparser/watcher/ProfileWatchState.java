@@ -0,0 +1,76 @@
+package com.logparser.watcher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Change-detection state of one watched profile, kept while the profile is in the
+ * background so switching back to it is instant.
+ */
+public class ProfileWatchState {
+
+    private final Map<String, Long> fileSizes = new ConcurrentHashMap<>();
+    private final Map<String, FileFingerprint> fingerprints = new ConcurrentHashMap<>();
+    private final List<String> fileList = new CopyOnWriteArrayList<>();
+    private final Set<String> unreadFiles = ConcurrentHashMap.newKeySet();
+    private volatile boolean scanned;
+
+    /** Last known size per file name */
+    public Map<String, Long> getFileSizes() {
+        return fileSizes;
+    }
+
+    /** Fingerprint of the last seen generation per file name */
+    public Map<String, FileFingerprint> getFingerprints() {
+        return fingerprints;
+    }
+
+    /** Display names ("name (size)") of the files found by the last scan */
+    public List<String> getFileList() {
+        return fileList;
+    }
+
+    public Set<String> getUnreadFiles() {
+        return unreadFiles;
+    }
+
+    /**
+     * @param fileName file that grew or appeared
+     * @return true if the file was not already unread
+     */
+    public boolean markUnread(String fileName) {
+        return unreadFiles.add(fileName);
+    }
+
+    /**
+     * @param fileName file the user has looked at
+     * @return true if the file was unread
+     */
+    public boolean markRead(String fileName) {
+        return unreadFiles.remove(fileName);
+    }
+
+    public int getUnreadCount() {
+        return unreadFiles.size();
+    }
+
+    /** True once the first directory scan of the profile has completed */
+    public boolean isScanned() {
+        return scanned;
+    }
+
+    public void setScanned(boolean scanned) {
+        this.scanned = scanned;
+    }
+
+    public void clear() {
+        fileSizes.clear();
+        fingerprints.clear();
+        fileList.clear();
+        unreadFiles.clear();
+        scanned = false;
+    }
+}
@@ -1,225 +1,572 @@
 package com.logparser.watcher;
 
+import com.logparser.cache.EntrySource;
+import com.logparser.cache.EntryCache;
+import com.logparser.config.AppConfig;
 import com.logparser.manager.FileManager;
 import com.logparser.manager.LogManager;
 import com.logparser.manager.MainLayoutManager;
 import com.logparser.model.LogEntry;
 import com.logparser.model.Profile;
+import com.logparser.remote.RemoteIoScheduler;
+import com.logparser.remote.RemoteLogMirror;
+import com.logparser.remote.RemoteTailFollower;
 import com.logparser.remote.SftpRemoteFileAccessor;
+import com.logparser.utils.LogEntryFactory;
+import com.logparser.utils.RecordAssembler;
 import com.jcraft.jsch.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javafx.application.Platform;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 
+/**
+ * Watches the directory of one remote profile over the host's pooled SFTP session.
+ * <p>
+ * The directory listing backs off while nothing changes; in between, files that changed
+ * recently are checked on their own with a single stat, following an {@link AdaptiveScanSchedule}.
+ * All intervals are stretched while the window is not focused.
+ * <p>
+ * Scans and reads run on the host's {@link RemoteIoScheduler}: a file that keeps growing
+ * has at most one read in flight, and reads of the selected file go first.
+ */
 public class RemoteLogWatcher {
 
     private static final Logger log = LoggerFactory.getLogger(RemoteLogWatcher.class);
     private static final long SCAN_INTERVAL_SECONDS = 10;
-    private static final long DISCONNECT_DELAY_MS = 60000;
-
-    private final Map<String, Map<String, List<LogEntry>>> profileFileCache = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> profileFileListCache = new ConcurrentHashMap<>();
-    private final Map<String, Long> remoteFileSizes = new HashMap<>();
-
-    private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r);
-        t.setDaemon(true);
-        return t;
-    });
+    private static final long FOLLOW_SCAN_INTERVAL_SECONDS = 60;
+    private static final long MIN_TICK_MS = 250;
 
     private final FileManager fileManager;
     private final LogManager logManager;
     private final MainLayoutManager layoutManager;
-
-    private Profile activeProfile;
-    private SftpRemoteFileAccessor sftpAccessor;
-    private volatile boolean active = true;
-
-    public RemoteLogWatcher(MainLayoutManager layoutManager, FileManager fileManager, LogManager logManager) {
+    private final WatcherService service;
+    private final Profile profile;
+    private final ProfileWatchState state;
+    private final String hostId;
+    private final Map<String, PendingRead> pendingReads = new ConcurrentHashMap<>();
+
+    private final AdaptiveScanSchedule schedule =
+            new AdaptiveScanSchedule(AppConfig.REMOTE_FILE_SCAN_MIN_MS, AppConfig.REMOTE_LISTING_MAX_MS);
+    private long listingIntervalMs = SCAN_INTERVAL_SECONDS * 1000;
+    private volatile long nextListingAt;
+    private volatile boolean stopped;
+
+    private ScheduledFuture<?> scanTask;
+    private volatile boolean followMode;
+    private RemoteTailFollower follower;
+
+    public RemoteLogWatcher(MainLayoutManager layoutManager, FileManager fileManager, LogManager logManager,
+                            WatcherService service, Profile profile) {
         this.layoutManager = layoutManager;
         this.fileManager = fileManager;
         this.logManager = logManager;
+        this.service = service;
+        this.profile = profile;
+        this.state = service.getState(profile);
+        this.hostId = profile.getId();
     }
 
-    public void startWatching(Profile profile) {
-        stopWatching();
+    public synchronized void startWatching() {
         log.info("Starting remote watcher for profile: {}", profile.getName());
-        this.layoutManager.setFirstScanProfile(true);
-        this.activeProfile = profile;
-        this.remoteFileSizes.clear();
-
-        if (scheduler == null || scheduler.isShutdown() || scheduler.isTerminated()) {
-            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-                Thread t = new Thread(r);
-                t.setDaemon(true);
-                return t;
-            });
+        stopped = false;
+        nextListingAt = 0;
+        scanTask = service.getScheduler().schedule(this::dispatchTick, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Changes of the selected file that were not read yet
+     */
+    private static final class PendingRead {
+        private final long previousSize;
+        private final boolean rotated;
+        private final String previousGeneration;
+
+        PendingRead(long previousSize, boolean rotated, String previousGeneration) {
+            this.previousSize = previousSize;
+            this.rotated = rotated;
+            this.previousGeneration = previousGeneration;
         }
-        scheduler.scheduleAtFixedRate(this::checkRemoteFiles, 0, SCAN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        /**
+         * Fold a newer change into this one; unread lines of the old generation are kept
+         */
+        PendingRead merge(PendingRead newer) {
+            if (!newer.rotated) return this;
+            return new PendingRead(rotated ? newer.previousSize : previousSize, true, newer.previousGeneration);
+        }
+    }
+
+    private long getScanInterval() {
+        return (followMode ? FOLLOW_SCAN_INTERVAL_SECONDS : SCAN_INTERVAL_SECONDS) * 1000;
     }
 
-    public void stopWatching() {
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
-            scheduler = null;
+    private long scaled(long intervalMs) {
+        return service.isActive() ? intervalMs : intervalMs * AppConfig.BACKGROUND_SCAN_FACTOR;
+    }
+
+    private void tick() {
+        if (stopped) return;
+        long now = System.currentTimeMillis();
+        try {
+            if (now >= nextListingAt) {
+                boolean changed = checkRemoteFiles();
+                long maxInterval = Math.max(getScanInterval(), AppConfig.REMOTE_LISTING_MAX_MS);
+                listingIntervalMs = changed ? getScanInterval() : Math.min(listingIntervalMs * 2, maxInterval);
+                nextListingAt = System.currentTimeMillis() + scaled(listingIntervalMs);
+            } else {
+                checkDueFiles(now);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check files of profile {}: {}", profile.getName(), e.getMessage());
+        } finally {
+            scheduleNextTick();
         }
-        if (sftpAccessor != null) {
-            sftpAccessor.disconnect();
-            sftpAccessor = null;
+    }
+
+    private synchronized void scheduleNextTick() {
+        if (stopped) return;
+        long now = System.currentTimeMillis();
+        long delay = Math.min(nextListingAt - now, scaled(schedule.delayUntilNextDue(now)));
+        if (scanTask != null) {
+            scanTask.cancel(false);
         }
+        scanTask = service.getScheduler().schedule(this::dispatchTick, Math.max(MIN_TICK_MS, delay), TimeUnit.MILLISECONDS);
     }
 
-    private void checkRemoteFiles() {
-        if (!active) return;
+    /**
+     * Hand the next scan to the host's I/O scheduler; a scan that is still queued absorbs this one
+     */
+    private void dispatchTick() {
+        RemoteIoScheduler.Priority priority = service.isDisplayed(profile)
+                ? RemoteIoScheduler.Priority.FOREGROUND
+                : RemoteIoScheduler.Priority.BACKGROUND;
+        getIoScheduler().submit("scan " + profile.getName(), priority, this::tick);
+    }
 
-        if (this.layoutManager.getFirstScanProfile()) {
-            this.layoutManager.showLoading(true);
-            this.layoutManager.setFirstScanProfile(false);
+    private RemoteIoScheduler getIoScheduler() {
+        return service.getSessionPool().getIoScheduler(profile);
+    }
+
+    /**
+     * Check everything right away, e.g. after the window regains focus
+     */
+    public synchronized void catchUp() {
+        if (stopped) return;
+        schedule.makeAllDue(System.currentTimeMillis());
+        nextListingAt = 0;
+        if (scanTask != null) {
+            scanTask.cancel(false);
+        }
+        dispatchTick();
+    }
+
+    /**
+     * Stat the files whose adaptive interval has elapsed; too many of them are left to the next listing
+     */
+    private void checkDueFiles(long now) throws Exception {
+        List<String> due = schedule.dueKeys(now);
+        due.removeIf(this::isFollowing);
+        if (due.isEmpty()) return;
+        if (due.size() > AppConfig.REMOTE_STAT_MAX_FILES) {
+            nextListingAt = 0;
+            return;
         }
-        Platform.runLater(() -> layoutManager.showScanIndicator(true));
 
+        SftpRemoteFileAccessor sftpAccessor = getSftpAccessor();
+        sftpAccessor.connect();
+        ChannelSftp sftp = (ChannelSftp) sftpAccessor.getSession().openChannel("sftp");
+        sftp.connect(AppConfig.SFTP_CHANNEL_TIMEOUT);
         try {
-            if (sftpAccessor == null) {
-                sftpAccessor = new SftpRemoteFileAccessor(
-                        activeProfile.getHost(),
-                        activeProfile.getPort(),
-                        activeProfile.getUsername(),
-                        activeProfile.getPassword(),
-                        activeProfile.getPath(),
-                        logManager.getActiveParser()
-                );
+            boolean displayed = service.isDisplayed(profile);
+            for (String fileName : due) {
+                try {
+                    SftpATTRS attrs = sftp.stat(profile.getPath() + "/" + fileName);
+                    boolean changed = checkFile(fileName, attrs.getSize(), attrs.getMTime(), null, sftpAccessor, displayed);
+                    schedule.record(fileName, changed, now);
+                } catch (SftpException e) {
+                    if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) throw e;
+                    // Removed or renamed away, the listing takes care of it
+                    schedule.remove(fileName);
+                    nextListingAt = 0;
+                }
             }
+        } finally {
+            sftp.disconnect();
+        }
+    }
+
+    /**
+     * Enable or disable follow mode. While enabled the selected file is streamed over
+     * an exec channel and the directory listing is polled much less often.
+     * @param enabled true to follow the selected file
+     */
+    public synchronized void setFollowMode(boolean enabled) {
+        if (followMode == enabled) return;
+        followMode = enabled;
+
+        if (enabled) {
+            followSelectedFile();
+        } else {
+            stopFollowing();
+        }
+
+        listingIntervalMs = getScanInterval();
+    }
+
+    public boolean isFollowMode() {
+        return followMode;
+    }
+
+    /**
+     * Start following the file selected in the file list, replacing any previous follower.
+     * Does nothing unless follow mode is enabled, this profile is displayed and the file size is already known.
+     */
+    public synchronized void followSelectedFile() {
+        if (!followMode || !service.isDisplayed(profile)) return;
+
+        String selected = fileManager.getSelectedFileName();
+        Long offset = selected != null ? state.getFileSizes().get(selected) : null;
+        if (offset == null) {
+            stopFollowing();
+            return;
+        }
+
+        String remotePath = profile.getPath() + "/" + selected;
+        if (follower != null && follower.isRunning() && follower.getRemotePath().equals(remotePath)) return;
+
+        stopFollowing();
+        follower = new RemoteTailFollower(getSftpAccessor(), EntrySource.of(profile, remotePath), offset, logManager.getActiveParser(),
+                entries -> Platform.runLater(() -> {
+                    if (service.isDisplayed(profile) && selected.equals(fileManager.getSelectedFileName()) && isFollowing(selected)) {
+                        logManager.prependLogEntries(entries);
+                    }
+                }));
+        follower.start();
+        log.info("Following remote file: {}", remotePath);
+    }
 
+    private synchronized boolean isFollowing(String fileName) {
+        return follower != null && follower.isRunning()
+                && follower.getRemotePath().equals(profile.getPath() + "/" + fileName);
+    }
+
+    private synchronized void stopFollowing() {
+        if (follower != null) {
+            follower.stop();
+            // The follower is the only reader of its file meanwhile: continue where it stopped
+            String fileName = follower.getRemotePath().substring(profile.getPath().length() + 1);
+            long offset = follower.getOffset();
+            if (state.getFileSizes().containsKey(fileName)) {
+                state.getFileSizes().put(fileName, offset);
+                FileFingerprint fingerprint = state.getFingerprints().get(fileName);
+                if (fingerprint != null && fingerprint.getSize() != offset) {
+                    // Taken at a size the follower had not reached; the next check fingerprints again
+                    state.getFingerprints().remove(fileName);
+                }
+            }
+            follower = null;
+        }
+    }
+
+    public synchronized void stopWatching() {
+        stopped = true;
+        stopFollowing();
+        if (scanTask != null) {
+            scanTask.cancel(false);
+            scanTask = null;
+        }
+    }
+
+    /**
+     * List the directory and check every file in it
+     * @return true if any file appeared, changed or disappeared
+     */
+    private boolean checkRemoteFiles() {
+        boolean displayed = service.isDisplayed(profile);
+        if (displayed && this.layoutManager.getFirstScanProfile()) {
+            this.layoutManager.showLoading(true);
+            this.layoutManager.setFirstScanProfile(false);
+        }
+        if (displayed) {
+            Platform.runLater(() -> layoutManager.showScanIndicator(true));
+        }
+
+        boolean changed = false;
+        try {
+            SftpRemoteFileAccessor sftpAccessor = getSftpAccessor();
             if (!sftpAccessor.isAlive()) {
                 log.debug("SFTP connection lost, reconnecting...");
                 sftpAccessor.disconnect();
                 sftpAccessor.connect();
             }
 
-            Channel channel = sftpAccessor.getSession().openChannel("sftp");
-            channel.connect(3000);
-            ChannelSftp localSftp = (ChannelSftp) channel;
-            Vector<ChannelSftp.LsEntry> entries = localSftp.ls(activeProfile.getPath());
-            localSftp.disconnect();
+            List<ChannelSftp.LsEntry> entries = listDirectory(sftpAccessor);
             Set<String> currentFileNames = new HashSet<>();
+            Map<String, Long> remoteFileSizes = state.getFileSizes();
+            boolean firstScan = !state.isScanned();
+            long now = System.currentTimeMillis();
 
             for (ChannelSftp.LsEntry entry : entries) {
                 if (entry.getAttrs().isDir() || entry.getFilename().startsWith(".")) continue;
 
                 String fileName = entry.getFilename();
                 long size = entry.getAttrs().getSize();
-                long previousSize = remoteFileSizes.getOrDefault(fileName, -1L);
                 currentFileNames.add(fileName);
 
-                if (previousSize == -1) {
+                if (!remoteFileSizes.containsKey(fileName)) {
                     remoteFileSizes.put(fileName, size);
                     String displayName = fileName + " (" + humanReadableByteCountBin(size) + ")";
-                    Platform.runLater(() -> fileManager.addNewFile(fileName, size, false));
-
-                    profileFileListCache
-                            .computeIfAbsent(activeProfile.getId(), k -> new ArrayList<>())
-                            .add(displayName);
-                } else if (size > previousSize) {
-                    remoteFileSizes.put(fileName, size);
-
-                    new Thread(() -> {
-                        Platform.runLater(() -> layoutManager.showLoading(true));
-                        String selected = fileManager.getSelectedFileName();
-                        if (selected != null && selected.equals(fileName)) {
-                            try {
-                                List<LogEntry> newEntries = sftpAccessor.readFromOffset(previousSize);
-
-                                profileFileCache
-                                        .computeIfAbsent(activeProfile.getId(), k -> new ConcurrentHashMap<>())
-                                        .put(fileName, newEntries);
-
-                                Platform.runLater(() -> logManager.prependLogEntries(newEntries));
-                            } catch (Exception ex) {
-                                log.error("Failed to read new entries from: {}", fileName, ex);
-                            } finally {
-                                Platform.runLater(() -> layoutManager.showLoading(false));
-                            }
-                        } else {
-                            Platform.runLater(() -> {
-                                fileManager.markFileAsUpdated(fileName);
-                                layoutManager.showLoading(false);
-                            });
-                        }
-                    }).start();
+                    state.getFileList().add(displayName);
+                    schedule.record(fileName, !firstScan, now);
+                    if (!firstScan) {
+                        changed = true;
+                        service.markUnread(profile, fileName);
+                    }
+                    if (displayed) {
+                        boolean markAsUpdated = !firstScan;
+                        Platform.runLater(() -> {
+                            if (service.isDisplayed(profile)) fileManager.addNewFile(fileName, size, markAsUpdated);
+                        });
+                    }
+                } else {
+                    boolean fileChanged = checkFile(fileName, size, entry.getAttrs().getMTime(), entries, sftpAccessor, displayed);
+                    schedule.record(fileName, fileChanged, now);
+                    changed |= fileChanged;
                 }
             }
 
-            List<String> cached = profileFileListCache.getOrDefault(activeProfile.getId(), new ArrayList<>());
-            Iterator<String> iterator = cached.iterator();
-            while (iterator.hasNext()) {
-                String display = iterator.next();
+            for (String display : state.getFileList()) {
                 String name = display.replaceAll(" \\(.+?\\)$", "");
                 if (!currentFileNames.contains(name)) {
-                    iterator.remove();
-                    Platform.runLater(() -> fileManager.removeFile(name));
-                    Map<String, List<LogEntry>> fileMap = profileFileCache.get(activeProfile.getId());
-                    if (fileMap != null) fileMap.remove(name);
+                    changed = true;
+                    state.getFileList().remove(display);
+                    remoteFileSizes.remove(name);
+                    state.getFingerprints().remove(name);
+                    schedule.remove(name);
+                    service.markRead(profile, name);
+                    if (displayed) {
+                        Platform.runLater(() -> fileManager.removeFile(name));
+                    }
+                    getEntryCache().invalidate(profile.getId(), profile.getPath() + "/" + name);
                 }
             }
 
+            state.setScanned(true);
+            followSelectedFile();
+
         } catch (Exception e) {
-            log.error("Failed to check remote files", e);
-            Platform.runLater(() -> layoutManager.showError("Connection Error", "Failed to check remote files:\n" + e.getMessage()));
+            if (displayed) {
+                log.error("Failed to check remote files", e);
+                Platform.runLater(() -> layoutManager.showError("Connection Error", "Failed to check remote files:\n" + e.getMessage()));
+            } else {
+                log.warn("Failed to check remote files of background profile {}: {}", profile.getName(), e.getMessage());
+            }
         } finally {
+            if (displayed) {
+                Platform.runLater(() -> {
+                    layoutManager.showLoading(false);
+                    layoutManager.showScanIndicator(false);
+                });
+            }
+        }
+        return changed;
+    }
+
+    private List<ChannelSftp.LsEntry> listDirectory(SftpRemoteFileAccessor sftpAccessor) throws Exception {
+        Channel channel = sftpAccessor.getSession().openChannel("sftp");
+        channel.connect(3000);
+        ChannelSftp localSftp = (ChannelSftp) channel;
+        try {
+            return new ArrayList<>(localSftp.ls(profile.getPath()));
+        } finally {
+            localSftp.disconnect();
+        }
+    }
+
+    /**
+     * Compare a known file with its fingerprint and read or announce the change
+     * @param entries directory listing for finding a rotated-away generation, null to list on demand
+     * @return true if the file grew or was rotated
+     */
+    private boolean checkFile(String fileName, long size, long modified, List<ChannelSftp.LsEntry> entries,
+                              SftpRemoteFileAccessor sftpAccessor, boolean displayed) throws Exception {
+        Map<String, Long> remoteFileSizes = state.getFileSizes();
+        long previousSize = remoteFileSizes.getOrDefault(fileName, 0L);
+        FileFingerprint previous = state.getFingerprints().get(fileName);
+        if (previous != null ? previous.isUnchanged(size, modified) : size == previousSize) return false;
+
+        String remotePath = profile.getPath() + "/" + fileName;
+        FileFingerprint.BlockReader reader = remoteReader(sftpAccessor, remotePath);
+        // Files are fingerprinted on their first change, until then only shrinking reveals a rotation
+        boolean rotated = previous != null ? !previous.isSameGeneration(null, size, reader) : size < previousSize;
+        updateFingerprint(fileName, size, modified, reader);
+        if (!rotated && size <= previousSize) return false;
+        // The follower tracks its own offset, across rotations too
+        if (isFollowing(fileName)) return true;
+
+        remoteFileSizes.put(fileName, size);
+        String previousGeneration = null;
+        if (rotated) {
+            previousGeneration = findPreviousGeneration(fileName, previous,
+                    entries != null ? entries : listDirectory(sftpAccessor), sftpAccessor);
+            log.info("Detected rotation of {}{}", remotePath,
+                    previousGeneration != null ? ", previous generation is now " + previousGeneration : "");
+        }
+
+        if (displayed && fileName.equals(fileManager.getSelectedFileName())) {
+            pendingReads.merge(fileName, new PendingRead(previousSize, rotated, previousGeneration), PendingRead::merge);
+            getIoScheduler().submit("read " + remotePath, RemoteIoScheduler.Priority.SELECTED,
+                    () -> readSelectedFile(fileName));
+        } else {
+            markUpdated(fileName, displayed);
+        }
+        return true;
+    }
+
+    private void markUpdated(String fileName, boolean displayed) {
+        service.markUnread(profile, fileName);
+        if (displayed) {
             Platform.runLater(() -> {
-                layoutManager.showLoading(false);
-                layoutManager.showScanIndicator(false);
+                if (service.isDisplayed(profile)) fileManager.markFileAsUpdated(fileName);
             });
         }
     }
 
-    private ScheduledExecutorService disconnectExecutor = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * Read everything that changed in the selected file since its last read and show it
+     */
+    private void readSelectedFile(String fileName) {
+        PendingRead read = pendingReads.remove(fileName);
+        if (read == null) return;
+        if (!service.isDisplayed(profile) || !fileName.equals(fileManager.getSelectedFileName())) {
+            markUpdated(fileName, service.isDisplayed(profile));
+            return;
+        }
+
+        String remotePath = profile.getPath() + "/" + fileName;
+        SftpRemoteFileAccessor sftpAccessor = getSftpAccessor();
+        Platform.runLater(() -> layoutManager.showLoading(true));
+        try {
+            if (read.previousGeneration != null) {
+                readPreviousGeneration(sftpAccessor, profile.getPath() + "/" + read.previousGeneration, read.previousSize, fileName);
+            }
+            RemoteLogMirror.SyncResult sync = service.getMirror().sync(profile.getId(), sftpAccessor, remotePath);
+            long from = read.rotated ? 0 : Math.max(0, read.previousSize - sync.getBaseOffset());
+            if (read.rotated) {
+                getEntryCache().invalidate(profile.getId(), remotePath);
+            }
+
+            // The pipeline reads the mirror, whose offsets start at the mirrored part of the remote file.
+            // Each batch is cached as the range it was read from, so the ranges of the increment line up
+            service.getTailPipeline().submit(sync.getFile(), from, sync.getLength(), logManager.getActiveParser(),
+                    EntrySource.of(profile, remotePath).withBaseOffset(sync.getBaseOffset()), (newEntries, batchFrom, batchTo) -> {
+                        getEntryCache().put(new EntryCache.Key(profile.getId(), remotePath, batchFrom, batchTo), newEntries);
+                        if (service.isDisplayed(profile) && fileName.equals(fileManager.getSelectedFileName())) {
+                            logManager.prependLogEntries(newEntries);
+                        }
+                    });
+        } catch (Exception ex) {
+            log.error("Failed to read new entries from: {}", fileName, ex);
+        } finally {
+            Platform.runLater(() -> layoutManager.showLoading(false));
+        }
+    }
+
+    private void updateFingerprint(String fileName, long size, long modified, FileFingerprint.BlockReader reader) {
+        try {
+            state.getFingerprints().put(fileName, FileFingerprint.of(null, size, modified, reader));
+        } catch (IOException e) {
+            state.getFingerprints().remove(fileName);
+        }
+    }
 
-    public void setActive(boolean active) {
-        this.active = active;
+    private static FileFingerprint.BlockReader remoteReader(SftpRemoteFileAccessor accessor, String remotePath) {
+        return (offset, length) -> {
+            byte[] block = accessor.readChunk(remotePath, offset, length);
+            if (block.length < length) {
+                throw new IOException("Short read of " + remotePath);
+            }
+            return block;
+        };
+    }
 
-        if (!active) {
-            disconnectExecutor.schedule(this::stopWatching, DISCONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
-        } else {
-            if (activeProfile != null && (sftpAccessor == null || !sftpAccessor.isAlive())) {
-                try {
-                    if (sftpAccessor == null) {
-                        sftpAccessor = new SftpRemoteFileAccessor(
-                                activeProfile.getHost(),
-                                activeProfile.getPort(),
-                                activeProfile.getUsername(),
-                                activeProfile.getPassword(),
-                                activeProfile.getPath(),
-                                logManager.getActiveParser()
-                        );
-                    }
-                    sftpAccessor.connect();
-                    log.debug("Reconnected SFTP after window focus");
-                } catch (Exception e) {
-                    log.warn("Failed to reconnect SFTP", e);
-                }
+    /**
+     * Find the listed file holding the previous generation of a rotated file, i.e. one
+     * that starts with the same content as far as it was known (renamed or copied away)
+     * @return file name, or null if it is gone or compressed
+     */
+    private String findPreviousGeneration(String fileName, FileFingerprint previous,
+                                          List<ChannelSftp.LsEntry> entries, SftpRemoteFileAccessor accessor) {
+        if (previous == null) return null;
+
+        int dot = fileName.indexOf('.');
+        String prefix = dot > 0 ? fileName.substring(0, dot) : fileName;
+        for (ChannelSftp.LsEntry candidate : entries) {
+            String name = candidate.getFilename();
+            long size = candidate.getAttrs().getSize();
+            if (name.equals(fileName) || !name.startsWith(prefix) || candidate.getAttrs().isDir() || size < previous.getSize()) continue;
+
+            if (previous.isSameGeneration(null, size, remoteReader(accessor, profile.getPath() + "/" + name))) {
+                return name;
             }
         }
+        return null;
+    }
+
+    /**
+     * Show the lines written to the previous generation after it was last read
+     */
+    private void readPreviousGeneration(SftpRemoteFileAccessor accessor, String remotePath, long from, String fileName) throws Exception {
+        long size = accessor.getFileSize(remotePath);
+        long start = Math.max(from, size - AppConfig.MAX_INCREMENTAL_READ_MB * 1024L * 1024L);
+        if (start >= size) return;
+
+        byte[] data = accessor.readChunk(remotePath, start, (int) (size - start));
+        RecordAssembler assembler = new RecordAssembler();
+        List<String> lines = assembler.feed(data, data.length);
+        EntrySource source = EntrySource.of(profile, remotePath).withBaseOffset(start);
+
+        List<LogEntry> entries = new ArrayList<>(lines.size() + 1);
+        for (int i = 0; i < lines.size(); i++) {
+            entries.add(LogEntryFactory.parseOrInvalid(logManager.getActiveParser(), lines.get(i), source, assembler.getRecordOffset(i)));
+        }
+        long partialOffset = assembler.getConsumedBytes();
+        String partial = assembler.flush();
+        if (partial != null) {
+            entries.add(LogEntryFactory.parseOrInvalid(logManager.getActiveParser(), partial, source, partialOffset));
+        }
+        Platform.runLater(() -> {
+            if (service.isDisplayed(profile) && fileName.equals(fileManager.getSelectedFileName())) {
+                logManager.prependLogEntries(entries);
+            }
+        });
     }
 
+    /**
+     * @return pooled accessor of this profile's host; it may need to (re)connect
+     */
     public SftpRemoteFileAccessor getSftpAccessor() {
-        return sftpAccessor;
+        return service.getSessionPool().acquire(profile);
     }
 
-    public List<String> getCachedFileListForProfile(Profile profile) {
-        return profileFileListCache.getOrDefault(profile.getId(), new ArrayList<>());
+    /**
+     * @return host key the watcher was started with, see {@link Profile#getId()}
+     */
+    public String getHostId() {
+        return hostId;
     }
 
-    public void putCachedFileListForProfile(Profile profile, List<String> files) {
-        profileFileListCache.put(profile.getId(), files);
+    public RemoteLogMirror getMirror() {
+        return service.getMirror();
     }
 
-    public List<String> getFileListFromCache(Profile profile) {
-        return profileFileListCache.getOrDefault(profile.getId(), new ArrayList<>());
+    public List<String> getFileListFromCache() {
+        return new ArrayList<>(state.getFileList());
     }
 
     private String humanReadableByteCountBin(long bytes) {
@@ -229,36 +576,34 @@ public class RemoteLogWatcher {
         return String.format("%.1f %sB", bytes / Math.pow(1024, exp), pre);
     }
 
-    public Map<String, Map<String, List<LogEntry>>> getProfileFileCache() {
-        return profileFileCache;
+    public EntryCache getEntryCache() {
+        return service.getEntryCache();
     }
 
-    public Map<String, List<String>> getProfileFileListCache() {
-        return profileFileListCache;
-    }
-
-    public void fullDisconnect() {
-        if (sftpAccessor != null) {
-            sftpAccessor.disconnect();
-            sftpAccessor = null;
-        }
+    /**
+     * Record that the log table loaded a file up to the given size, so that its next
+     * change is read from there
+     * @param fileName file name
+     * @param length   remote size the table is up to date with
+     */
+    public void markLoaded(String fileName, long length) {
+        state.getFileSizes().computeIfPresent(fileName, (name, size) -> Math.max(size, length));
     }
 
+    /**
+     * List the directory as soon as the host's I/O scheduler allows, ahead of background work
+     */
     public void forceRefresh() {
-        if (activeProfile == null) return;
-
-        new Thread(() -> {
-            try {
-                checkRemoteFiles();
-            } catch (Exception e) {
-                log.error("Force refresh failed", e);
-            }
-        }).start();
+        nextListingAt = 0;
+        getIoScheduler().submit("scan " + profile.getName(), RemoteIoScheduler.Priority.FOREGROUND, this::tick);
     }
 
-    public void clearCacheForProfile(String profileId) {
-        profileFileListCache.remove(profileId);
-        profileFileCache.remove(profileId);
-        remoteFileSizes.clear();
+    public void clearCache() {
+        pendingReads.clear();
+        state.clear();
+        schedule.clear();
+        service.fireUnreadChanged();
+        // The cache is keyed by host, which other profiles may share
+        getEntryCache().invalidateDirectory(profile.getId(), profile.getPath());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,278 @@
+package com.logparser.watcher;
+
+import com.logparser.cache.EntrySource;
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import com.logparser.parser.LogParser;
+import com.logparser.service.ExecutorServiceManager;
+import com.logparser.utils.LogEntryFactory;
+import com.logparser.utils.RecordAssembler;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reads appended bytes of the followed file off the FX thread.
+ * <p>
+ * A reader task turns byte ranges into batches of raw lines, the batches are parsed
+ * on the CPU pool and a delivery task hands the parsed batches, in order,
+ * to the FX thread. Both hand-offs are bounded: a full parse queue blocks the reader
+ * and at most {@link AppConfig#TAIL_MAX_PENDING_FX_BATCHES} batches wait for the FX
+ * thread, so a very chatty file slows its own tailing down instead of the UI.
+ * <p>
+ * A line still being written when its range was read is held back: the next range of
+ * the same file starts at that line instead, like {@link com.logparser.remote.RemoteTailFollower}.
+ */
+public class TailPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(TailPipeline.class);
+
+    /**
+     * Receives the entries parsed from the bytes [from, to) of a file, offsets counted in its
+     * {@link EntrySource}
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(List<LogEntry> entries, long from, long to);
+    }
+
+    private static final class Range {
+        final File file;
+        final long from;
+        long to;
+        final LogParser parser;
+        final EntrySource source;
+        final Sink sink;
+        final long generation;
+
+        Range(File file, long from, long to, LogParser parser, EntrySource source, Sink sink, long generation) {
+            this.file = file;
+            this.from = from;
+            this.to = to;
+            this.parser = parser;
+            this.source = source;
+            this.sink = sink;
+            this.generation = generation;
+        }
+    }
+
+    private static final class Batch {
+        final Future<List<LogEntry>> entries;
+        final long from;
+        final long to;
+        final Sink sink;
+        final long generation;
+
+        Batch(Future<List<LogEntry>> entries, long from, long to, Sink sink, long generation) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+            this.generation = generation;
+        }
+    }
+
+    private final Deque<Range> ranges = new ArrayDeque<>();
+    // File -> {end of its last range, offset of the partial line held back there}
+    private final Map<File, long[]> heldBack = new ConcurrentHashMap<>();
+    // A lock rather than a monitor: the stages run on virtual threads and must not pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition rangeAdded = lock.newCondition();
+    private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(AppConfig.TAIL_QUEUE_CAPACITY);
+    private final Semaphore fxPermits = new Semaphore(AppConfig.TAIL_MAX_PENDING_FX_BATCHES);
+    private volatile long generation;
+    private volatile boolean running = true;
+    private final Future<?> reader;
+    private final Future<?> delivery;
+
+    public TailPipeline() {
+        reader = ExecutorServiceManager.getInstance().submitIo("tail-reader", Executors.callable(this::readLoop));
+        delivery = ExecutorServiceManager.getInstance().submitIo("tail-delivery", Executors.callable(this::deliveryLoop));
+    }
+
+    /**
+     * Queue the bytes [from, to) of a file for reading. Ranges are read in submission order;
+     * a range continuing the last queued one is merged into it.
+     *
+     * @param file   file to read
+     * @param from   offset of the first new byte
+     * @param to     file size observed by the watcher
+     * @param parser parser for the lines
+     * @param source file the entries belong to, e.g. the remote file of a mirror
+     * @param sink   receives each parsed batch with its byte range on the FX thread
+     */
+    public void submit(File file, long from, long to, LogParser parser, EntrySource source, Sink sink) {
+        if (from >= to) return;
+
+        lock.lock();
+        try {
+            Range last = ranges.peekLast();
+            if (last != null && last.file.equals(file) && last.to == from && last.parser == parser
+                    && last.source.equals(source)) {
+                last.to = to;
+                return;
+            }
+            ranges.addLast(new Range(file, from, to, parser, source, sink, generation));
+            rangeAdded.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop all queued and in-flight batches, e.g. when another file gets selected
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            generation++;
+            ranges.clear();
+            heldBack.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        reader.cancel(true);
+        delivery.cancel(true);
+    }
+
+    private Range nextRange() throws InterruptedException {
+        lock.lock();
+        try {
+            while (ranges.isEmpty()) {
+                rangeAdded.await();
+            }
+            return ranges.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void readLoop() {
+        while (running) {
+            try {
+                read(nextRange());
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                log.error("Failed to read new lines", e);
+            }
+        }
+    }
+
+    private void read(Range range) throws IOException, InterruptedException {
+        long start = range.from;
+        long[] partial = heldBack.remove(range.file);
+        if (partial != null && partial[0] == range.from) {
+            start = partial[1];
+        }
+        long maxReadSize = AppConfig.MAX_INCREMENTAL_READ_MB * 1024L * 1024L;
+        long from = range.to - start > maxReadSize ? range.to - maxReadSize : start;
+
+        RecordAssembler assembler = new RecordAssembler();
+        long batchStart = from;
+        List<String> lines = new ArrayList<>();
+        long[] offsets = new long[AppConfig.TAIL_BATCH_LINES];
+        byte[] buffer = new byte[AppConfig.TAIL_READ_CHUNK_BYTES];
+
+        try (RandomAccessFile raf = new RandomAccessFile(range.file, "r")) {
+            raf.seek(from);
+            long remaining = range.to - from;
+            while (remaining > 0 && range.generation == generation) {
+                int read = raf.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) break;
+                remaining -= read;
+
+                List<String> records = assembler.feed(buffer, read);
+                if (lines.size() + records.size() > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, lines.size() + records.size()));
+                }
+                for (int i = 0; i < records.size(); i++) {
+                    offsets[lines.size()] = from + assembler.getRecordOffset(i);
+                    lines.add(records.get(i));
+                }
+                if (lines.size() >= AppConfig.TAIL_BATCH_LINES) {
+                    long batchEnd = from + assembler.getConsumedBytes();
+                    publish(lines, offsets, batchStart, batchEnd, range);
+                    batchStart = batchEnd;
+                    lines = new ArrayList<>();
+                    offsets = new long[AppConfig.TAIL_BATCH_LINES];
+                }
+            }
+        }
+
+        // A line still being written at the observed size is read again with the next range
+        long consumed = from + assembler.getConsumedBytes();
+        if (consumed < range.to && range.generation == generation) {
+            heldBack.put(range.file, new long[]{range.to, consumed});
+        }
+        if (!lines.isEmpty()) {
+            publish(lines, offsets, batchStart, consumed, range);
+        }
+    }
+
+    /**
+     * @param offsets offset in the file of each line
+     * @param from    offset of the first line
+     * @param to      offset right after the last line
+     */
+    private void publish(List<String> lines, long[] offsets, long from, long to, Range range) throws InterruptedException {
+        if (range.generation != generation) return;
+        Future<List<LogEntry>> parsed = ExecutorServiceManager.getInstance().submitCpu("tail-parse", () -> {
+            List<LogEntry> entries = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                entries.add(LogEntryFactory.parseOrInvalid(range.parser, lines.get(i), range.source, offsets[i]));
+            }
+            return entries;
+        });
+        long base = range.source.baseOffset();
+        batches.put(new Batch(parsed, base + from, base + to, range.sink, range.generation));
+    }
+
+    private void deliveryLoop() {
+        while (running) {
+            try {
+                Batch batch = batches.take();
+                List<LogEntry> entries = batch.entries.get();
+                if (batch.generation != generation) continue;
+
+                fxPermits.acquire();
+                Platform.runLater(() -> {
+                    try {
+                        if (batch.generation == generation) {
+                            batch.sink.accept(entries, batch.from, batch.to);
+                        }
+                    } finally {
+                        fxPermits.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                return;
+            } catch (ExecutionException e) {
+                log.error("Failed to parse new lines", e.getCause());
+            }
+        }
+    }
+}
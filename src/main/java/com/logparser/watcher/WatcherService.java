@@ -0,0 +1,244 @@
+package com.logparser.watcher;
+
+import com.logparser.cache.EntryCache;
+import com.logparser.config.AppConfig;
+import com.logparser.manager.FileManager;
+import com.logparser.manager.LogManager;
+import com.logparser.manager.MainLayoutManager;
+import com.logparser.manager.ProfileManager;
+import com.logparser.model.Profile;
+import com.logparser.remote.RemoteLogMirror;
+import com.logparser.remote.RemoteSessionPool;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Watches every profile at once on a shared scheduler.
+ * <p>
+ * Each profile gets its own {@link LogFileWatcher} or {@link RemoteLogWatcher} with its own
+ * {@link ProfileWatchState}; remote watchers of the same host share one pooled session.
+ * Only the displayed profile drives the file list and log table, background profiles just
+ * collect unread files, so switching profiles does not tear anything down.
+ */
+public class WatcherService {
+
+    private static final Logger log = LoggerFactory.getLogger(WatcherService.class);
+    private static final int SCHEDULER_THREADS = 2;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS, r -> {
+        Thread t = new Thread(r);
+        t.setName("Watcher-Scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final RemoteSessionPool sessionPool = new RemoteSessionPool();
+    private final TailPipeline tailPipeline = new TailPipeline();
+    private final RemoteLogMirror mirror = new RemoteLogMirror(
+            new File(ProfileManager.getConfigDirPath(), AppConfig.MIRROR_DIR_NAME));
+    private final EntryCache entryCache = new EntryCache(AppConfig.MAX_CACHE_SIZE_MB * 1024L * 1024L);
+    private final Map<Profile, ProfileWatchState> states = new ConcurrentHashMap<>();
+    private final Map<Profile, LogFileWatcher> localWatchers = new ConcurrentHashMap<>();
+    private final Map<Profile, RemoteLogWatcher> remoteWatchers = new ConcurrentHashMap<>();
+
+    private final MainLayoutManager layoutManager;
+    private final FileManager fileManager;
+    private final LogManager logManager;
+
+    private volatile Profile displayedProfile;
+    private volatile boolean active = true;
+    private volatile boolean followMode;
+    private Runnable onUnreadChanged;
+
+    public WatcherService(MainLayoutManager layoutManager, FileManager fileManager, LogManager logManager) {
+        this.layoutManager = layoutManager;
+        this.fileManager = fileManager;
+        this.logManager = logManager;
+    }
+
+    /**
+     * Start watching a profile in the background. Does nothing if it is already watched
+     * or its location is not configured.
+     * @param profile profile to watch
+     */
+    public synchronized void watch(Profile profile) {
+        if (profile == null || localWatchers.containsKey(profile) || remoteWatchers.containsKey(profile)) return;
+
+        if (profile.isRemote()) {
+            if (profile.getHost() == null || profile.getHost().isBlank()) return;
+            RemoteLogWatcher watcher = new RemoteLogWatcher(layoutManager, fileManager, logManager, this, profile);
+            remoteWatchers.put(profile, watcher);
+            watcher.startWatching();
+        } else {
+            File directory = new File(profile.getPath());
+            if (!directory.isDirectory()) return;
+            LogFileWatcher watcher = new LogFileWatcher(layoutManager, fileManager, logManager, this, profile);
+            localWatchers.put(profile, watcher);
+            watcher.startWatching();
+        }
+    }
+
+    public void watchAll(Collection<Profile> profiles) {
+        profiles.forEach(this::watch);
+    }
+
+    /**
+     * Stop watching a profile and drop its state; the host session is closed once no
+     * other watched profile uses it.
+     * @param profile profile to forget
+     */
+    public synchronized void unwatch(Profile profile) {
+        LogFileWatcher local = localWatchers.remove(profile);
+        if (local != null) {
+            local.stopWatching();
+        }
+        RemoteLogWatcher remote = remoteWatchers.remove(profile);
+        if (remote != null) {
+            remote.stopWatching();
+            String hostId = remote.getHostId();
+            boolean hostInUse = remoteWatchers.keySet().stream().anyMatch(p -> p.getId().equals(hostId));
+            if (!hostInUse) {
+                sessionPool.close(hostId);
+                entryCache.invalidate(hostId);
+            }
+        }
+        if (states.remove(profile) != null) {
+            fireUnreadChanged();
+        }
+    }
+
+    /**
+     * Make a profile the one shown in the file list and log table. Its watcher keeps its
+     * state, so the file list and unread marks are restored immediately.
+     * @param profile profile to display, or null for none
+     */
+    public void display(Profile profile) {
+        displayedProfile = profile;
+        remoteWatchers.forEach((p, watcher) -> watcher.setFollowMode(followMode && p == profile));
+        if (profile == null) return;
+
+        watch(profile);
+        ProfileWatchState state = getState(profile);
+        layoutManager.setFirstScanProfile(!state.isScanned());
+        fileManager.setUpdatedFiles(state.getUnreadFiles());
+
+        RemoteLogWatcher remote = remoteWatchers.get(profile);
+        if (remote != null && state.isScanned()) {
+            remote.forceRefresh();
+        }
+    }
+
+    public boolean isDisplayed(Profile profile) {
+        return profile != null && displayedProfile == profile;
+    }
+
+    public ProfileWatchState getState(Profile profile) {
+        return states.computeIfAbsent(profile, p -> new ProfileWatchState());
+    }
+
+    public RemoteLogWatcher getRemoteWatcher(Profile profile) {
+        return profile != null ? remoteWatchers.get(profile) : null;
+    }
+
+    public int getUnreadCount(Profile profile) {
+        ProfileWatchState state = states.get(profile);
+        return state != null ? state.getUnreadCount() : 0;
+    }
+
+    public void markUnread(Profile profile, String fileName) {
+        if (getState(profile).markUnread(fileName)) {
+            fireUnreadChanged();
+        }
+    }
+
+    public void markRead(Profile profile, String fileName) {
+        if (profile != null && getState(profile).markRead(fileName)) {
+            fireUnreadChanged();
+        }
+    }
+
+    /**
+     * @param callback run on the FX thread whenever the unread count of any profile changes
+     */
+    public void setOnUnreadChanged(Runnable callback) {
+        this.onUnreadChanged = callback;
+    }
+
+    void fireUnreadChanged() {
+        Runnable callback = onUnreadChanged;
+        if (callback != null) {
+            Platform.runLater(callback);
+        }
+    }
+
+    /**
+     * Enable or disable follow mode for the selected file of the displayed profile
+     * @param enabled true to follow
+     */
+    public void setFollowMode(boolean enabled) {
+        followMode = enabled;
+        remoteWatchers.forEach((p, watcher) -> watcher.setFollowMode(enabled && isDisplayed(p)));
+    }
+
+    /**
+     * Switch between foreground and background scanning. While the window is not focused
+     * the watchers keep running with stretched intervals; on refocus every file is checked at once.
+     * @param active true when the window is focused
+     */
+    public void setActive(boolean active) {
+        boolean regained = active && !this.active;
+        this.active = active;
+
+        if (regained) {
+            localWatchers.values().forEach(LogFileWatcher::catchUp);
+            remoteWatchers.values().forEach(RemoteLogWatcher::catchUp);
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public RemoteSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    public TailPipeline getTailPipeline() {
+        return tailPipeline;
+    }
+
+    public RemoteLogMirror getMirror() {
+        return mirror;
+    }
+
+    /**
+     * @return cache of parsed entries shared by the log table and the watchers
+     */
+    public EntryCache getEntryCache() {
+        return entryCache;
+    }
+
+    public synchronized void shutdown() {
+        log.info("Stopping {} local and {} remote watchers", localWatchers.size(), remoteWatchers.size());
+        localWatchers.values().forEach(LogFileWatcher::stopWatching);
+        remoteWatchers.values().forEach(RemoteLogWatcher::stopWatching);
+        localWatchers.clear();
+        remoteWatchers.clear();
+        sessionPool.closeAll();
+        tailPipeline.shutdown();
+        scheduler.shutdownNow();
+        log.info("Entry cache: {}", entryCache.getStats());
+    }
+}
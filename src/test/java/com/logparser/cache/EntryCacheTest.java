@@ -0,0 +1,149 @@
+package com.logparser.cache;
+
+import com.logparser.model.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntryCacheTest {
+
+    private static final String HOST = "host:22/user";
+
+    @Test
+    void evictsTheLeastRecentlyUsedRange() {
+        List<LogEntry> page = entries(0, 10);
+        EntryCache cache = new EntryCache(3 * EntryCache.estimateSize(page));
+        EntryCache.Key a = key("/logs/a.log", 0, 100);
+        EntryCache.Key b = key("/logs/b.log", 0, 100);
+        EntryCache.Key c = key("/logs/c.log", 0, 100);
+        cache.put(a, page);
+        cache.put(b, page);
+        cache.put(c, page);
+
+        cache.get(a);
+        cache.put(key("/logs/d.log", 0, 100), page);
+
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void countsTheBytesOfTheRangesHeld() {
+        EntryCache cache = new EntryCache(1 << 20);
+        List<LogEntry> small = entries(0, 5);
+        List<LogEntry> large = entries(0, 50);
+        EntryCache.Key a = key("/logs/a.log", 0, 100);
+
+        cache.put(a, small);
+        cache.put(key("/logs/b.log", 0, 100), large);
+        assertEquals(EntryCache.estimateSize(small) + EntryCache.estimateSize(large), cache.getStats().getBytes());
+
+        cache.put(a, large);
+        assertEquals(2 * EntryCache.estimateSize(large), cache.getStats().getBytes());
+        assertEquals(2, cache.getStats().getRanges());
+
+        cache.invalidate(HOST, "/logs/a.log");
+        assertEquals(EntryCache.estimateSize(large), cache.getStats().getBytes());
+
+        cache.clear();
+        assertEquals(0, cache.getStats().getBytes());
+    }
+
+    @Test
+    void rangeLargerThanTheBudgetIsNotCached() {
+        List<LogEntry> small = entries(0, 1);
+        EntryCache cache = new EntryCache(EntryCache.estimateSize(small));
+        EntryCache.Key key = key("/logs/a.log", 0, 100);
+        cache.put(key, small);
+
+        cache.put(key, entries(0, 100));
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.getStats().getBytes());
+    }
+
+    @Test
+    void largerEntriesAreEstimatedLarger() {
+        LogEntry shortEntry = new LogEntry("19.10.2026 14:00:00", "app.php", "INFO", "short", "", "");
+        LogEntry longEntry = new LogEntry("19.10.2026 14:00:00", "app.php", "INFO", "x".repeat(1000),
+                "{\"user\":42}", "{\"ip\":\"10.0.0.1\"}");
+
+        long shortSize = EntryCache.estimateSize(List.of(shortEntry));
+        long longSize = EntryCache.estimateSize(List.of(longEntry));
+
+        // Two bytes per character of the message at least
+        assertTrue(longSize - shortSize >= 2 * 995);
+    }
+
+    @Test
+    void tailJoinsTheRangesEndingWhereTheNewestStarts() {
+        EntryCache cache = new EntryCache(1 << 20);
+        List<LogEntry> page = entries(0, 3);
+        List<LogEntry> first = entries(3, 5);
+        List<LogEntry> second = entries(5, 6);
+        cache.put(key("/logs/a.log", 0, 300), page);
+        cache.put(key("/logs/a.log", 300, 500), first);
+        cache.put(key("/logs/a.log", 500, 600), second);
+        cache.put(key("/logs/a.log", 100, 200), entries(100, 101));
+
+        List<LogEntry> expected = new ArrayList<>(page);
+        expected.addAll(first);
+        expected.addAll(second);
+        assertEquals(expected, cache.getTail(HOST, "/logs/a.log"));
+        assertNull(cache.getTail(HOST, "/logs/b.log"));
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    void directoryInvalidationKeepsOtherDirectoriesOfTheHost() {
+        EntryCache cache = new EntryCache(1 << 20);
+        List<LogEntry> page = entries(0, 1);
+        cache.put(key("/var/log/app/a.log", 0, 100), page);
+        cache.put(key("/var/log/app/b.log", 0, 100), page);
+        cache.put(key("/var/log/app/nested/c.log", 0, 100), page);
+        cache.put(key("/var/log/application/d.log", 0, 100), page);
+        cache.put(new EntryCache.Key("other:22/user", "/var/log/app/a.log", 0, 100), page);
+
+        cache.invalidateDirectory(HOST, "/var/log/app");
+
+        assertNull(cache.get(key("/var/log/app/a.log", 0, 100)));
+        assertNull(cache.get(key("/var/log/app/b.log", 0, 100)));
+        assertNotNull(cache.get(key("/var/log/app/nested/c.log", 0, 100)));
+        assertNotNull(cache.get(key("/var/log/application/d.log", 0, 100)));
+        assertNotNull(cache.get(new EntryCache.Key("other:22/user", "/var/log/app/a.log", 0, 100)));
+        assertEquals(3 * EntryCache.estimateSize(page), cache.getStats().getBytes());
+    }
+
+    @Test
+    void sourceInvalidationDropsEveryFileOfTheSource() {
+        EntryCache cache = new EntryCache(1 << 20);
+        List<LogEntry> page = entries(0, 1);
+        cache.put(key("/var/log/a.log", 0, 100), page);
+        cache.put(new EntryCache.Key(EntryCache.LOCAL, "/var/log/a.log", 0, 100), page);
+
+        cache.invalidate(HOST);
+
+        assertEquals(1, cache.getStats().getRanges());
+        assertNotNull(cache.get(new EntryCache.Key(EntryCache.LOCAL, "/var/log/a.log", 0, 100)));
+    }
+
+    private static EntryCache.Key key(String path, long from, long to) {
+        return new EntryCache.Key(HOST, path, from, to);
+    }
+
+    private static List<LogEntry> entries(int from, int to) {
+        List<LogEntry> entries = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            entries.add(new LogEntry("19.10.2026 14:00:00", "app.php", "INFO", "line " + i, "", ""));
+        }
+        return entries;
+    }
+}
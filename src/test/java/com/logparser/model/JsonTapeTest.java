@@ -0,0 +1,124 @@
+package com.logparser.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonTapeTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void parsesNestedValues() {
+        JsonTape tape = JsonTape.parse("{\"user\":{\"id\":42,\"name\":\"Ann\"},\"tags\":[\"a\",\"b\"],\"ok\":true,\"none\":null}");
+
+        int root = tape.root();
+        assertEquals(JsonTape.Type.OBJECT, tape.type(root));
+        assertEquals(4, tape.childCount(root));
+        assertEquals(List.of("user", "tags", "ok", "none"), fieldNames(tape, root));
+        assertEquals(JsonTape.Type.OBJECT, tape.type(tape.find("user")));
+        assertEquals(JsonTape.Type.ARRAY, tape.type(tape.find("tags")));
+        assertEquals(JsonTape.Type.TRUE, tape.type(tape.find("ok")));
+        assertEquals(JsonTape.Type.NULL, tape.type(tape.find("none")));
+        assertEquals("{\"id\":42,\"name\":\"Ann\"}", tape.raw(tape.find("user")));
+    }
+
+    @Test
+    void findsFieldsAndArrayElementsByPath() {
+        JsonTape tape = JsonTape.parse("{\"items\":[{\"id\":1},{\"id\":2,\"price\":-3.5}],\"user\":{\"id\":\"u-7\"}}");
+
+        assertEquals("1", tape.text(tape.find("items.0.id")));
+        assertEquals("-3.5", tape.text(tape.find("items.1.price")));
+        assertEquals("u-7", tape.text(tape.find("user.id")));
+        assertEquals(JsonTape.Type.NUMBER, tape.type(tape.find("items.1.id")));
+        assertEquals(-1, tape.find("items.2.id"));
+        assertEquals(-1, tape.find("items.x"));
+        assertEquals(-1, tape.find("user.id.more"));
+        assertEquals(-1, tape.find("missing"));
+    }
+
+    @Test
+    void unescapesStringsAndFieldNames() {
+        JsonTape tape = JsonTape.parse("{\"a\\\"b\":\"line\\nnext \\u00e9 \\\\ \\/\"}");
+
+        int value = tape.firstChild(tape.root());
+        assertEquals("a\"b", tape.fieldName(value));
+        assertEquals("line\nnext é \\ /", tape.text(value));
+        assertEquals(value, tape.find("a\"b"));
+        assertEquals("\"line\\nnext \\u00e9 \\\\ \\/\"", tape.raw(value));
+    }
+
+    @Test
+    void previewCutsLongStrings() {
+        JsonTape tape = JsonTape.parse("{\"message\":\"" + "x".repeat(500) + "\",\"list\":[1,2,3]}");
+
+        assertEquals("x".repeat(10), tape.textPreview(tape.find("message"), 10));
+        assertEquals("[1,2", tape.textPreview(tape.find("list"), 4));
+        assertEquals(502, tape.rawLength(tape.find("message")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   ", "plain text", "42", "\"string\"", "{\"open\":", "[1,2"})
+    void rejectsPayloadsThatAreNotAnObjectOrArray(String source) {
+        assertSame(JsonTape.NOT_JSON, JsonTape.parse(source));
+    }
+
+    @Test
+    void stopsAtTheEndOfTheRoot() {
+        JsonTape tape = JsonTape.parse("{\"a\":1}} trailing");
+
+        assertEquals(1, tape.childCount(tape.root()));
+        assertEquals("{\"a\":1}", tape.raw(tape.root()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"user\":{\"id\":42,\"name\":\"Ann\",\"roles\":[\"admin\",\"dev\"]},\"empty\":{},\"none\":[],\"ok\":false}",
+            "[{\"a\":1},[1,2,[3]],\"text with \\\"quotes\\\"\",null,-1.25]",
+            "{}",
+            "[ ]",
+            "{\"nested\":[[],[{}],{\"deep\":{\"deeper\":[true]}}]}"
+    })
+    void prettyPrintsLikeJackson(String source) throws Exception {
+        StringBuilder out = new StringBuilder();
+
+        JsonTape.parse(source).prettyPrint(out);
+
+        assertEquals(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(mapper.readTree(source)), out.toString());
+    }
+
+    @Test
+    void prettyPrintKeepsScalarsAsWritten() {
+        StringBuilder out = new StringBuilder();
+
+        JsonTape.parse("{\"big\":12345678901234567890123,\"exp\":1E3}").prettyPrint(out);
+
+        assertEquals("{\n  \"big\" : 12345678901234567890123,\n  \"exp\" : 1E3\n}", out.toString());
+    }
+
+    @Test
+    void sizeEstimateCoversEveryToken() {
+        // Ten tokens: two objects, an array, three field names and four scalars
+        String source = "{\"a\":[1,2,3],\"b\":{\"c\":\"d\"}}";
+
+        assertTrue(JsonTape.estimateSize(source) >= 96 + 13 * 10);
+        assertEquals(0, JsonTape.estimateSize("not json"));
+        assertEquals(0, JsonTape.estimateSize(null));
+    }
+
+    private static List<String> fieldNames(JsonTape tape, int node) {
+        List<String> names = new ArrayList<>();
+        for (int child = tape.firstChild(node); child >= 0; child = tape.nextSibling(node, child)) {
+            names.add(tape.fieldName(child));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,146 @@
+package com.logparser.parser;
+
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemplateMinerTest {
+
+    private final TemplateMiner miner = new TemplateMiner();
+
+    @Test
+    void messagesDifferingInOneTokenShareATemplate() {
+        LogEntry home = add("request to home failed");
+        LogEntry about = add("request to about failed");
+
+        assertEquals(home.getTemplateId(), about.getTemplateId());
+        assertEquals("request to <*> failed", text(home));
+    }
+
+    @Test
+    void tokensWithDigitsAreMasked() {
+        LogEntry first = add("order 42 shipped to A-17");
+        LogEntry second = add("order 77 shipped to B-3");
+
+        assertEquals(first.getTemplateId(), second.getTemplateId());
+        assertEquals("order <*> shipped to <*>", text(first));
+    }
+
+    @Test
+    void messageOfOnlyVariablesMatchesItsOwnTemplate() {
+        LogEntry first = add("42 17 99");
+        LogEntry second = add("7 1 2026-10-19");
+
+        assertEquals(first.getTemplateId(), second.getTemplateId());
+        assertEquals("<*> <*> <*>", text(first));
+    }
+
+    @Test
+    void dissimilarMessagesOfALeafGetTemplatesOfTheirOwn() {
+        LogEntry started = add("job run started for the tenant");
+        LogEntry failed = add("job run aborted after many retries");
+
+        assertNotEquals(started.getTemplateId(), failed.getTemplateId());
+        assertEquals("job run started for the tenant", text(started));
+    }
+
+    @Test
+    void messagesOfOtherLengthsOrPrefixesAreApart() {
+        LogEntry shortOne = add("cache miss for key");
+        LogEntry longOne = add("cache miss for key again");
+        LogEntry otherPrefix = add("cache hit for key");
+
+        assertNotEquals(shortOne.getTemplateId(), longOne.getTemplateId());
+        assertNotEquals(shortOne.getTemplateId(), otherPrefix.getTemplateId());
+        assertEquals(3, miner.size());
+    }
+
+    @Test
+    void onlyTheFirstLineCounts() {
+        LogEntry first = add("Uncaught exception in worker\n#0 /app/src/A.php(12)");
+        LogEntry second = add("Uncaught exception in worker\n#0 /app/src/B.php(99)\n#1 {main}");
+
+        assertEquals(first.getTemplateId(), second.getTemplateId());
+        assertEquals("Uncaught exception in worker", text(first));
+    }
+
+    @Test
+    void longMessagesEndInOneVariableTail() {
+        String head = "word ".repeat(AppConfig.TEMPLATE_MAX_TOKENS);
+        LogEntry first = add(head + "tail one");
+        LogEntry second = add(head + "other tail that is longer");
+
+        assertEquals(first.getTemplateId(), second.getTemplateId());
+        assertTrue(text(first).endsWith("word <*>"));
+    }
+
+    @Test
+    void fullLeafMergesIntoItsMostSimilarTemplate() {
+        LogEntry first = add("job run " + word(0) + " " + word(0) + " " + word(0) + " " + word(0));
+        for (int i = 1; i < AppConfig.TEMPLATE_MAX_PER_LEAF; i++) {
+            add("job run " + word(i) + " " + word(i) + " " + word(i) + " " + word(i));
+        }
+        assertEquals(AppConfig.TEMPLATE_MAX_PER_LEAF, miner.size());
+
+        // Shares only its first two tokens with each template, too few to join one in a leaf with room
+        LogEntry overflow = add("job run with other new words");
+
+        assertEquals(AppConfig.TEMPLATE_MAX_PER_LEAF, miner.size());
+        assertEquals(first.getTemplateId(), overflow.getTemplateId());
+        assertEquals("job run <*> <*> <*> <*>", text(overflow));
+    }
+
+    @Test
+    void fullMinerGivesNoTemplateToANewLeaf() {
+        int perLevel = (int) Math.sqrt(AppConfig.TEMPLATE_MAX_TEMPLATES);
+        for (int first = 0; first < perLevel; first++) {
+            for (int second = 0; second < perLevel; second++) {
+                add(word(first) + " " + word(second));
+            }
+        }
+        assertEquals(AppConfig.TEMPLATE_MAX_TEMPLATES, miner.size());
+
+        LogEntry newLeaf = add("unseen words");
+        LogEntry knownLeaf = add(word(1) + " " + word(2));
+
+        assertEquals(-1, newLeaf.getTemplateId());
+        assertEquals(word(1) + " " + word(2), text(knownLeaf));
+        assertEquals(AppConfig.TEMPLATE_MAX_TEMPLATES, miner.size());
+    }
+
+    @Test
+    void templateIdsAreDenseAndUnknownIdsAreNull() {
+        Set<Integer> ids = new HashSet<>();
+        ids.add(add("alpha beta gamma").getTemplateId());
+        ids.add(add("delta epsilon").getTemplateId());
+
+        assertEquals(Set.of(0, 1), ids);
+        assertNull(miner.get(2));
+        assertNull(miner.get(-1));
+    }
+
+    private LogEntry add(String message) {
+        LogEntry entry = new LogEntry("19.10.2026 14:00:00", "app.php", "INFO", message, "", "");
+        miner.add(entry);
+        return entry;
+    }
+
+    private String text(LogEntry entry) {
+        return miner.get(entry.getTemplateId()).getText();
+    }
+
+    /**
+     * @return a distinct token without digits
+     */
+    private static String word(int i) {
+        return "w" + (char) ('a' + i / 26 % 26) + (char) ('a' + i % 26);
+    }
+}
@@ -0,0 +1,212 @@
+package com.logparser.remote;
+
+import com.logparser.cache.EntrySource;
+import com.logparser.config.AppConfig;
+import com.logparser.model.LogEntry;
+import com.logparser.parser.OxLogParser;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.ProcessShellFactory;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RemoteGrepSearchTest {
+
+    private static final String LINE_1 = "19.10.2026 14:00:01 [app.php] request.INFO: user 42 logged in";
+    private static final String LINE_2 = "19.10.2026 14:00:02 [app.php] request.ERROR: it's broken";
+    private static final String LINE_3 = "19.10.2026 14:00:03 [app.php] request.INFO: user 42 logged out";
+
+    @TempDir
+    static Path dir;
+    private static SshServer sshd;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        sshd = SshServer.setUpDefaultServer();
+        sshd.setHost("127.0.0.1");
+        sshd.setPort(0);
+        sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(dir.resolve("hostkey.ser")));
+        sshd.setPasswordAuthenticator((username, password, session) -> "secret".equals(password));
+        // Like a real sshd, run the command through the shell
+        sshd.setCommandFactory((channel, command) -> new ProcessShellFactory(command, "sh", "-c", command).createShell(channel));
+        sshd.setSubsystemFactories(List.of(new SftpSubsystemFactory()));
+        sshd.start();
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        sshd.stop(true);
+    }
+
+    @Test
+    void buildCommandQuotesTermAndPath() {
+        String command = RemoteGrepSearch.buildCommand("/var/log/a b.log", "it's $(rm -rf x)", 10);
+
+        assertEquals("LC_ALL=C grep -b -i -F -m 10 -e 'it'\\''s $(rm -rf x)' -- '/var/log/a b.log'; echo \"grep-exit:$?\"",
+                command);
+    }
+
+    @Test
+    void buildCommandPassesTermLiterallyToTheShell() throws Exception {
+        Path log = writeLog("quoted $name.log");
+        Path marker = dir.resolve("marker");
+
+        String output = runLocally(RemoteGrepSearch.buildCommand(log.toString(), "IT'S `touch " + marker + "`", 10));
+
+        assertEquals("grep-exit:1\n", output);
+        assertFalse(Files.exists(marker));
+        assertEquals(offsetOf(LINE_2) + ":" + LINE_2 + "\ngrep-exit:0\n",
+                runLocally(RemoteGrepSearch.buildCommand(log.toString(), "IT'S", 10)));
+    }
+
+    @Test
+    void parseMatchUsesTheOffsetBeforeTheFirstColon() {
+        RemoteGrepSearch search = new RemoteGrepSearch(null, new OxLogParser());
+        EntrySource source = new EntrySource("host", "/var/log/app.log", 100, List.of());
+
+        LogEntry entry = search.parseMatch("1234:" + LINE_1, source);
+
+        assertEquals(1334, entry.getOffset());
+        assertEquals("INFO", entry.getLevel());
+        assertEquals("user 42 logged in", entry.getMessage());
+    }
+
+    @Test
+    void parseMatchSkipsLinesWithoutOffset() {
+        RemoteGrepSearch search = new RemoteGrepSearch(null, new OxLogParser());
+        EntrySource source = new EntrySource("host", "/var/log/app.log", 0, List.of());
+
+        assertNull(search.parseMatch("grep-exit:0", source));
+        assertNull(search.parseMatch(":" + LINE_1, source));
+        assertNull(search.parseMatch("no separator", source));
+    }
+
+    @Test
+    void fetchContextTrimsPartialLines() {
+        String head = "x".repeat(AppConfig.REMOTE_GREP_CONTEXT_BYTES) + "\n";
+        String text = head + LINE_1 + "\n" + LINE_2 + "\n" + LINE_3.substring(0, 20);
+        RemoteGrepSearch search = new RemoteGrepSearch(new BytesAccessor(text), null);
+
+        String context = search.fetchContext("/var/log/app.log", head.length() + LINE_1.length() + 1);
+
+        assertEquals(LINE_1 + "\n" + LINE_2 + "\n", context);
+    }
+
+    @Test
+    void fetchContextKeepsTheStartOfTheFile() {
+        RemoteGrepSearch search = new RemoteGrepSearch(new BytesAccessor(LINE_1 + "\n" + LINE_2), null);
+
+        assertEquals(LINE_1 + "\n", search.fetchContext("/var/log/app.log", 0));
+    }
+
+    @Test
+    void fetchContextReturnsALineWithoutNewline() {
+        RemoteGrepSearch search = new RemoteGrepSearch(new BytesAccessor(LINE_1), null);
+
+        assertEquals(LINE_1, search.fetchContext("/var/log/app.log", 0));
+    }
+
+    @Test
+    void searchStreamsMatchesOverExec() throws Exception {
+        Path log = writeLog("app.log");
+        SftpRemoteFileAccessor accessor = connect();
+        try {
+            RemoteGrepSearch search = new RemoteGrepSearch(accessor, new OxLogParser());
+            List<LogEntry> matches = new ArrayList<>();
+
+            int count = search.search(new EntrySource("host", log.toString(), 0, List.of()), "USER 42", matches::addAll);
+
+            assertEquals(2, count);
+            assertEquals(List.of(offsetOf(LINE_1), offsetOf(LINE_3)), matches.stream().map(LogEntry::getOffset).toList());
+            assertEquals(LINE_1 + "\n" + LINE_2 + "\n" + LINE_3 + "\n", search.fetchContext(log.toString(), offsetOf(LINE_2)));
+        } finally {
+            accessor.disconnect();
+        }
+    }
+
+    @Test
+    void searchWithoutMatchesIsNotAnError() throws Exception {
+        Path log = writeLog("empty-result.log");
+        SftpRemoteFileAccessor accessor = connect();
+        try {
+            RemoteGrepSearch search = new RemoteGrepSearch(accessor, new OxLogParser());
+
+            assertEquals(0, search.search(new EntrySource("host", log.toString(), 0, List.of()), "missing", batch -> {}));
+        } finally {
+            accessor.disconnect();
+        }
+    }
+
+    @Test
+    void searchReportsGrepErrors() throws Exception {
+        SftpRemoteFileAccessor accessor = connect();
+        try {
+            RemoteGrepSearch search = new RemoteGrepSearch(accessor, new OxLogParser());
+            EntrySource missing = new EntrySource("host", dir.resolve("missing.log").toString(), 0, List.of());
+
+            IOException error = assertThrows(IOException.class, () -> search.search(missing, "user", batch -> {}));
+            assertTrue(error.getMessage().startsWith("Remote grep failed"), error.getMessage());
+        } finally {
+            accessor.disconnect();
+        }
+    }
+
+    private static Path writeLog(String name) throws IOException {
+        return Files.writeString(dir.resolve(name), LINE_1 + "\n" + LINE_2 + "\n" + LINE_3 + "\n");
+    }
+
+    private static long offsetOf(String line) {
+        String text = LINE_1 + "\n" + LINE_2 + "\n" + LINE_3 + "\n";
+        return text.indexOf(line);
+    }
+
+    private static SftpRemoteFileAccessor connect() throws Exception {
+        SftpRemoteFileAccessor accessor = new SftpRemoteFileAccessor("127.0.0.1", sshd.getPort(), "test", "secret");
+        accessor.connect();
+        return accessor;
+    }
+
+    private static String runLocally(String command) throws Exception {
+        Process process = new ProcessBuilder("sh", "-c", command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return output;
+    }
+
+    /**
+     * Serves chunks of a fixed text instead of a remote file
+     */
+    private static final class BytesAccessor extends SftpRemoteFileAccessor {
+        private final byte[] data;
+
+        BytesAccessor(String text) {
+            super("localhost", 22, "test", "secret");
+            this.data = text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] readChunk(String path, long offset, int length) {
+            int from = (int) Math.min(offset, data.length);
+            int to = (int) Math.min(data.length, offset + length);
+            byte[] chunk = new byte[to - from];
+            System.arraycopy(data, from, chunk, 0, chunk.length);
+            return chunk;
+        }
+    }
+}
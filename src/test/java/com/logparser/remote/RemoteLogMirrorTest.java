@@ -0,0 +1,175 @@
+package com.logparser.remote;
+
+import com.logparser.config.AppConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RemoteLogMirrorTest {
+
+    private static final String PROFILE = "host:22/user";
+
+    @TempDir
+    Path dir;
+    private Path remote;
+    private LocalAccessor accessor;
+    private RemoteLogMirror mirror;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        remote = Files.createDirectories(dir.resolve("remote")).resolve("app.log");
+        accessor = new LocalAccessor();
+        mirror = new RemoteLogMirror(dir.resolve("mirror").toFile());
+    }
+
+    @Test
+    void firstSyncMirrorsTheWholeFile() throws IOException {
+        Files.writeString(remote, lines(0, 100));
+
+        RemoteLogMirror.SyncResult result = mirror.sync(PROFILE, accessor, remote.toString());
+
+        assertTrue(result.isReset());
+        assertEquals(0, result.getBaseOffset());
+        assertEquals(0, result.getPreviousLength());
+        assertEquals(Files.size(remote), result.getLength());
+        assertArrayEquals(Files.readAllBytes(remote), Files.readAllBytes(result.getFile().toPath()));
+    }
+
+    @Test
+    void topUpDownloadsOnlyTheAppendedBytes() throws IOException {
+        Files.writeString(remote, lines(0, 100));
+        long firstLength = mirror.sync(PROFILE, accessor, remote.toString()).getLength();
+        Files.writeString(remote, lines(100, 110), StandardOpenOption.APPEND);
+        accessor.reads.clear();
+
+        RemoteLogMirror.SyncResult result = mirror.sync(PROFILE, accessor, remote.toString());
+
+        assertFalse(result.isReset());
+        assertEquals(firstLength, result.getPreviousLength());
+        assertEquals(Files.size(remote), result.getLength());
+        assertArrayEquals(Files.readAllBytes(remote), Files.readAllBytes(result.getFile().toPath()));
+        // The tail check, then the appended range only
+        assertEquals(List.of(
+                new Read(firstLength - AppConfig.MIRROR_TAIL_CHECK_BYTES, AppConfig.MIRROR_TAIL_CHECK_BYTES),
+                new Read(firstLength, (int) (Files.size(remote) - firstLength))), accessor.reads);
+    }
+
+    @Test
+    void unchangedFileIsNotDownloadedAgain() throws IOException {
+        Files.writeString(remote, lines(0, 10));
+        mirror.sync(PROFILE, accessor, remote.toString());
+        accessor.reads.clear();
+
+        RemoteLogMirror.SyncResult result = mirror.sync(PROFILE, accessor, remote.toString());
+
+        assertFalse(result.isReset());
+        assertEquals(result.getPreviousLength(), result.getLength());
+        assertEquals(1, accessor.reads.size());
+    }
+
+    @Test
+    void shrunkFileResetsTheMirror() throws IOException {
+        Files.writeString(remote, lines(0, 100));
+        mirror.sync(PROFILE, accessor, remote.toString());
+        Files.writeString(remote, lines(500, 510));
+
+        RemoteLogMirror.SyncResult result = mirror.sync(PROFILE, accessor, remote.toString());
+
+        assertTrue(result.isReset());
+        assertEquals(0, result.getPreviousLength());
+        assertArrayEquals(Files.readAllBytes(remote), Files.readAllBytes(result.getFile().toPath()));
+    }
+
+    @Test
+    void tailChecksumMismatchResetsTheMirror() throws IOException {
+        Files.writeString(remote, lines(0, 100));
+        mirror.sync(PROFILE, accessor, remote.toString());
+        // Rotated and grown past the old length: only the tail block shows the difference
+        Files.writeString(remote, lines(1000, 1200));
+
+        RemoteLogMirror.SyncResult result = mirror.sync(PROFILE, accessor, remote.toString());
+
+        assertTrue(result.isReset());
+        assertArrayEquals(Files.readAllBytes(remote), Files.readAllBytes(result.getFile().toPath()));
+    }
+
+    @Test
+    void largeFileIsMirroredFromTheFirstCompleteLineOfItsTail() throws IOException {
+        long maxReadSize = AppConfig.MAX_INCREMENTAL_READ_MB * 1024L * 1024L;
+        String line = "x".repeat(99) + "\n";
+        try (RandomAccessFile raf = new RandomAccessFile(remote.toFile(), "rw")) {
+            byte[] block = line.repeat(10_000).getBytes(StandardCharsets.UTF_8);
+            while (raf.length() < maxReadSize + 50) raf.write(block);
+        }
+        long size = Files.size(remote);
+
+        RemoteLogMirror.SyncResult result = mirror.sync(PROFILE, accessor, remote.toString());
+
+        long start = size - maxReadSize;
+        long expectedBase = (start / line.length() + (start % line.length() == 0 ? 0 : 1)) * line.length();
+        assertTrue(result.isReset());
+        assertEquals(expectedBase, result.getBaseOffset());
+        assertEquals(size - expectedBase, result.getLength());
+    }
+
+    @Test
+    void profilesOnTheSameHostKeepTheirFilesApart() {
+        assertFalse(mirror.getMirrorFile(PROFILE, "/var/log/a/app.log")
+                .equals(mirror.getMirrorFile(PROFILE, "/var/log/b/app.log")));
+    }
+
+    private static String lines(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            text.append("19.10.2026 14:00:00 [app.php] request.INFO: line ").append(i).append('\n');
+        }
+        return text.toString();
+    }
+
+    private record Read(long offset, int length) {
+    }
+
+    /**
+     * Serves the local file named by the remote path and records the ranges read
+     */
+    private static final class LocalAccessor extends SftpRemoteFileAccessor {
+        private final List<Read> reads = new ArrayList<>();
+
+        LocalAccessor() {
+            super("localhost", 22, "test", "secret");
+        }
+
+        @Override
+        public long getFileSize(String path) throws IOException {
+            return Files.size(Path.of(path));
+        }
+
+        @Override
+        public byte[] readChunk(String path, long offset, int length) {
+            reads.add(new Read(offset, length));
+            try (RandomAccessFile raf = new RandomAccessFile(path, "r")) {
+                byte[] data = new byte[(int) Math.max(0, Math.min(length, raf.length() - offset))];
+                raf.seek(offset);
+                raf.readFully(data);
+                return data;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
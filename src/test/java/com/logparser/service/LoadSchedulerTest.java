@@ -0,0 +1,139 @@
+package com.logparser.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final LoadScheduler scheduler = new LoadScheduler(2);
+    private final List<String> started = new CopyOnWriteArrayList<>();
+
+    @Test
+    void waitingLoadsStartInLaneOrder() throws Exception {
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+        CompletableFuture<?> blockerA = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "a", () -> await(first));
+        CompletableFuture<?> blockerB = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "b", () -> await(second));
+
+        CompletableFuture<?> background = scheduler.submit(LoadScheduler.Lane.BACKGROUND, "background", record("background"));
+        CompletableFuture<?> prefetch = scheduler.submit(LoadScheduler.Lane.PREFETCH, "prefetch", record("prefetch"));
+        CompletableFuture<?> interactive = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "interactive", record("interactive"));
+        first.countDown();
+        second.countDown();
+
+        CompletableFuture.allOf(blockerA, blockerB, background, prefetch, interactive).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(List.of("interactive", "prefetch", "background"), started);
+    }
+
+    @Test
+    void oneSlotIsKeptForInteractiveLoads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?> background = scheduler.submit(LoadScheduler.Lane.BACKGROUND, "background", () -> await(release));
+        CompletableFuture<?> prefetch = scheduler.submit(LoadScheduler.Lane.PREFETCH, "prefetch", record("prefetch"));
+
+        CompletableFuture<?> interactive = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "interactive", record("interactive"));
+
+        interactive.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(prefetch.isDone());
+        release.countDown();
+        CompletableFuture.allOf(background, prefetch).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(List.of("interactive", "prefetch"), started);
+    }
+
+    @Test
+    void promotedLoadTakesTheReservedSlot() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?> background = scheduler.submit(LoadScheduler.Lane.BACKGROUND, "background", () -> await(release));
+        CompletableFuture<?> prefetch = scheduler.submit(LoadScheduler.Lane.PREFETCH, "prefetch", record("prefetch"));
+
+        scheduler.promote(prefetch, LoadScheduler.Lane.INTERACTIVE);
+
+        prefetch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(background.isDone());
+        release.countDown();
+        background.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void cancelledWaitingLoadNeverRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?> blockerA = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "a", () -> await(release));
+        CompletableFuture<?> blockerB = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "b", () -> await(release));
+        CompletableFuture<?> waiting = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "waiting", record("waiting"));
+
+        assertTrue(waiting.cancel(true));
+        release.countDown();
+        CompletableFuture.allOf(blockerA, blockerB).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "after", record("after")).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertTrue(waiting.isCancelled());
+        assertEquals(List.of("after"), started);
+    }
+
+    @Test
+    void cancellingARunningLoadInterruptsItAndFreesItsSlot() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<?> load = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "load", () -> {
+            running.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+        assertTrue(running.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        load.cancel(true);
+
+        assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(load.isCancelled());
+        // The slot is freed: two more interactive loads run side by side
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?> blocker = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "blocker", () -> await(release));
+        scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "after", record("after")).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        release.countDown();
+        blocker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void failedLoadCompletesWithItsCause() {
+        CompletableFuture<?> load = scheduler.submit(LoadScheduler.Lane.INTERACTIVE, "load", () -> {
+            throw new IOException("unreadable");
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> load.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, error.getCause());
+    }
+
+    private Callable<Object> record(String name) {
+        return () -> {
+            started.add(name);
+            return name;
+        };
+    }
+
+    private static Object await(CountDownLatch latch) throws InterruptedException {
+        if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Not released");
+        }
+        return null;
+    }
+}
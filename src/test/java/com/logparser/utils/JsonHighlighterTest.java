@@ -0,0 +1,83 @@
+package com.logparser.utils;
+
+import org.fxmisc.richtext.model.StyleSpan;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonHighlighterTest {
+
+    @Test
+    void stylesEveryToken() {
+        String text = "{\"id\" : -12.5, \"tags\": [\"a\", true]}";
+
+        assertEquals(List.of(
+                "json-brace:{", "json-key:\"id\" :", ": ", "json-number:-12.5", "json-comma:,", ": ",
+                "json-key:\"tags\":", ": ", "json-bracket:[", "json-string:\"a\"", "json-comma:,", ": true",
+                "json-bracket:]", "json-brace:}"), spans(text, 0, text.length()));
+    }
+
+    @Test
+    void leavesTextAroundTheJsonPlain() {
+        String text = "Context:\n{\"a\": 1}";
+
+        assertEquals(List.of(":Context", "json-colon::", ":\n", "json-brace:{", "json-key:\"a\":", ": ",
+                "json-number:1", "json-brace:}"), spans(text, 0, text.length()));
+    }
+
+    @Test
+    void keepsEscapedQuotesInsideStrings() {
+        String text = "[\"say \\\"hi\\\", bye\"]";
+
+        assertEquals(List.of("json-bracket:[", "json-string:\"say \\\"hi\\\", bye\"", "json-bracket:]"),
+                spans(text, 0, text.length()));
+    }
+
+    @Test
+    void unterminatedStringStaysPlain() {
+        String text = "[\"a\", \"open, 1]";
+
+        assertEquals(List.of("json-bracket:[", "json-string:\"a\"", "json-comma:,", ": \"open", "json-comma:,",
+                ": ", "json-number:1", "json-bracket:]"), spans(text, 0, text.length()));
+    }
+
+    @Test
+    void highlightsOnlyTheRequestedRange() {
+        String text = "{\n  \"a\" : 1,\n  \"b\" : \"two\"\n}";
+        int from = text.indexOf("  \"b\"");
+        int to = text.indexOf('\n', from) + 1;
+
+        List<String> spans = spans(text, from, to);
+
+        assertEquals(List.of(":  ", "json-key:\"b\" :", ": ", "json-string:\"two\"", ":\n"), spans);
+        assertEquals(to - from, JsonHighlighter.computeHighlighting(text, from, to).length());
+    }
+
+    @Test
+    void stringDoesNotContinuePastTheRange() {
+        String text = "[\"a long string\"]";
+
+        assertEquals(List.of("json-bracket:[", ":\"a long"), spans(text, 0, 8));
+    }
+
+    /**
+     * @return the spans as "style:text", an unstyled span as ":text"
+     */
+    private static List<String> spans(String text, int from, int to) {
+        StyleSpans<Collection<String>> spans = JsonHighlighter.computeHighlighting(text, from, to);
+        List<String> result = new ArrayList<>();
+        int position = from;
+        for (StyleSpan<Collection<String>> span : spans) {
+            if (span.getLength() == 0) continue;
+            String style = String.join(" ", span.getStyle());
+            result.add(style + ":" + text.substring(position, position + span.getLength()));
+            position += span.getLength();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package com.logparser.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecordAssemblerTest {
+
+    @Test
+    void splitsCompleteLinesAndKeepsThePartialOne() {
+        RecordAssembler assembler = new RecordAssembler();
+
+        assertEquals(List.of("first", "second"), feed(assembler, "first\nsecond\nthi"));
+        assertEquals(13, assembler.getConsumedBytes());
+        assertEquals(List.of("third"), feed(assembler, "rd\n"));
+        assertEquals(19, assembler.getConsumedBytes());
+    }
+
+    @Test
+    void reportsOffsetsOfTheRecordsOfTheLastFeed() {
+        RecordAssembler assembler = new RecordAssembler();
+        feed(assembler, "a\nbb\nc");
+
+        List<String> records = feed(assembler, "cc\n\n  \nd\n");
+
+        assertEquals(List.of("ccc", "d"), records);
+        assertEquals(5, assembler.getRecordOffset(0));
+        assertEquals(13, assembler.getRecordOffset(1));
+        assertEquals(15, assembler.getConsumedBytes());
+    }
+
+    @Test
+    void stripsCarriageReturns() {
+        RecordAssembler assembler = new RecordAssembler();
+
+        assertEquals(List.of("windows", "line"), feed(assembler, "windows\r\nline\r\n"));
+        assertEquals(15, assembler.getConsumedBytes());
+    }
+
+    @Test
+    void joinsMultiByteCharactersSplitAcrossChunks() {
+        RecordAssembler assembler = new RecordAssembler();
+        byte[] bytes = "Grüße\n".getBytes(StandardCharsets.UTF_8);
+        int split = 3; // inside the two bytes of ü
+
+        assertEquals(List.of(), assembler.feed(bytes, split));
+        byte[] rest = new byte[bytes.length - split];
+        System.arraycopy(bytes, split, rest, 0, rest.length);
+
+        assertEquals(List.of("Grüße"), assembler.feed(rest, rest.length));
+        assertEquals(bytes.length, assembler.getConsumedBytes());
+    }
+
+    @Test
+    void readsOnlyTheValidPartOfTheBuffer() {
+        RecordAssembler assembler = new RecordAssembler();
+        byte[] buffer = "one\ntwo\nstale\n".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(List.of("one", "two"), assembler.feed(buffer, 8));
+    }
+
+    @Test
+    void growsTheOffsetTableForLargeChunks() {
+        RecordAssembler assembler = new RecordAssembler();
+        StringBuilder text = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            text.append("line ").append(i).append('\n');
+            expected.add("line " + i);
+        }
+
+        List<String> records = feed(assembler, text.toString());
+
+        assertEquals(expected, records);
+        assertEquals(text.indexOf("line 199"), assembler.getRecordOffset(199));
+    }
+
+    @Test
+    void flushTakesThePartialLine() {
+        RecordAssembler assembler = new RecordAssembler();
+        feed(assembler, "done\npartial\r");
+
+        assertEquals("partial", assembler.flush());
+        assertEquals(13, assembler.getConsumedBytes());
+        assertNull(assembler.flush());
+    }
+
+    @Test
+    void resetDropsThePartialLineAndTheCounter() {
+        RecordAssembler assembler = new RecordAssembler();
+        feed(assembler, "done\npart");
+
+        assembler.reset();
+
+        assertEquals(0, assembler.getConsumedBytes());
+        assertEquals(List.of("new"), feed(assembler, "new\n"));
+        assertEquals(0, assembler.getRecordOffset(0));
+    }
+
+    private static List<String> feed(RecordAssembler assembler, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return assembler.feed(bytes, bytes.length);
+    }
+}
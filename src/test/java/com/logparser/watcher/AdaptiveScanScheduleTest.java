@@ -0,0 +1,83 @@
+package com.logparser.watcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveScanScheduleTest {
+
+    private final AdaptiveScanSchedule schedule = new AdaptiveScanSchedule(1000, 8000);
+
+    @Test
+    void unknownFileIsDue() {
+        assertTrue(schedule.isDue("app.log", 0));
+        assertEquals(8000, schedule.delayUntilNextDue(0));
+    }
+
+    @Test
+    void unchangedFileBacksOffUpToTheMaximum() {
+        long now = 0;
+        schedule.record("app.log", true, now);
+        List<Long> intervals = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            long delay = schedule.delayUntilNextDue(now);
+            intervals.add(delay);
+            now += delay;
+            schedule.record("app.log", false, now);
+        }
+
+        assertEquals(List.of(1000L, 2000L, 4000L, 8000L, 8000L), intervals);
+    }
+
+    @Test
+    void changedFileIsCheckedAgainAfterTheMinimum() {
+        schedule.record("app.log", true, 0);
+        schedule.record("app.log", false, 1000);
+        schedule.record("app.log", false, 3000);
+
+        schedule.record("app.log", true, 7000);
+
+        assertFalse(schedule.isDue("app.log", 7999));
+        assertTrue(schedule.isDue("app.log", 8000));
+    }
+
+    @Test
+    void dueKeysListsTheHottestFirst() {
+        schedule.record("cold.log", true, 0);
+        schedule.record("cold.log", false, 0);
+        schedule.record("cold.log", false, 0);
+        schedule.record("hot.log", true, 0);
+        schedule.record("warm.log", true, 0);
+        schedule.record("warm.log", false, 0);
+
+        assertEquals(List.of("hot.log"), schedule.dueKeys(1000));
+        assertEquals(List.of("hot.log", "warm.log", "cold.log"), schedule.dueKeys(4000));
+    }
+
+    @Test
+    void makeAllDueCatchesUpAtOnce() {
+        schedule.record("a.log", true, 0);
+        schedule.record("b.log", true, 0);
+        schedule.record("b.log", false, 0);
+
+        schedule.makeAllDue(10);
+
+        assertEquals(0, schedule.delayUntilNextDue(10));
+        assertEquals(List.of("a.log", "b.log"), schedule.dueKeys(10));
+    }
+
+    @Test
+    void removedFileIsForgotten() {
+        schedule.record("app.log", true, 0);
+
+        schedule.remove("app.log");
+
+        assertTrue(schedule.isDue("app.log", 0));
+        assertEquals(List.of(), schedule.dueKeys(5000));
+    }
+}
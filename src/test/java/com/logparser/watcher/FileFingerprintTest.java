@@ -0,0 +1,128 @@
+package com.logparser.watcher;
+
+import com.logparser.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileFingerprintTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void grownFileIsTheSameGeneration() throws IOException {
+        File file = write("app.log", "a".repeat(3 * AppConfig.FINGERPRINT_BLOCK_BYTES));
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+
+        Files.writeString(file.toPath(), "appended\n", StandardOpenOption.APPEND);
+
+        assertTrue(isSameGeneration(fingerprint, file));
+    }
+
+    @Test
+    void truncatedFileIsANewGeneration() throws IOException {
+        File file = write("app.log", "line\n".repeat(100));
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+
+        Files.writeString(file.toPath(), "line\n");
+
+        assertFalse(isSameGeneration(fingerprint, file));
+    }
+
+    @Test
+    void fileRewrittenPastItsSizeIsANewGeneration() throws IOException {
+        File file = write("app.log", "old line\n".repeat(100));
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+
+        // copytruncate followed by more writes than before: only the content tells
+        try (OutputStream out = Files.newOutputStream(file.toPath(), StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write("new line\n".repeat(200).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertFalse(isSameGeneration(fingerprint, file));
+    }
+
+    @Test
+    void changedTailBlockIsANewGeneration() throws IOException {
+        String head = "h".repeat(AppConfig.FINGERPRINT_BLOCK_BYTES);
+        File file = write("app.log", head + "tail before\n");
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+
+        write("app.log", head + "tail after!\nand more\n");
+
+        assertFalse(isSameGeneration(fingerprint, file));
+    }
+
+    @Test
+    void otherFileKeyIsANewGeneration() throws IOException {
+        File file = write("app.log", "line\n");
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+
+        assertFalse(fingerprint.isSameGeneration("other inode", file.length(), FileFingerprint.localReader(file)));
+    }
+
+    @Test
+    void unreadableBlocksFallBackToKeyAndSize() throws IOException {
+        File file = write("app.log", "line\n".repeat(10));
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+        FileFingerprint.BlockReader failing = (offset, length) -> {
+            throw new IOException("gone");
+        };
+
+        assertTrue(fingerprint.isSameGeneration(fingerprint.getFileKey(), file.length(), failing));
+        assertFalse(fingerprint.isSameGeneration(fingerprint.getFileKey(), file.length() - 1, failing));
+    }
+
+    @Test
+    void emptyFileFingerprintsAndGrows() throws IOException {
+        File file = write("app.log", "");
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+
+        Files.writeString(file.toPath(), "first line\n");
+
+        assertTrue(isSameGeneration(fingerprint, file));
+    }
+
+    @Test
+    void unchangedOnlyWhenSizeAndTimeMatch() throws IOException {
+        File file = write("app.log", "line\n");
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+
+        assertTrue(fingerprint.isUnchanged(fingerprint.getSize(), fingerprint.getModified()));
+        assertFalse(fingerprint.isUnchanged(fingerprint.getSize() + 1, fingerprint.getModified()));
+        assertFalse(fingerprint.isUnchanged(fingerprint.getSize(), fingerprint.getModified() + 1));
+    }
+
+    @Test
+    void renamedFileKeepsItsKey() throws IOException {
+        File file = write("app.log", "line\n");
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+        Path renamed = Files.move(file.toPath(), dir.resolve("app.log.1"));
+
+        Object key = Files.readAttributes(renamed, BasicFileAttributes.class).fileKey();
+
+        assertTrue(key == null || fingerprint.hasFileKey(key));
+        assertFalse(fingerprint.hasFileKey(null));
+    }
+
+    private File write(String name, String text) throws IOException {
+        return Files.writeString(dir.resolve(name), text).toFile();
+    }
+
+    private static boolean isSameGeneration(FileFingerprint fingerprint, File file) throws IOException {
+        return fingerprint.isSameGeneration(FileFingerprint.of(file).getFileKey(), file.length(),
+                FileFingerprint.localReader(file));
+    }
+}